@@ -12,6 +12,13 @@
 #   public *;
 #}
 
+# Methods annotated with @BridgeMethod need no rules, the generated *_BridgeMethods classes call
+# them directly. Functions registered with addCallableFunction() are called by reflection, so their
+# methods must be kept when the release build is minified, e.g.:
+#-keepclassmembers class fqcn.of.the.class.with.callable.functions {
+#   public <methods>;
+#}
+
 # Uncomment this to preserve the line number information for
 # debugging stack traces.
 #-keepattributes SourceFile,LineNumberTable
@@ -0,0 +1,95 @@
+package com.example.webviewbridge;
+
+import android.content.Context;
+import android.os.SystemClock;
+import android.webkit.WebView;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Instrumented benchmark, which compares the calls per second of the message channel
+ * (Android.postMessage) with the calls via the URL hash on an Android device.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MessageChannelBenchmark {
+
+    private static final int CHANNEL_CALLS = 10000;
+    private static final int HASH_CALLS = 120;
+
+    private static final String PAGE = "<html><head><script src=\"src/js/hybrid-app.js\"></script></head><body><script>"
+            + "function runChannel(n){ for (var i = 0; i < n; i++) Native.callNativeFunction('hit', i); }"
+            + "function runHash(n){ var i = 0; (function next(){ if (i < n) { Native.callNativeFunctionByHash('hitHash', i++); requestAnimationFrame(next); } })(); }"
+            + "Native.callNativeFunction('ready');"
+            + "</script></body></html>";
+
+    @SuppressWarnings("unused")
+    public static class Counter {
+        final AtomicInteger calls = new AtomicInteger();
+        volatile CountDownLatch latch = new CountDownLatch(1);
+        volatile long lastCall;
+
+        void ready() {
+            latch.countDown();
+        }
+
+        void hit(Integer value) {
+            count();
+        }
+
+        void hitHash(String value) {
+            count();
+        }
+
+        private void count() {
+            calls.incrementAndGet();
+            lastCall = SystemClock.elapsedRealtimeNanos();
+            latch.countDown();
+        }
+    }
+
+    @Test
+    public void messageChannel_isFasterThanUrlHash() throws Exception {
+        final Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        final Counter counter = new Counter();
+        final WebView[] webView = new WebView[1];
+
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            webView[0] = new WebView(context);
+            WebViewBridge bridge = new WebViewBridge(webView[0], context);
+            bridge.addCallableFunction(counter, "ready", "ready");
+            bridge.addCallableFunction(counter, "hit", "hit");
+            bridge.addCallableFunction(counter, "hitHash", "hitHash");
+            webView[0].loadDataWithBaseURL("file:///android_asset/", PAGE, "text/html", "UTF-8", null);
+        });
+        assertTrue("Page was not loaded", counter.latch.await(10, TimeUnit.SECONDS));
+
+        double channelCallsPerSecond = measure(webView[0], counter, "runChannel", CHANNEL_CALLS);
+        double hashCallsPerSecond = measure(webView[0], counter, "runHash", HASH_CALLS);
+
+        System.out.println("Message channel: " + Math.round(channelCallsPerSecond) + " calls/s, URL hash: " + Math.round(hashCallsPerSecond) + " calls/s");
+        assertTrue(channelCallsPerSecond > hashCallsPerSecond);
+    }
+
+    // Returns the delivered calls per second, lost calls (e.g. overwritten hashes) are not counted
+    private double measure(final WebView webView, Counter counter, final String function, final int calls) throws InterruptedException {
+        counter.calls.set(0);
+        counter.latch = new CountDownLatch(calls);
+
+        long start = SystemClock.elapsedRealtimeNanos();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> webView.evaluateJavascript(function + "(" + calls + ");", null));
+        counter.latch.await(30, TimeUnit.SECONDS);
+        long elapsed = counter.lastCall - start;
+
+        return counter.calls.get() / (elapsed / 1e9);
+    }
+}
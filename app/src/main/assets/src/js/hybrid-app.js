@@ -11,8 +11,30 @@ const Native = {
 
     getConnectivityStatus: () => { return Android.getConnectivityStatus(); },
     getCurrentLocation: () => { return Android.getCurrentLocation(); },
+    // Calls callback({latitude, longitude, accuracy, time, provider}) with every new fix, returns -1 without permission
+    watchLocation: (callback) => {
+        var watchId = Android.watchLocation();
+        if (watchId >= 0) Native._locationWatches[watchId] = callback;
+        return watchId;
+    },
+    clearWatch: (watchId) => {
+        delete Native._locationWatches[watchId];
+        Android.clearLocationWatch(watchId);
+    },
 
-    takePhoto: () => { return Android.takePhoto(); },
+    // Opens the camera app, the Promise is resolved with {id, url, thumbnailUrl, width, height} of the photo. The URLs
+    // work like any image URL (<img src>, fetch() for uploads), url + "?size=640" is a copy with at most 640 pixels.
+    takePhoto: (thumbnailSize) => {
+        var requestId = Native._asyncPageId + ":" + (Native._nextRequestId++);
+        var promise = new Promise((resolve, reject) => {
+            Native._pendingRequests[requestId] = { resolve: resolve, reject: reject, timer: null };
+        });
+        promise.requestId = requestId;
+
+        Android.takePhoto(requestId, thumbnailSize || 0);
+        return promise;
+    },
+    deletePhoto: (id) => { return Android.deletePhoto(id); },
 
     vibrate: (milliseconds) => { Android.vibrate(milliseconds); },
     vibrateShort: () => { Android.vibrate(100); },
@@ -20,6 +42,20 @@ const Native = {
     vibrateLong: () => { Android.vibrate(500); },
 
     nightModeEnabled: () => { return Android.nightModeEnabled(); },
+    // Calls listener(detail) for every event of the type: "connectivity" (e.g. "TYPE_WIFI"), "nightMode" (e.g.
+    // "UI_MODE_NIGHT_YES"), "capabilities" (the new Native.capabilities()) and "photoTaken" (the photo of a
+    // takePhoto() whose page was reloaded while the camera was open, e.g. by a rotation)
+    on: (type, listener) => { (Native._listeners[type] || (Native._listeners[type] = [])).push(listener); },
+    off: (type, listener) => {
+        var listeners = Native._listeners[type];
+        if (listeners) Native._listeners[type] = listeners.filter((other) => other !== listener);
+    },
+
+    // Camera, torch, vibrator, connectivity, night mode and granted permissions, read once and updated by the bridge
+    capabilities: () => {
+        if (!Native._capabilities) Native._capabilities = JSON.parse(Android.getCapabilities());
+        return Native._capabilities;
+    },
     setStatusBarColor: (colorCode) => { Android.setStatusBarColor(colorCode); },
 
     flashlight: (value) => { Android.flashlight(value); },
@@ -27,6 +63,55 @@ const Native = {
     writeFile: (name, content) => { Android.writeTextToInternalStorage(name, content); },
     readFile: (name) => { return Android.readTextFromInternalStorage(name); },
 
+    // Reads a large file in the background and passes it to onChunk(text) in chunks of about chunkSize bytes.
+    // Returns a Promise that is resolved after the last chunk.
+    readFileChunks: (name, onChunk, chunkSize) => {
+        var readerId = Android.openFileReader(name, chunkSize || 0);
+        if (readerId < 0) return Promise.reject(new Error("Could not open " + name));
+
+        var readNext = () => Native.callNativeFunctionAsync("readFileChunk", [readerId], 0).then((chunk) => {
+            if (chunk === null) {
+                Android.closeFileReader(readerId);
+                return;
+            }
+            onChunk(chunk);
+            return readNext();
+        }, (error) => {
+            Android.closeFileReader(readerId);
+            throw error;
+        });
+        return readNext();
+    },
+
+    // Key-value store for small values (e.g. settings). Writes are visible at once and stored on the disk
+    // shortly after, flush() returns a Promise that is resolved when all writes are stored (rejected if they could not be).
+    store: {
+        get: (key) => { return Android.storeGet(key); },
+        put: (key, value) => { return Android.storePut(key, String(value)); },
+        delete: (key) => { return Android.storeDelete(key); },
+        // operations: [["put", key, value], ["delete", key], ...], stored together or not at all
+        batch: (operations) => { return Android.storeBatch(JSON.stringify(operations)); },
+        flush: () => {
+            return Native.callNativeFunctionAsync("storeFlush").then((stored) => {
+                if (!stored) throw new Error("Could not store the writes");
+            });
+        },
+    },
+
+    // Calls, errors and latency percentiles in microseconds: "js" measured around the Native functions in the page
+    // (including the way to Java and back), "native" measured in Java around the callable and asynchronous functions
+    metrics: () => {
+        var js = {};
+        Object.keys(Native._metrics).sort().forEach((name) => { js[name] = Native._metrics[name].snapshot(); });
+        return { js: js, native: JSON.parse(Android.getMetricsSnapshot()) };
+    },
+    resetMetrics: () => { Native._metrics = {}; },
+
+    // Counters of the response cache, see WebViewBridge.enableResponseCache()
+    cacheStatistics: () => { return JSON.parse(Android.getResponseCacheStatistics()); },
+    // Milliseconds since the start of the app, e.g. {"webViewCreated": 412, "bridgeCreated": 430, "pageVisible": 655, ...}
+    startupTimings: () => { return JSON.parse(Android.getStartupTimings()); },
+
     permissionGranted: (permissionName) => { return Android.checkPermission(permissionName); },
     permissionGrantedCamera: () => { return Native.permissionGranted("android.permission.CAMERA"); },
     permissionGrantedInternet: () => { return Native.permissionGranted("android.permission.INTERNET"); },
@@ -37,7 +122,20 @@ const Native = {
     permissionGrantedWriteExternalStorage: () => { return Native.permissionGranted("android.permission.WRITE_EXTERNAL_STORAGE"); },
     permissionGrantedReadExternalStorage: () => { return Native.permissionGranted("android.permission.READ_EXTERNAL_STORAGE"); },
     permissionGrantedVibrate: () => { return Native.permissionGranted("android.permission.VIBRATE"); },
-    requestPermission: (permission, requestCode) => { Android.requestPermission(permission, requestCode); },
+    // Shows one permission dialog for all permissions that are not granted yet (requests of the same permission
+    // share the dialog), the Promise is resolved with {"<permission>": granted, ...} after the answer
+    requestPermissions: (permissions) => {
+        var requestId = Native._asyncPageId + ":" + (Native._nextRequestId++);
+        var promise = new Promise((resolve, reject) => {
+            Native._pendingRequests[requestId] = { resolve: resolve, reject: reject, timer: null };
+        });
+        promise.requestId = requestId;
+
+        Android.requestPermissions(requestId, JSON.stringify(Array.isArray(permissions) ? permissions : [permissions]));
+        return promise;
+    },
+    // Resolved with true if the permission was granted
+    requestPermission: (permission) => { return Native.requestPermissions([permission]).then((results) => results[permission]); },
     requestPermissionCamera: () => { Native.requestPermission('android.permission.CAMERA'); },
     requestPermissionAccessFineLocation: () => { Native.requestPermission('android.permission.ACCESS_FINE_LOCATION'); },
     requestPermissionAccessCoarseLocation: () => { Native.requestPermission('android.permission.ACCESS_COARSE_LOCATION'); },
@@ -53,8 +151,61 @@ const Native = {
     loadData: (newData) => { Native.callNativeFunction("loadData", newData) },
     setPageNotFound: (newUrl) => { Native.callNativeFunction("setPageNotFoundUrl", newUrl); },
 
-    callNativeFunction: (methodIdentifier) => { window.location.hash = methodIdentifier; },
+    // Calls a function registered with addCallableFunction(). All calls of one task are sent as one message.
     callNativeFunction: (methodIdentifier, parameters) => {
+        var callId = Native._nextCallId++;
+        var args = (parameters === undefined) ? [] : (Array.isArray(parameters) ? parameters : [parameters]);
+
+        Native._pendingCalls.push([callId, methodIdentifier, args]);
+        if (Native._pendingCalls.length === 1) Promise.resolve().then(Native._flushCalls);
+        return callId;
+    },
+
+    // Calls a function of the JavaScript-Interface (e.g. "getCurrentLocation") or a callable function in the
+    // background and returns a Promise. The call is cancelled when it takes longer than timeout milliseconds.
+    callNativeFunctionAsync: (methodIdentifier, parameters, timeout) => {
+        var requestId = Native._asyncPageId + ":" + (Native._nextRequestId++);
+        var args = (parameters === undefined) ? [] : (Array.isArray(parameters) ? parameters : [parameters]);
+        if (timeout === undefined) timeout = Native.asyncTimeout;
+
+        var promise = new Promise((resolve, reject) => {
+            var timer = (timeout > 0) ? setTimeout(() => Native.cancelAsync(requestId, "Timeout after " + timeout + " ms"), timeout) : null;
+            Native._pendingRequests[requestId] = { resolve: resolve, reject: reject, timer: timer };
+        });
+        promise.requestId = requestId;
+
+        Android.callAsync(requestId, methodIdentifier, JSON.stringify(args));
+        return promise;
+    },
+
+    // Rejects a pending promise of callNativeFunctionAsync() and stops the native call
+    cancelAsync: (requestId, reason) => {
+        var request = Native._pendingRequests[requestId];
+        if (!request) return;
+
+        delete Native._pendingRequests[requestId];
+        clearTimeout(request.timer);
+        Android.cancelAsync(requestId);
+        request.reject(new Error(reason || "Cancelled"));
+    },
+
+    // Default timeout in milliseconds for callNativeFunctionAsync(), 0 waits without limit
+    asyncTimeout: 30000,
+
+    // Versions of the blocking functions that return a Promise instead of blocking the page
+    async: {
+        getCurrentLocation: () => { return Native.callNativeFunctionAsync("getCurrentLocation"); },
+        takePhoto: (thumbnailSize) => { return Native.takePhoto(thumbnailSize); },
+        getConnectivityStatus: () => { return Native.callNativeFunctionAsync("getConnectivityStatus"); },
+        writeFile: (name, content) => { return Native.callNativeFunctionAsync("writeTextToInternalStorage", [name, content]); },
+        readFile: (name) => { return Native.callNativeFunctionAsync("readTextFromInternalStorage", [name]); },
+    },
+
+    // Stubs of the Java methods annotated with @BridgeMethod, e.g. Native.methods.keyword(...) and Native.methods.keyword.async(...)
+    methods: {},
+
+    // Old way of calling native functions via the URL hash (one call per navigation)
+    callNativeFunctionByHash: (methodIdentifier, parameters) => {
         var tempUrl = methodIdentifier + "=";
 
         if(Array.isArray(parameters)){
@@ -66,4 +217,123 @@ const Native = {
 
         window.location.hash = tempUrl;
     },
-}
\ No newline at end of file
+
+    _asyncPageId: Date.now().toString(36) + Math.random().toString(36).slice(2),
+    _nextRequestId: 1,
+    _pendingRequests: {},
+    _settleAsync: (settledCalls) => {
+        for (var i = 0; i < settledCalls.length; i++){
+            var request = Native._pendingRequests[settledCalls[i][0]];
+            if (!request) continue;
+
+            delete Native._pendingRequests[settledCalls[i][0]];
+            clearTimeout(request.timer);
+            if (settledCalls[i][1]) request.resolve(settledCalls[i][2]);
+            else request.reject(new Error(settledCalls[i][2]));
+        }
+    },
+
+    // Histograms with the same buckets as BridgeMetrics in Java: 8 linear buckets per power of two of microseconds
+    _metrics: {},
+    _record: (name, micros, failed) => {
+        var histogram = Native._metrics[name];
+        if (!histogram) {
+            histogram = Native._metrics[name] = {
+                buckets: new Float64Array(312), count: 0, errors: 0, total: 0, max: 0,
+                percentile: (percentile) => {
+                    var rank = Math.max(1, Math.ceil(histogram.count * percentile / 100)), seen = 0;
+                    for (var i = 0; i < 312; i++) {
+                        seen += histogram.buckets[i];
+                        if (seen < rank) continue;
+                        if (i < 8) return Math.min(i, histogram.max);
+                        var exponent = Math.floor(i / 8) + 2;
+                        return Math.min((8 + i % 8 + 1) * Math.pow(2, exponent - 3) - 1, histogram.max);
+                    }
+                    return histogram.max;
+                },
+                snapshot: () => ({
+                    count: histogram.count, errors: histogram.errors,
+                    meanMicros: histogram.count ? Math.floor(histogram.total / histogram.count) : 0,
+                    p50Micros: histogram.percentile(50), p90Micros: histogram.percentile(90),
+                    p99Micros: histogram.percentile(99), maxMicros: histogram.max,
+                }),
+            };
+        }
+
+        micros = Math.max(0, Math.round(micros));
+        var index = micros;
+        if (micros >= 8) {
+            var exponent = Math.min(Math.floor(Math.log2(micros)), 40);
+            index = (exponent - 2) * 8 + Math.floor(Math.min(micros, Math.pow(2, 41) - 1) / Math.pow(2, exponent - 3)) % 8;
+        }
+        histogram.buckets[index]++;
+        histogram.count++;
+        histogram.total += micros;
+        histogram.max = Math.max(histogram.max, micros);
+        if (failed) histogram.errors++;
+    },
+
+    // Wraps the functions of the object, so every call is recorded (Promises when they are settled)
+    _instrument: (object, prefix) => {
+        Object.keys(object).forEach((name) => {
+            var value = object[name];
+            if (name.charAt(0) === "_" || name === "methods" || name === "metrics" || name === "resetMetrics") return;
+            if (value && typeof value === "object") return Native._instrument(value, prefix + name + ".");
+            if (typeof value !== "function") return;
+
+            object[name] = function () {
+                var start = performance.now();
+                var done = (failed) => Native._record(prefix + name, (performance.now() - start) * 1000, failed);
+                try {
+                    var result = value.apply(this, arguments);
+                    if (result && typeof result.then === "function") result.then(() => done(false), () => done(true));
+                    else done(false);
+                    return result;
+                } catch (error) {
+                    done(true);
+                    throw error;
+                }
+            };
+        });
+    },
+
+    _capabilities: null,
+
+    // Events of the bridge, several events of a burst arrive together as [[type, detail], ...]
+    _listeners: {},
+    _dispatchEvents: (events) => {
+        for (var i = 0; i < events.length; i++) {
+            var type = events[i][0], detail = events[i][1];
+            if (type === "capabilities") Native._capabilities = detail;
+            (Native._listeners[type] || []).slice().forEach((listener) => {
+                try {
+                    listener(detail);
+                } catch (error) {
+                    console.error(error);
+                }
+            });
+        }
+    },
+
+    // Fixes of the watches, batched by the bridge as [[watchId, fix], ...]
+    _locationWatches: {},
+    _locationUpdates: (updates) => {
+        for (var i = 0; i < updates.length; i++) {
+            var callback = Native._locationWatches[updates[i][0]];
+            if (callback) callback(updates[i][1]);
+        }
+    },
+
+    _nextCallId: 1,
+    _pendingCalls: [],
+    _flushCalls: () => {
+        var calls = Native._pendingCalls;
+        Native._pendingCalls = [];
+        Android.postMessage(JSON.stringify(calls));
+    },
+}
+
+Native._instrument(Native, "");
+
+// The stubs are generated at compile time, reading them once per page keeps them in sync with the Java code
+if (window.Android && Android.getBridgeMethodScript) new Function("n", Android.getBridgeMethodScript())(Native);
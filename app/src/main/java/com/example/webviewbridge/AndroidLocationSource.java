@@ -0,0 +1,92 @@
+package com.example.webviewbridge;
+
+import android.location.Location;
+import android.location.LocationListener;
+import android.location.LocationManager;
+import android.os.Bundle;
+import android.os.Looper;
+
+import java.util.List;
+
+// LocationTracker.Source of the LocationManager ----------------------------------------------------
+//
+// One LocationListener for GPS and the network provider, registered on the main looper. Disabled
+// providers are registered as well, so the tracker hears when they are turned on. Missing permissions
+// are reported on the error stream, the tracker keeps its cached fix.
+
+class AndroidLocationSource implements LocationTracker.Source {
+    private static final String[] PROVIDERS = {LocationManager.GPS_PROVIDER, LocationManager.NETWORK_PROVIDER};
+
+    private final LocationManager locationManager;
+    private LocationListener locationListener;
+
+    AndroidLocationSource(LocationManager locationManager){
+        this.locationManager = locationManager;
+    }
+
+    @Override
+    public synchronized boolean start(long minIntervalMillis, float minDistanceMeters, final LocationTracker.SourceListener listener){
+        stop();
+        if (this.locationManager == null) return false;
+
+        this.locationListener = new LocationListener() {
+            @Override
+            public void onLocationChanged(Location location) {
+                if (location != null) listener.onFix(toFix(location));
+            }
+
+            @Override
+            public void onProviderDisabled(String provider) {}
+
+            @Override
+            public void onProviderEnabled(String provider) {
+                listener.onProviderEnabled(provider);
+            }
+
+            @Override
+            public void onStatusChanged(String provider, int status, Bundle extras) {}
+        };
+
+        boolean enabled = false;
+        List<String> existingProviders = this.locationManager.getAllProviders();
+        for (String provider : PROVIDERS) {
+            // E.g. devices without GPS
+            if (!existingProviders.contains(provider)) continue;
+            try {
+                this.locationManager.requestLocationUpdates(provider, minIntervalMillis, minDistanceMeters, this.locationListener, Looper.getMainLooper());
+                enabled |= this.locationManager.isProviderEnabled(provider);
+            } catch (SecurityException | IllegalArgumentException e) {
+                System.err.println("An error occurred while requesting the location of " + provider + ": " + e);
+            }
+        }
+        return enabled;
+    }
+
+    @Override
+    public synchronized void stop(){
+        if (this.locationListener == null) return;
+
+        this.locationManager.removeUpdates(this.locationListener);
+        this.locationListener = null;
+    }
+
+    @Override
+    public LocationTracker.Fix getLastKnownFix(){
+        if (this.locationManager == null) return null;
+
+        Location newest = null;
+        for (String provider : PROVIDERS) {
+            try {
+                Location location = this.locationManager.getLastKnownLocation(provider);
+                if (location != null && (newest == null || location.getTime() > newest.getTime())) newest = location;
+            } catch (SecurityException | IllegalArgumentException e) {
+                // Without permission or provider there is no last known location
+            }
+        }
+        return (newest != null) ? toFix(newest) : null;
+    }
+
+    private static LocationTracker.Fix toFix(Location location){
+        return new LocationTracker.Fix(location.getLatitude(), location.getLongitude(), location.getAccuracy(), location.getTime(), location.getProvider());
+    }
+}
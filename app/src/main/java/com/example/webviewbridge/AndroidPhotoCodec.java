@@ -0,0 +1,72 @@
+package com.example.webviewbridge;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+// PhotoStore.Codec of BitmapFactory ----------------------------------------------------------------
+//
+// Only the bounds of the photo are read for its size. Thumbnails are decoded with inSampleSize (a
+// 12 megapixel photo needs 48 MB as full bitmap, with a sample size of 8 less than 1 MB), scaled to
+// the exact size and turned upright as the EXIF orientation of the camera app says.
+
+class AndroidPhotoCodec implements PhotoStore.Codec {
+    private static final int JPEG_QUALITY = 85;
+
+    @Override
+    public int[] readSize(File photo) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(photo.getPath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) throw new IOException("Could not read the size of " + photo);
+
+        int rotation = readRotation(photo);
+        return (rotation == 90 || rotation == 270) ? new int[] {options.outHeight, options.outWidth} : new int[] {options.outWidth, options.outHeight};
+    }
+
+    @Override
+    public void writeThumbnail(File photo, File thumbnail, int maxSize) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(photo.getPath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) throw new IOException("Could not decode " + photo);
+
+        options.inSampleSize = PhotoStore.getSampleSize(options.outWidth, options.outHeight, maxSize);
+        options.inJustDecodeBounds = false;
+        Bitmap bitmap = BitmapFactory.decodeFile(photo.getPath(), options);
+        if (bitmap == null) throw new IOException("Could not decode " + photo);
+
+        Matrix matrix = new Matrix();
+        float scale = Math.min(1f, (float) maxSize / Math.max(bitmap.getWidth(), bitmap.getHeight()));
+        matrix.postScale(scale, scale);
+        matrix.postRotate(readRotation(photo));
+
+        Bitmap scaledBitmap = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+        try (FileOutputStream outputStream = new FileOutputStream(thumbnail)) {
+            if (!scaledBitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, outputStream))
+                throw new IOException("Could not encode " + thumbnail);
+        } finally {
+            if (scaledBitmap != bitmap) scaledBitmap.recycle();
+            bitmap.recycle();
+        }
+    }
+
+    private static int readRotation(File photo){
+        try {
+            switch (new ExifInterface(photo.getPath()).getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL)) {
+                case ExifInterface.ORIENTATION_ROTATE_90: return 90;
+                case ExifInterface.ORIENTATION_ROTATE_180: return 180;
+                case ExifInterface.ORIENTATION_ROTATE_270: return 270;
+                default: return 0;
+            }
+        } catch (IOException e) {
+            // Photos without EXIF data are upright
+            return 0;
+        }
+    }
+}
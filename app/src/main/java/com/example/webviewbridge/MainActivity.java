@@ -1,6 +1,11 @@
 package com.example.webviewbridge;
 
+import android.content.Intent;
+import android.content.res.Configuration;
 import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.example.webviewbridge.databinding.ActivityMainBinding;
@@ -17,8 +22,32 @@ public class MainActivity extends AppCompatActivity {
         setContentView(binding.getRoot());
 
         // Own code can be added here
-        js_con = new WebViewBridge(findViewById(R.id.webView1), this);
-        js_con.loadUrl("file:///android_asset/index.html");
+        // The bridge was prepared by WebViewBridgeApplication, its WebView replaces the one of the layout
+        js_con = ((WebViewBridgeApplication) getApplication()).getBridgePool().acquire(this, findViewById(R.id.webView1));
+    }
+
+    @Override
+    protected void onDestroy() {
+        ((WebViewBridgeApplication) getApplication()).getBridgePool().release(js_con);
+        super.onDestroy();
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, @NonNull String[] permissions, @NonNull int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        js_con.onRequestPermissionsResult(requestCode, permissions, grantResults);
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        js_con.onActivityResult(requestCode, resultCode, data);
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        js_con.onConfigurationChanged(newConfig);
     }
 
     @Override
@@ -7,22 +7,28 @@ import android.app.AlertDialog;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
 import android.app.PendingIntent;
+import android.content.ContentResolver;
+import android.content.ContentValues;
 import android.content.Context;
 import android.content.Intent;
+import android.content.MutableContextWrapper;
 import android.content.pm.ActivityInfo;
 import android.content.pm.PackageManager;
 import android.content.res.Configuration;
+import android.graphics.Bitmap;
 import android.graphics.Color;
 import android.hardware.camera2.CameraAccessException;
+import android.hardware.camera2.CameraCharacteristics;
 import android.hardware.camera2.CameraManager;
-import android.location.Location;
-import android.location.LocationListener;
+
 import android.location.LocationManager;
 import android.net.Uri;
 import android.os.Build;
-import android.os.Bundle;
+
 import android.os.Environment;
-import android.os.StrictMode;
+import android.os.Looper;
+
+import android.os.SystemClock;
 import android.os.VibrationEffect;
 import android.os.Vibrator;
 import android.provider.MediaStore;
@@ -30,32 +36,140 @@ import android.webkit.*;
 import android.widget.Toast;
 
 import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
 import android.net.NetworkInfo;
+import android.net.NetworkRequest;
 
 import androidx.core.app.ActivityCompat;
 import androidx.core.app.NotificationCompat;
 import androidx.core.content.ContextCompat;
+import androidx.core.content.FileProvider;
+
+import com.example.webviewbridge.annotations.BridgeMethods;
 
-import java.io.BufferedReader;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.InputStreamReader;
-import java.text.SimpleDateFormat;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.Locale;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-
-import static android.content.Context.MODE_PRIVATE;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class WebViewBridge {
+    // Virtual https origin of the assets folder, e.g. loadUrl(WebViewBridge.ASSET_ORIGIN + "index.html")
+    public static final String ASSET_ORIGIN = AssetServer.ORIGIN;
+    // getCurrentLocation() refreshes fixes that are older
+    private static final long CURRENT_LOCATION_MAX_AGE_MILLIS = 30 * 1000;
+    // Permissions reported by Native.capabilities()
+    private static final String[] CAPABILITY_PERMISSIONS = {Manifest.permission.CAMERA, Manifest.permission.ACCESS_FINE_LOCATION,
+            Manifest.permission.ACCESS_COARSE_LOCATION, Manifest.permission.POST_NOTIFICATIONS, Manifest.permission.READ_MEDIA_IMAGES,
+            Manifest.permission.READ_EXTERNAL_STORAGE, Manifest.permission.WRITE_EXTERNAL_STORAGE};
+    private static final String NOTIFICATION_CHANNEL_ID = "NativeWebApp_ID";
+    // Functions that need a permission wait this long for the answer of the permission dialog
+    private static final long PERMISSION_TIMEOUT_MILLIS = 60 * 1000;
+    private static final String[] LOCATION_PERMISSIONS = {Manifest.permission.ACCESS_FINE_LOCATION, Manifest.permission.ACCESS_COARSE_LOCATION};
+    // Shared by all bridges, see getInterfaceFunctions()
+    private static Map<String, CallableFunction> interfaceFunctions;
+    // Request code of the camera app in onActivityResult(), other codes belong to the app
+    static final int TAKE_PHOTO_REQUEST_CODE = 0x5043;
+    // Authority of the FileProvider of the photos (see AndroidManifest.xml) after the package name
+    private static final String PHOTO_PROVIDER_SUFFIX = ".photos";
+
     final WebView webView;
-    final HashMap<String, CallableFunction> callableFunctions;
-    private String currentUrl = "", pageNotFoundUrl = "", lastCallbackValue = "";
-    final Context context;
+    private volatile String currentUrl = "", pageNotFoundUrl = "";
+    // The Activity of the WebView, a pooled bridge gets it with attachTo()
+    volatile Context context;
+    // The WebView and the Context as seen by the parts of the bridge that don't depend on Android
+    final BridgeHost host;
+    final BridgeCore core;
+    final AssetServer assetServer;
+    final SystemServices systemServices;
+    // Permission dialogs of the bridge, see onRequestPermissionsResult()
+    final PermissionCoordinator permissions;
+    // Snapshot of Native.capabilities(), read at startup and by updateCapabilities()
+    private final DeviceCapabilities capabilities = new DeviceCapabilities();
+    // Camera of flashlight(), looked up with the first use
+    private String torchCameraId;
+    private boolean torchCameraIdResolved = false;
+    private final AtomicBoolean notificationChannelCreated = new AtomicBoolean();
+    // Last connectivity reported by the NetworkCallback, null until the first report
+    private volatile String connectivityStatus;
+    private ConnectivityManager.NetworkCallback networkCallback;
+    private volatile OfflineResponseCache responseCache;
+    // Last rendered state of the nodes of replaceNodeById(), by the id of the replaced element
+    private final HashMap<String, HtmlNodeDiff.Snapshot> renderedNodes = new HashMap<>();
+    // Open chunked reads of Native.readFileChunks(), closed when the page changes
+    private final ConcurrentHashMap<Integer, FileStorage.ChunkReader> fileReaders = new ConcurrentHashMap<>();
+    private final AtomicInteger nextFileReaderId = new AtomicInteger();
+    private volatile long memoryMappedReadThreshold = 1024 * 1024;
+    // Key-value store of Native.store, opened with the first access and shared with the other bridges of the process
+    private BridgeStore store;
+    // Shared location listener of getCurrentLocation() and Native.watchLocation(), created with the first use
+    private LocationTracker locationTracker;
+    // Watches of the current page and their fixes that were not passed to JavaScript yet
+    private final Set<Integer> locationWatchIds = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+    private final ConcurrentLinkedQueue<JSONArray> pendingLocationUpdates = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean locationFlushScheduled = new AtomicBoolean();
+    private final MyJavaScriptInterface javaScriptInterface;
+    // When the WebView was created, the page became visible etc., see getStartupTimings()
+    final StartupTimings startupTimings;
+    // Photos of Native.takePhoto(), served over the asset origin
+    final PhotoStore photoStore;
+    // Reads the new photos and creates their first thumbnail, one at a time and off the UI thread
+    private final ExecutorService photoExecutor = Executors.newSingleThreadExecutor();
+    // Photo the camera app is taking, until onActivityResult()
+    private final AtomicReference<PendingPhoto> pendingPhoto = new AtomicReference<>();
+    private volatile boolean savePhotosToGallery = true;
+
+    // Calls that need an Activity, see runWithActivity()
+    interface ActivityTask {
+        void run(Activity activity);
+    }
+
+    // UI thread only: calls of a bridge without Activity that wait for attachTo(), and the tasks that wait
+    // until the current page has finished loading
+    private final ArrayDeque<ActivityTask> activityTasks = new ArrayDeque<>();
+    private final ArrayList<Runnable> pageFinishedTasks = new ArrayList<>();
+    private boolean pageFinished = false;
+
+    // The request id is null for a photo that an earlier bridge (e.g. of a recreated Activity) has requested
+    private static final class PendingPhoto {
+        final String requestId;
+        final File file;
+        final int thumbnailSize;
+
+        PendingPhoto(String requestId, File file, int thumbnailSize){
+            this.requestId = requestId;
+            this.file = file;
+            this.thumbnailSize = thumbnailSize;
+        }
+    }
 
     // Enum "NodePosition" is used to determine the position where a node should be added in HTML
     @SuppressWarnings("unused")
@@ -64,20 +178,93 @@ public class WebViewBridge {
     }
 
     // Gets an WebView and the App-Context and creates the WebViewBridge object
-    @SuppressLint("SetJavaScriptEnabled")
     WebViewBridge(WebView wv, Context con){
+        this(wv, con, new CallableRegistry());
+    }
+
+    // Bridges of several WebViews (tabs, one per fragment) share the callable functions of the registry
+    WebViewBridge(WebView wv, Context con, CallableRegistry callableFunctions){
+        this(wv, con, newStartupTimings(), callableFunctions);
+    }
+
+    // The timings may already contain the creation of the WebView, see WebViewBridgePool
+    @SuppressLint("SetJavaScriptEnabled")
+    WebViewBridge(WebView wv, Context con, StartupTimings startupTimings, CallableRegistry callableFunctions){
+        this.startupTimings = startupTimings;
         this.webView = wv;
         this.context = con;
-        this.callableFunctions = new HashMap<>();
+        this.host = new WebViewHost(wv, con);
+        this.systemServices = new SystemServices(this.host);
+        this.permissions = new PermissionCoordinator(new PermissionCoordinator.Platform() {
+            @Override
+            public boolean checkPermission(String permission) {
+                return ContextCompat.checkSelfPermission(context, permission) == PackageManager.PERMISSION_GRANTED;
+            }
+
+            @Override
+            public void requestPermissions(String[] permissions, int requestCode) {
+                runWithActivity(activity -> ActivityCompat.requestPermissions(activity, permissions, requestCode));
+            }
+        });
+
+        // The JavaScript-Interface provides the functions that can also be called asynchronously
+        this.javaScriptInterface = new MyJavaScriptInterface(con);
+        this.core = new BridgeCore(this.host, getInterfaceFunctions(), callableFunctions);
+        this.core.putContextObject(MyJavaScriptInterface.class, this.javaScriptInterface);
+        this.core.putContextObject(WebViewBridge.class, this);
+        this.assetServer = new AssetServer(this.host::openAsset);
+        this.photoStore = new PhotoStore(this.host.getFilesDir(), this.host.getCacheDir(), new AndroidPhotoCodec());
         this.webView.setWebViewClient(new WebViewClient() {
+            @Override
+            public void onPageStarted(WebView view, String url, Bitmap favicon) {
+                startupTimings.mark("pageStarted");
+                pageFinished = false;
+                core.onPageStarted();
+                synchronized (renderedNodes) {
+                    renderedNodes.clear();
+                }
+                closeFileReaders();
+                clearLocationWatches();
+            }
+
             @Override
             public void onPageFinished(WebView view, String url) {
+                startupTimings.mark("pageFinished");
+                core.onPageFinished();
+                pageFinished = true;
+                ArrayList<Runnable> tasks = new ArrayList<>(pageFinishedTasks);
+                pageFinishedTasks.clear();
+                for (Runnable task : tasks) task.run();
+
                 if (url.contains("#")) {
                     currentUrl = url.split("#")[1];
-                    splitUrlToCallMethod();
+                    core.dispatchHashCall(currentUrl);
                 }
             }
 
+            // The first content of the page is drawn with the next frame (Android 6+)
+            @Override
+            public void onPageCommitVisible(WebView view, String url) {
+                startupTimings.mark("pageVisible");
+            }
+
+            // Runs on a background thread of the WebView
+            @Override
+            public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+                Uri url = request.getUrl();
+                String assetPath = AssetServer.getAssetPath(url.getScheme(), url.getHost(), url.getPath());
+                if (assetPath != null) return createAssetResponse(assetPath);
+
+                String photoId = PhotoStore.getRequestedId(url.getScheme(), url.getHost(), url.getPath());
+                if (photoId != null) return createPhotoResponse(photoId, url.getQueryParameter("size"));
+
+                OfflineResponseCache cache = responseCache;
+                if (cache != null && "GET".equals(request.getMethod()) && cache.accepts(url.toString()))
+                    return createCachedResponse(cache, url.toString(), request.getRequestHeaders());
+
+                return super.shouldInterceptRequest(view, request);
+            }
+
             @Override
             public void onReceivedError (WebView view, WebResourceRequest request, WebResourceError error) {
                 super.onReceivedError(view, request, error);
@@ -90,30 +277,220 @@ public class WebViewBridge {
 
         setJavaScriptEnabled(true);
 
-        // Adds functions to the callable functions, so they can be accessed from JavaScript
-        this.addCallableFunction(this, "loadUrl", "loadUrl", new Object[] {"String"});
-        this.addCallableFunction(this, "loadData", "loadData", new Object[] {"String"});
-        this.addCallableFunction(this, "setPageNotFoundUrl", "setPageNotFoundUrl", new Object[] {"String"});
+        // Adds functions to the callable functions, so they can be accessed from JavaScript. They run on the
+        // bridge of the calling page, so a shared registry needs them only once.
+        for (String builtInFunction : new String[] {"loadUrl", "loadData", "setPageNotFoundUrl"})
+            this.core.callableFunctions.putIfAbsent(builtInFunction, new CallableFunction(WebViewBridge.class, builtInFunction, builtInFunction, new Object[] {"String"}));
 
         // Adds an JavaScript-Interface to the WebView (access functions from JavaScript)
-        webView.addJavascriptInterface(new MyJavaScriptInterface(con), "Android");
+        webView.addJavascriptInterface(this.javaScriptInterface, "Android");
+
+        // Native.capabilities() is ready before the first page asks for it
+        runOnUiThread(this::updateCapabilities);
+        registerNetworkCallback();
+        this.startupTimings.mark("bridgeCreated");
+    }
+
+    // Timings since the start of the process (Android 7+), otherwise since the creation of the timings
+    @SuppressLint("ObsoleteSdkInt")
+    static StartupTimings newStartupTimings(){
+        long originMillis = (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) ? android.os.Process.getStartElapsedRealtime() : SystemClock.elapsedRealtime();
+        return new StartupTimings(SystemClock::elapsedRealtime, originMillis);
+    }
+
+    // Moves the bridge to the Activity that shows its WebView, e.g. a bridge of the WebViewBridgePool.
+    // Until then dialogs, permission requests and other functions that need an Activity are not available.
+    @SuppressWarnings("unused")
+    public void attachTo(Activity activity){
+        Context webViewContext = this.webView.getContext();
+        if (webViewContext instanceof MutableContextWrapper) ((MutableContextWrapper) webViewContext).setBaseContext(activity);
+        this.context = activity;
+        this.javaScriptInterface.context = activity;
+        this.startupTimings.mark("attached");
+        for (ActivityTask task; (task = this.activityTasks.poll()) != null; ) task.run(activity);
+    }
+
+    // Runs the task on the UI thread with the Activity of the bridge. A bridge without one (see WebViewBridgePool)
+    // keeps the task until attachTo(), so e.g. the dialogs of a page loaded in advance are shown then.
+    void runWithActivity(ActivityTask task){
+        runOnUiThread(() -> {
+            Context current = this.context;
+            if (current instanceof Activity) task.run((Activity) current);
+            else this.activityTasks.add(task);
+        });
+    }
+
+    // Runs the task on the UI thread when the current page has finished loading, at once if it already has.
+    // Must be called on the UI thread.
+    void runWhenPageFinished(Runnable task){
+        if (this.pageFinished) task.run();
+        else this.pageFinishedTasks.add(task);
+    }
+
+    // Milliseconds since the start of the process: webViewCreated (pooled bridges), bridgeCreated, pageStarted,
+    // pageVisible (first paint of the page, Android 6+), pageFinished and attached (pooled bridges)
+    @SuppressWarnings("unused")
+    public Map<String, Long> getStartupTimings(){
+        return this.startupTimings.getSnapshot();
+    }
+
+    // Records an own point of the startup, e.g. markStartup("dataLoaded")
+    @SuppressWarnings("unused")
+    public void markStartup(String name){
+        this.startupTimings.mark(name);
     }
 
+    // Returns the bridge whose page made the call of the running callable function, e.g. to answer the
+    // page that called a function of a shared registry. Null outside of callable functions.
+    @SuppressWarnings("unused")
+    public static WebViewBridge getCallingBridge(){
+        return BridgeCore.getCallingContextObject(WebViewBridge.class);
+    }
+
+    // The functions of the JavaScript-Interface that can also be called asynchronously. They are created
+    // once and call the interface of the calling bridge, so every further bridge doesn't need own ones.
+    private static synchronized Map<String, CallableFunction> getInterfaceFunctions(){
+        if (interfaceFunctions != null) return interfaceFunctions;
+
+        Map<String, CallableFunction> functions = new HashMap<>();
+        for (Method method : MyJavaScriptInterface.class.getDeclaredMethods()) {
+            if (method.isAnnotationPresent(JavascriptInterface.class) && !method.isAnnotationPresent(SynchronousOnly.class))
+                functions.put(method.getName(), new CallableFunction(MyJavaScriptInterface.class, method.getName(), method.getName(), method.getParameterTypes()));
+        }
+        return interfaceFunctions = Collections.unmodifiableMap(functions);
+    }
+
+    // Always a 200 response: WebResourceResponse rejects the status codes 300-399, so there is no 304 for
+    // If-None-Match. The asset comes from the cache of the AssetServer, the ETag is only informative.
+    private WebResourceResponse createAssetResponse(String assetPath){
+        AssetServer.Asset asset;
+        try {
+            asset = this.assetServer.get(assetPath);
+        } catch (IOException e) {
+            System.err.println("An error occurred while loading the asset " + assetPath + ": " + e);
+            return new WebResourceResponse("text/plain", "UTF-8", 500, "Internal Server Error", new HashMap<String, String>(), null);
+        }
+        if (asset == null)
+            return new WebResourceResponse("text/plain", "UTF-8", 404, "Not Found", new HashMap<String, String>(), null);
+
+        Map<String, String> headers = new HashMap<>();
+        headers.put("ETag", asset.eTag);
+        headers.put("Cache-Control", "no-cache");
+        headers.put("Content-Length", String.valueOf(asset.data.length));
+        return new WebResourceResponse(asset.mimeType, asset.encoding, 200, "OK", headers, new ByteArrayInputStream(asset.data));
+    }
+
+    // The photos never change, so the WebView can keep them in its cache. With a size the response is a thumbnail.
+    private WebResourceResponse createPhotoResponse(String id, String size){
+        File file;
+        try {
+            file = (size != null) ? this.photoStore.getThumbnail(id, Integer.parseInt(size)) : this.photoStore.getPhoto(id);
+        } catch (NumberFormatException e) {
+            return new WebResourceResponse("text/plain", "UTF-8", 400, "Bad Request", new HashMap<String, String>(), null);
+        } catch (IOException e) {
+            System.err.println("An error occurred while loading the photo " + id + ": " + e);
+            return new WebResourceResponse("text/plain", "UTF-8", 500, "Internal Server Error", new HashMap<String, String>(), null);
+        }
+
+        try {
+            if (file != null) {
+                Map<String, String> headers = new HashMap<>();
+                headers.put("Cache-Control", "private, max-age=31536000");
+                headers.put("Content-Length", String.valueOf(file.length()));
+                return new WebResourceResponse("image/jpeg", null, 200, "OK", headers, new FileInputStream(file));
+            }
+        } catch (FileNotFoundException e) {
+            // The photo was deleted in the meantime
+        }
+        return new WebResourceResponse("text/plain", "UTF-8", 404, "Not Found", new HashMap<String, String>(), null);
+    }
+
+    // Returns null if neither the cache nor the network has a response, the WebView loads it itself then
+    private WebResourceResponse createCachedResponse(OfflineResponseCache cache, String url, Map<String, String> requestHeaders){
+        Map<String, String> headers = new HashMap<>(requestHeaders);
+        String cookies = CookieManager.getInstance().getCookie(url);
+        if (cookies != null) headers.put("Cookie", cookies);
+
+        // WebResourceResponse rejects the status codes 300-399, the WebView follows such redirects itself
+        OfflineResponseCache.Response response = cache.get(url, headers);
+        if (response == null || (response.statusCode >= 300 && response.statusCode < 400)) return null;
+
+        return new WebResourceResponse(response.mimeType, response.encoding, response.statusCode, response.reasonPhrase,
+                response.headers, new ByteArrayInputStream(response.body));
+    }
+
+    // Caches the GET responses of URLs starting with one of the prefixes (e.g. "https://api.example.com/") on the disk.
+    // Responses are used without a request for maxAgeMillis, then revalidated in the background for
+    // staleWhileRevalidateMillis; if the network fails, the cached response is used regardless of its age.
+    @SuppressWarnings("unused")
+    public void enableResponseCache(long maxBytes, long maxAgeMillis, long staleWhileRevalidateMillis, String... urlPrefixes){
+        disableResponseCache();
+        this.responseCache = new OfflineResponseCache(new File(this.host.getCacheDir(), "bridge-response-cache"),
+                maxBytes, maxAgeMillis, staleWhileRevalidateMillis, CookieManager.getInstance()::setCookie, urlPrefixes);
+    }
+
+    // Stops caching, the stored responses are kept for the next enableResponseCache()
+    @SuppressWarnings("unused")
+    public void disableResponseCache(){
+        OfflineResponseCache cache = this.responseCache;
+        this.responseCache = null;
+        if (cache != null) cache.shutdown();
+    }
+
+    // Counters of the response cache (hits, staleHits, misses, revalidations, offlineHits, networkErrors, entries, size)
+    @SuppressWarnings("unused")
+    public Map<String, Long> getResponseCacheStatistics(){
+        OfflineResponseCache cache = this.responseCache;
+        return (cache != null) ? cache.getStatistics() : new HashMap<String, Long>();
+    }
+
+    // Loads assets into the memory cache of the asset origin in the background, e.g. "src/js/hybrid-app.js"
+    @SuppressWarnings("unused")
+    public void preloadAssets(final String... assetPaths){
+        new Thread(() -> this.assetServer.preload(assetPaths), "AssetPreload").start();
+    }
+
+    // Runs the given code on the UI thread, e.g. for Toasts shown from background calls
+    void runOnUiThread(Runnable runnable){
+        this.host.post(runnable);
+    }
+
+    // Stops the background calls, should be called when the WebView is not used anymore
+    @SuppressWarnings("unused")
+    public void destroy(){
+        this.core.shutdown();
+        disableResponseCache();
+        closeFileReaders();
+        closeStore();
+        synchronized (this) {
+            if (this.locationTracker != null) this.locationTracker.stop();
+        }
+        this.locationWatchIds.clear();
+        unregisterNetworkCallback();
+        this.permissions.cancel();
+
+        // The photo the camera app may still take is kept in the PhotoStore, the bridge of a recreated Activity
+        // (e.g. after a rotation) gets it in onActivityResult()
+        this.pendingPhoto.set(null);
+        this.photoExecutor.shutdown();
+    }
+
+    // Result of the last script of executeJavaScript(), use evaluateJavaScript() to get the result of an own expression
     @SuppressWarnings("unused")
     public String getLastCallbackValue(){
-        return this.lastCallbackValue;
+        return this.core.getLastCallbackValue();
     }
 
 
     // Options for the WebView ---------------------------------------------------------------------
 
     public void loadUrl(String url){
-        this.webView.loadUrl(url);
+        this.host.loadUrl(url);
     }
 
     @SuppressWarnings("unused")
     public void loadData(String data){
-        this.webView.loadData(data, "text/html", "UTF-8");
+        this.host.loadData(data, "text/html", "UTF-8");
     }
 
     @SuppressWarnings("unused")
@@ -161,124 +538,226 @@ public class WebViewBridge {
     }
 
 
+    // Location of the device -----------------------------------------------------------------------
+
+    synchronized LocationTracker getLocationTracker(){
+        if (this.locationTracker == null)
+            this.locationTracker = new LocationTracker(new AndroidLocationSource(this.systemServices.<LocationManager>get(Context.LOCATION_SERVICE)));
+        return this.locationTracker;
+    }
+
+    // Updates of Native.watchLocation() come at most every minIntervalMillis and after a move of at least
+    // minDistanceMeters (default 5 s and 10 m), shorter intervals cost more battery
+    @SuppressWarnings("unused")
+    public void setLocationUpdateInterval(long minIntervalMillis, float minDistanceMeters){
+        getLocationTracker().setMinUpdate(minIntervalMillis, minDistanceMeters);
+    }
+
+    // Returns the id of the watch, its fixes are passed to Native._locationUpdates() in batches
+    int watchLocation(){
+        int watchId = getLocationTracker().subscribe((subscriptionId, fix) -> {
+            try {
+                JSONArray update = new JSONArray();
+                update.put(subscriptionId);
+                update.put(fix.toJson());
+                this.pendingLocationUpdates.add(update);
+            } catch (JSONException e) {
+                System.err.println("An error occurred while passing the location: " + e);
+                return;
+            }
+            if (this.locationFlushScheduled.compareAndSet(false, true)) this.host.post(this::flushLocationUpdates);
+        });
+        this.locationWatchIds.add(watchId);
+        return watchId;
+    }
+
+    void clearLocationWatch(int watchId){
+        if (this.locationWatchIds.remove(watchId)) getLocationTracker().unsubscribe(watchId);
+    }
+
+    // The watches belong to the page, a new page starts without them
+    private void clearLocationWatches(){
+        for (Integer watchId : this.locationWatchIds) clearLocationWatch(watchId);
+        this.pendingLocationUpdates.clear();
+    }
+
+    // All fixes since the last flush go to JavaScript with one script
+    private void flushLocationUpdates(){
+        this.locationFlushScheduled.set(false);
+
+        JSONArray batch = new JSONArray();
+        JSONArray update;
+        while ((update = this.pendingLocationUpdates.poll()) != null) batch.put(update);
+
+        if (batch.length() > 0) this.host.evaluateJavascript("Native._locationUpdates(" + batch + ");", null);
+    }
+
+
     // Functions that have access to the storage ---------------------------------------------------
 
+    // Same as Context.getFileStreamPath(), names with a path separator are rejected
+    private File getFile(String fileName){
+        if (fileName.indexOf(File.separatorChar) >= 0)
+            throw new IllegalArgumentException("File " + fileName + " contains a path separator");
+        return new File(this.host.getFilesDir(), fileName);
+    }
+
+    // Writes the text as UTF-8, the file is replaced atomically, so it is never left half written
     public void writeFile(Context context, String fileName, String value){
         try {
-            FileOutputStream fileOutputStream = context.openFileOutput(fileName, MODE_PRIVATE);
-            fileOutputStream.write(value.getBytes());
-            fileOutputStream.close();
+            FileStorage.writeText(getFile(fileName), value);
         } catch (Exception e) {
-            System.out.println("An error occurred while writing the file: " + e);
+            System.err.println("An error occurred while writing the file: " + e);
         }
     }
 
-    public String readFile(Context context, String fileName) {
-        StringBuilder text = new StringBuilder();
-        String line;
-
+    @SuppressWarnings("unused")
+    public void writeFile(Context context, String fileName, byte[] data){
         try {
-            FileInputStream fileInputStream = context.openFileInput(fileName);
-            InputStreamReader inputStreamReader = new InputStreamReader(fileInputStream);
+            FileStorage.writeBytes(getFile(fileName), data);
+        } catch (Exception e) {
+            System.err.println("An error occurred while writing the file: " + e);
+        }
+    }
 
-            BufferedReader bufferedReader = new BufferedReader(inputStreamReader);
+    // Returns the content unchanged (UTF-8), files from the memory-mapped read threshold on are mapped
+    public String readFile(Context context, String fileName) {
+        try {
+            return FileStorage.readText(getFile(fileName), this.memoryMappedReadThreshold);
+        } catch (Exception e) {
+            System.err.println("An error occurred while reading the file: " + e);
+            return "";
+        }
+    }
 
-            while ((line = bufferedReader.readLine()) != null) {
-                text.append("\n").append(line);
-            }
+    @SuppressWarnings("unused")
+    public byte[] readFileBytes(Context context, String fileName) {
+        try {
+            return FileStorage.readBytes(getFile(fileName));
         } catch (Exception e) {
             System.err.println("An error occurred while reading the file: " + e);
+            return null;
         }
-        return text.toString();
     }
 
+    // Size in bytes from which readFile() maps the file into memory, Long.MAX_VALUE never maps
+    @SuppressWarnings("unused")
+    public void setMemoryMappedReadThreshold(long bytes){
+        this.memoryMappedReadThreshold = bytes;
+    }
 
-    // Functions getting elements from WebView or execute Code in WebView --------------------------
+    // Store of Native.store.get/put/delete/batch, writes of many values are committed together. All bridges of
+    // the process use the same instance, two instances would overwrite each other's frames in the log.
+    @SuppressWarnings("unused")
+    public synchronized BridgeStore getStore() throws IOException {
+        if (this.store == null) this.store = BridgeStore.acquire(new File(this.host.getFilesDir(), "bridge-store.log"));
+        return this.store;
+    }
 
-    public void executeJavaScript(final String cmd){
-        this.webView.setWebViewClient(new WebViewClient() {
-            @SuppressLint("ObsoleteSdkInt")
-            @Override
-            public void onPageFinished(WebView view, String url) {
-                if (Build.VERSION.SDK_INT >= 19) view.evaluateJavascript(cmd, s -> lastCallbackValue = s);
-                else loadUrl("javascript:" + cmd + "; void(0);");
+    private synchronized void closeStore(){
+        if (this.store == null) return;
 
-                if (url.contains("#")) {
-                    currentUrl = url.split("#")[1];
-                    splitUrlToCallMethod();
-                }
-            }
-            public void onReceivedError (WebView view, WebResourceRequest request, WebResourceError error) {
-                super.onReceivedError(view, request, error);
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                    if (error.getErrorCode() == -2) if (!pageNotFoundUrl.equals("")) view.loadUrl(pageNotFoundUrl);
-                }
-            }
-        });
+        try {
+            this.store.release();
+        } catch (IOException e) {
+            System.err.println("An error occurred while closing the store: " + e);
+        }
+        this.store = null;
     }
 
-    @SuppressWarnings("unused")
-    public void setPageNotFoundUrl(String newPageNotFoundUrl){
-        this.pageNotFoundUrl = newPageNotFoundUrl;
+    private void closeFileReaders(){
+        for (Integer readerId : this.fileReaders.keySet()) closeFileReader(readerId);
     }
 
-    private String getHtmlElementById(String id){
-        return ("document.getElementById('" + id + "')");
+    private void closeFileReader(int readerId){
+        FileStorage.ChunkReader reader = this.fileReaders.remove(readerId);
+        if (reader == null) return;
+
+        try {
+            reader.close();
+        } catch (IOException e) {
+            System.err.println("An error occurred while closing the file: " + e);
+        }
     }
 
-    private String getHtmlElementsByClass(String classname){
-        return ("document.getElementsByClassName('"+ classname + "')");
+
+    // Functions getting elements from WebView or execute Code in WebView --------------------------
+
+    // Queues the command, all queued commands run as one script with the next frame of the loaded page
+    public void executeJavaScript(final String cmd){
+        this.core.executeJavaScript(null, cmd);
     }
 
-    private String getHtmlElementsByTagName(String tagName){
-        return ("document.getElementsByTagName('"+ tagName + "')");
+    // Evaluates the expression after the queued commands and returns its value as JSON text, e.g.
+    // evaluateJavaScript("document.title").get() returns "\"Title\"". Don't wait for it on the UI thread.
+    @SuppressWarnings("unused")
+    public ScriptResult<String> evaluateJavaScript(String expression){
+        return this.core.evaluateJavaScript(expression, ScriptResult.RAW);
     }
 
-    private void doSomethingByClassName(String classname, String function){
-        executeJavaScript("var availableClasses = " + getHtmlElementsByClass(classname) + "; [].forEach.call(availableClasses, function (availableClass) {availableClass." +  function + "})");
+    // Same as evaluateJavaScript(), the decoder converts the value, e.g. ScriptResult.JSON
+    @SuppressWarnings("unused")
+    public <T> ScriptResult<T> evaluateJavaScript(String expression, ScriptResult.Decoder<T> decoder){
+        return this.core.evaluateJavaScript(expression, decoder);
     }
 
-    private void doSomethingByTagName(String tagName, String function){
-        executeJavaScript("var availableTags = " + getHtmlElementsByTagName(tagName) + "; [].forEach.call(availableTags, function (availableTag) {availableTag." +  function + "})");
+    // Same as evaluateJavaScript(), the callback receives the value on the UI thread
+    @SuppressWarnings("unused")
+    public void evaluateJavaScript(String expression, ScriptResult.Callback<String> callback){
+        this.core.evaluateJavaScript(expression, ScriptResult.RAW).addCallback(callback);
     }
 
-    private String makeStyleAttributeValid(String attribute){
-        int i = attribute.indexOf("-");
+    // Evaluates all expressions in one script, e.g. to read several values of the page with one round trip.
+    // The result has their values in order, it fails if one of them fails.
+    @SuppressWarnings("unused")
+    public <T> ScriptResult<List<T>> evaluateJavaScript(List<String> expressions, ScriptResult.Decoder<T> decoder){
+        return this.core.evaluateJavaScript(expressions, decoder);
+    }
 
-        if (i != -1)
-            attribute = attribute.substring(0, i) + attribute.substring(i+1, i+2).toUpperCase() + attribute.substring(i+2);
+    // Same as executeJavaScript(), but replaces a pending command with the same merge key
+    private void executeJavaScript(String mergeKey, String cmd){
+        this.core.executeJavaScript(mergeKey, cmd);
+    }
 
-        return attribute;
+    @SuppressWarnings("unused")
+    public void setPageNotFoundUrl(String newPageNotFoundUrl){
+        this.pageNotFoundUrl = newPageNotFoundUrl;
+    }
+
+    // Only used for the patches of replaceNodeById(), all other DOM functions call the helper runtime of DomScripts
+    private String getHtmlElementById(String id){
+        return ("document.getElementById('" + JavaScriptString.escape(id) + "')");
     }
 
     @SuppressWarnings("unused")
     public void setCssById(String id, String attribute, String value){
-        executeJavaScript(getHtmlElementById(id) + ".style." + makeStyleAttributeValid(attribute) + " = '" + value + "';");
+        executeJavaScript(DomCommandQueue.mergeKey("style", DomScripts.BY_ID, id, attribute), DomScripts.call("setStyle", DomScripts.BY_ID, id, DomScripts.toStylePropertyName(attribute), value));
     }
 
     @SuppressWarnings("unused")
     public void setCssByClass(String classname, String attribute, String value){
-        doSomethingByClassName(classname, "style." + makeStyleAttributeValid(attribute) + " = '" + value + "';");
+        executeJavaScript(DomCommandQueue.mergeKey("style", DomScripts.BY_CLASS, classname, attribute), DomScripts.call("setStyle", DomScripts.BY_CLASS, classname, DomScripts.toStylePropertyName(attribute), value));
     }
 
     @SuppressWarnings("unused")
     public void setCssByTagName(String tagName, String attribute, String value){
-        doSomethingByTagName(tagName, "style." + makeStyleAttributeValid(attribute) + " = '" + value + "';");
+        executeJavaScript(DomCommandQueue.mergeKey("style", DomScripts.BY_TAG_NAME, tagName, attribute), DomScripts.call("setStyle", DomScripts.BY_TAG_NAME, tagName, DomScripts.toStylePropertyName(attribute), value));
     }
 
     public void setHtmlAttributeById(String id, String attributeName, String value){
-        executeJavaScript(getHtmlElementById(id) + "." + attributeName + " = '" + value + "';");
+        executeJavaScript(DomCommandQueue.mergeKey("attribute", DomScripts.BY_ID, id, attributeName), DomScripts.call("setProperty", DomScripts.BY_ID, id, attributeName, value));
     }
 
     public void setHtmlAttributeByClass(String classname, String attributeName,  String value){
-        doSomethingByClassName(classname, attributeName + " = '" + value + "';");
+        executeJavaScript(DomCommandQueue.mergeKey("attribute", DomScripts.BY_CLASS, classname, attributeName), DomScripts.call("setProperty", DomScripts.BY_CLASS, classname, attributeName, value));
     }
 
     public void setHtmlAttributeByTagName(String tagName, String attributeName,  String value){
-        doSomethingByTagName(tagName, attributeName + " = '" + value + "';");
+        executeJavaScript(DomCommandQueue.mergeKey("attribute", DomScripts.BY_TAG_NAME, tagName, attributeName), DomScripts.call("setProperty", DomScripts.BY_TAG_NAME, tagName, attributeName, value));
     }
 
     public void setInnerHtmlById(String id, String value){
+        forgetRenderedNode(id);
         setHtmlAttributeById(id, "innerHTML", value);
     }
 
@@ -302,22 +781,33 @@ public class WebViewBridge {
 
     @SuppressWarnings("unused")
     public void appendNodeById(String motherNodeId, HtmlNode htmlNode, NodePosition nodePosition){
-        executeJavaScript(getHtmlElementById(motherNodeId) + ".insertAdjacentHTML('" + nodePosition + "', '" + htmlNode.get() + "');");
+        executeJavaScript(DomScripts.callInsertHtml(DomScripts.BY_ID, motherNodeId, nodePosition.toString(), htmlNode));
     }
 
     @SuppressWarnings("unused")
     public void appendNodeByClass(String motherNodeClassName, HtmlNode htmlNode, NodePosition nodePosition){
-        doSomethingByClassName(motherNodeClassName, "insertAdjacentHTML('" + nodePosition + "', '" + htmlNode.get() + "');");
+        executeJavaScript(DomScripts.callInsertHtml(DomScripts.BY_CLASS, motherNodeClassName, nodePosition.toString(), htmlNode));
     }
 
     @SuppressWarnings("unused")
     public void appendNodeByTagName(String motherNodeTagName, HtmlNode htmlNode, NodePosition nodePosition){
-        doSomethingByTagName(motherNodeTagName, "insertAdjacentHTML('" + nodePosition + "', '" + htmlNode.get() + "');");
+        executeJavaScript(DomScripts.callInsertHtml(DomScripts.BY_TAG_NAME, motherNodeTagName, nodePosition.toString(), htmlNode));
     }
 
+    // The first call renders the whole node, later calls for the same node only send the changes since the last call
     @SuppressWarnings("unused")
     public void replaceNodeById(String nodeToReplaceId, HtmlNode htmlNode){
-        setInnerHtmlById(nodeToReplaceId, htmlNode.get());
+        synchronized (this.renderedNodes) {
+            HtmlNodeDiff.Patch patch = HtmlNodeDiff.update(getHtmlElementById(nodeToReplaceId), this.renderedNodes.get(nodeToReplaceId), htmlNode);
+            this.renderedNodes.put(nodeToReplaceId, patch.snapshot);
+            if (patch.patchCount > 0) executeJavaScript(patch.script);
+        }
+    }
+
+    private void forgetRenderedNode(String id){
+        synchronized (this.renderedNodes) {
+            this.renderedNodes.remove(id);
+        }
     }
 
     @SuppressWarnings("unused")
@@ -332,17 +822,18 @@ public class WebViewBridge {
 
     @SuppressWarnings("unused")
     public void removeNodeById(String id){
-        executeJavaScript(getHtmlElementById(id) + ".remove();");
+        forgetRenderedNode(id);
+        executeJavaScript(DomScripts.call("remove", DomScripts.BY_ID, id));
     }
 
     @SuppressWarnings("unused")
     public void removeNodeByClass(String classname){
-        executeJavaScript( "var availableClasses = " + getHtmlElementsByClass(classname) + "; while(availableClasses.length > 0){availableClasses[0].remove();}");
+        executeJavaScript(DomScripts.call("remove", DomScripts.BY_CLASS, classname));
     }
 
     @SuppressWarnings("unused")
     public void removeNodeByTagName(String tagName){
-        executeJavaScript( "var availableTags = " + getHtmlElementsByTagName(tagName) + "; while(availableTags.length > 0){availableTags[0].remove();}");
+        executeJavaScript(DomScripts.call("remove", DomScripts.BY_TAG_NAME, tagName));
     }
 
 
@@ -350,67 +841,462 @@ public class WebViewBridge {
 
     @SuppressWarnings("unused")
     public void addCallableFunction(Object classObject, String methodName, String keyword){
-        this.callableFunctions.put(keyword, new CallableFunction(classObject, methodName, keyword));
+        this.core.callableFunctions.put(keyword, new CallableFunction(classObject, methodName, keyword));
     }
 
     public void addCallableFunction(Object classObject, String methodName, String keyword, Object[] arguments){
-        this.callableFunctions.put(keyword, new CallableFunction(classObject, methodName, keyword, arguments));
+        this.core.callableFunctions.put(keyword, new CallableFunction(classObject, methodName, keyword, arguments));
+    }
+
+    // Registers the methods of a class annotated with @BridgeMethod, e.g. addBridgeMethods(new Example_BridgeMethods(example))
+    @SuppressWarnings("unused")
+    public void addBridgeMethods(BridgeMethods bridgeMethods){
+        String[] keywords = bridgeMethods.getKeywords();
+        Map<String, CallableFunction> functions = new HashMap<>();
+        for (int i = 0; i < keywords.length; i++)
+            functions.put(keywords[i], new CallableFunction(bridgeMethods, i, keywords[i]));
+
+        this.core.callableFunctions.putAll(functions);
+        this.core.callableFunctions.addScript(bridgeMethods.getJavaScript());
     }
 
     @SuppressWarnings("unused")
     public void removeCallableFunctions(String key){
-        this.callableFunctions.remove(key);
+        this.core.callableFunctions.remove(key);
+    }
+
+    // Runs the callable functions on the given executor (e.g. a worker pool), null runs them on the calling thread
+    @SuppressWarnings("unused")
+    public void setCallableFunctionExecutor(Executor executor){
+        this.core.setCallableFunctionExecutor(executor);
+    }
+
+    // Calls, errors and latency percentiles (in microseconds) of the native calls, by "callable:<keyword>"
+    // for the calls of callNativeFunction() and by "async:<name>" for the ones of callNativeFunctionAsync()
+    @SuppressWarnings("unused")
+    public Map<String, Map<String, Long>> getMetricsSnapshot(){
+        return this.core.metrics.getSnapshot();
+    }
+
+    @SuppressWarnings("unused")
+    public void setMetricsEnabled(boolean enabled){
+        this.core.metrics.setEnabled(enabled);
+    }
+
+    @SuppressWarnings("unused")
+    public void resetMetrics(){
+        this.core.metrics.reset();
+    }
+
+    // Features of the device ---------------------------------------------------------------------
+
+    // Must be called by onRequestPermissionsResult() of the Activity, passes the results to the waiting functions
+    // and promises of Native.requestPermissions(). Returns false for the request codes of the app.
+    @SuppressWarnings("unused")
+    public boolean onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults){
+        boolean handled = this.permissions.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        updateCapabilities();
+        return handled;
+    }
+
+    // Shows the permission dialog if needed, returns true if all permissions are granted. Only the calls of
+    // Promises (Native.async.*) wait for the answer; synchronous calls would block the JavaScript of the page
+    // and the UI thread gets the answer itself, so they return the current state.
+    boolean awaitPermissions(String... permissions){
+        if (!AsyncCallDispatcher.isAsyncCall() || Looper.myLooper() == Looper.getMainLooper()) {
+            this.permissions.request(permissions, results -> {});
+            for (String permission : permissions) if (!this.permissions.isGranted(permission)) return false;
+            return true;
+        }
+
+        try {
+            return this.permissions.await(permissions, PERMISSION_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private boolean hasLocationPermission(){
+        return this.permissions.isGranted(Manifest.permission.ACCESS_FINE_LOCATION) || this.permissions.isGranted(Manifest.permission.ACCESS_COARSE_LOCATION);
     }
 
-    private void proofCallableFunctions(String proofingKeyword, Object[] arguments){
-        if (this.callableFunctions.containsKey(proofingKeyword) && arguments != null){
-            Objects.requireNonNull(this.callableFunctions.get(proofingKeyword)).setArguments(arguments);
-            Objects.requireNonNull(this.callableFunctions.get(proofingKeyword)).invokeMethod();
+    // Must be called by onActivityResult() of the Activity, passes the photo of the camera app to the promise
+    // of Native.takePhoto(). If the Activity was recreated while the camera app was open, the promise is gone
+    // with the old page and the new page gets the photo as "photoTaken" event. Returns false for the request
+    // codes of the app.
+    @SuppressWarnings("unused")
+    public boolean onActivityResult(int requestCode, int resultCode, Intent data){
+        if (requestCode != TAKE_PHOTO_REQUEST_CODE) return false;
+
+        PendingPhoto currentPhoto = this.pendingPhoto.getAndSet(null);
+        PhotoStore.Pending storedPhoto = this.photoStore.takePending();
+        if (currentPhoto == null && storedPhoto != null)
+            currentPhoto = new PendingPhoto(null, this.photoStore.getFile(storedPhoto.id), storedPhoto.thumbnailSize);
+        if (currentPhoto == null) return true;
+
+        final PendingPhoto photo = currentPhoto;
+        if (resultCode != Activity.RESULT_OK || photo.file.length() == 0) {
+            //noinspection ResultOfMethodCallIgnored
+            photo.file.delete();
+            if (photo.requestId != null) this.core.asyncCallDispatcher.settle(photo.requestId, false, "No photo was taken");
+            return true;
         }
+
+        this.photoExecutor.execute(() -> {
+            String id = PhotoStore.getId(photo.file);
+            try {
+                int[] size = this.photoStore.readSize(id);
+                // Pages usually show the thumbnail first, so it is ready when they ask for it
+                this.photoStore.getThumbnail(id, photo.thumbnailSize);
+
+                JSONObject result = new JSONObject();
+                result.put("id", id);
+                result.put("url", PhotoStore.getUrl(id));
+                result.put("thumbnailUrl", PhotoStore.getThumbnailUrl(id, photo.thumbnailSize));
+                result.put("width", size[0]);
+                result.put("height", size[1]);
+                if (photo.requestId != null) this.core.asyncCallDispatcher.settle(photo.requestId, true, result);
+                else runOnUiThread(() -> runWhenPageFinished(() -> this.core.events.dispatch("photoTaken", result.toString())));
+            } catch (IOException | JSONException e) {
+                System.err.println("An error occurred while reading the photo " + id + ": " + e);
+                if (photo.requestId != null) this.core.asyncCallDispatcher.settle(photo.requestId, false, "The photo could not be read");
+                return;
+            }
+
+            if (!this.savePhotosToGallery) return;
+            try {
+                copyToGallery(photo.file);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("An error occurred while saving the photo " + id + " to the gallery: " + e);
+            }
+        });
+        return true;
     }
 
-    private void splitUrlToCallMethod(){
-        String callableFunctionIdentifier = this.currentUrl.split("=")[0];
-        Object[] callableFunctionParameters = this.currentUrl.split("=")[1].split("&");
+    // Photos of Native.takePhoto() are also copied to the gallery (default), otherwise they are only kept in the app
+    @SuppressWarnings("unused")
+    public void setSavePhotosToGallery(boolean savePhotosToGallery){
+        this.savePhotosToGallery = savePhotosToGallery;
+    }
+
+    // Starts the camera app, it writes the photo into a file of the PhotoStore. The promise of the request id
+    // is settled by onActivityResult().
+    private void takePhoto(String requestId, int thumbnailSize){
+        if (!this.context.getPackageManager().hasSystemFeature(PackageManager.FEATURE_CAMERA_ANY)) {
+            this.core.asyncCallDispatcher.settle(requestId, false, "There is no camera");
+            return;
+        }
+
+        final PendingPhoto photo;
+        try {
+            photo = new PendingPhoto(requestId, this.photoStore.createPhotoFile(), (thumbnailSize > 0) ? thumbnailSize : PhotoStore.DEFAULT_THUMBNAIL_SIZE);
+        } catch (IOException e) {
+            System.err.println("An error occurred while creating the photo file: " + e);
+            this.core.asyncCallDispatcher.settle(requestId, false, "The photo file could not be created");
+            return;
+        }
+        if (!this.pendingPhoto.compareAndSet(null, photo)) {
+            //noinspection ResultOfMethodCallIgnored
+            photo.file.delete();
+            this.core.asyncCallDispatcher.settle(requestId, false, "Another photo is being taken");
+            return;
+        }
+        try {
+            this.photoStore.setPending(PhotoStore.getId(photo.file), photo.thumbnailSize);
+        } catch (IOException e) {
+            // Only a recreated Activity misses the photo then
+            System.err.println("An error occurred while recording the pending photo: " + e);
+        }
 
-        proofCallableFunctions(callableFunctionIdentifier, callableFunctionParameters);
+        // Before Android 10 the copy in the gallery needs the storage permission, the camera app starts after the answer whatever it is
+        if (this.savePhotosToGallery && Build.VERSION.SDK_INT < Build.VERSION_CODES.Q)
+            this.permissions.request(new String[] {Manifest.permission.WRITE_EXTERNAL_STORAGE}, results -> runWithActivity(activity -> startCamera(activity, photo)));
+        else runWithActivity(activity -> startCamera(activity, photo));
     }
 
-    private Object[] proofTypes(Object[] callableFunctionsParameters){
-        Object[] tempParameters = new Object[callableFunctionsParameters.length];
-        for (int i = 0; i < callableFunctionsParameters.length; i++ ){
-            Object object = callableFunctionsParameters[i];
-            if (object.equals("true") || object.equals("false")){
-                tempParameters[i] = (Boolean.parseBoolean((String) object));
-            }else{
-                try{
-                    tempParameters[i] = Integer.parseInt((String)object);
-                }catch(Exception e){
-                    try{
-                        tempParameters[i] = Float.parseFloat((String)object);
-                    }catch(Exception e2){
-                        tempParameters[i] = object;
+    private void startCamera(Activity activity, PendingPhoto photo){
+        try {
+            Uri uri = FileProvider.getUriForFile(activity, activity.getPackageName() + PHOTO_PROVIDER_SUFFIX, photo.file);
+            Intent intent = new Intent(MediaStore.ACTION_IMAGE_CAPTURE);
+            intent.putExtra(MediaStore.EXTRA_OUTPUT, uri);
+            intent.addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION | Intent.FLAG_GRANT_WRITE_URI_PERMISSION);
+            activity.startActivityForResult(intent, TAKE_PHOTO_REQUEST_CODE);
+        } catch (RuntimeException e) {
+            // No camera app or no FileProvider in the manifest
+            System.err.println("An error occurred while starting the camera: " + e);
+            if (!this.pendingPhoto.compareAndSet(photo, null)) return;
+
+            this.photoStore.takePending();
+            //noinspection ResultOfMethodCallIgnored
+            photo.file.delete();
+            this.core.asyncCallDispatcher.settle(photo.requestId, false, "The camera could not be started");
+        }
+    }
+
+    // Copies the photo into the shared pictures (DCIM/Camera on Android 10+), like the camera app does with its own photos
+    private void copyToGallery(File photo) throws IOException {
+        ContentResolver resolver = this.context.getContentResolver();
+        ContentValues values = new ContentValues();
+        values.put(MediaStore.Images.Media.DISPLAY_NAME, photo.getName());
+        values.put(MediaStore.Images.Media.MIME_TYPE, "image/jpeg");
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            values.put(MediaStore.Images.Media.RELATIVE_PATH, Environment.DIRECTORY_DCIM + "/Camera");
+            values.put(MediaStore.Images.Media.IS_PENDING, 1);
+        }
+
+        Uri uri = resolver.insert(MediaStore.Images.Media.EXTERNAL_CONTENT_URI, values);
+        if (uri == null) throw new IOException("The gallery didn't accept the photo");
+
+        try (OutputStream outputStream = resolver.openOutputStream(uri); InputStream inputStream = new FileInputStream(photo)) {
+            if (outputStream == null) throw new IOException("Could not open " + uri);
+
+            byte[] buffer = new byte[64 * 1024];
+            for (int length; (length = inputStream.read(buffer)) > 0; ) outputStream.write(buffer, 0, length);
+        } catch (IOException e) {
+            resolver.delete(uri, null, null);
+            throw e;
+        }
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            values.clear();
+            values.put(MediaStore.Images.Media.IS_PENDING, 0);
+            resolver.update(uri, values, null, null);
+        }
+    }
+
+    // Reads the capabilities again and passes them to the page if they changed
+    @SuppressWarnings("unused")
+    public void updateCapabilities(){
+        if (this.capabilities.update(readCapabilities())) this.core.events.dispatch("capabilities", this.capabilities.toJson());
+    }
+
+    // Should be called by onConfigurationChanged() of the Activity, sends the "nightMode" event when it
+    // changed (the Activity only gets the change with android:configChanges="uiMode", otherwise it is recreated)
+    @SuppressWarnings("unused")
+    public void onConfigurationChanged(Configuration newConfig){
+        String nightMode = getNightMode(newConfig);
+        if (!this.capabilities.isEmpty() && !nightMode.equals(this.capabilities.get("nightMode")))
+            this.core.events.dispatch("nightMode", JSONObject.quote(nightMode));
+        updateCapabilities();
+    }
+
+    String getCapabilities(){
+        if (this.capabilities.isEmpty()) this.capabilities.update(readCapabilities());
+        return this.capabilities.toJson();
+    }
+
+    private Map<String, Object> readCapabilities(){
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("camera", this.context.getPackageManager().hasSystemFeature(PackageManager.FEATURE_CAMERA_ANY));
+        String cameraId = getTorchCameraId();
+        values.put("torchCameraId", (cameraId != null) ? cameraId : JSONObject.NULL);
+        Vibrator vibrator = this.systemServices.get(Context.VIBRATOR_SERVICE);
+        values.put("vibrator", vibrator != null && vibrator.hasVibrator());
+        values.put("connectivity", getConnectivityStatus());
+        values.put("nightMode", getNightMode(this.context.getResources().getConfiguration()));
+
+        Map<String, Boolean> permissions = new LinkedHashMap<>();
+        for (String permission : CAPABILITY_PERMISSIONS) {
+            // Notifications don't need a permission before Android 13
+            boolean granted = (Build.VERSION.SDK_INT < 33 && permission.equals(Manifest.permission.POST_NOTIFICATIONS))
+                    || this.permissions.isGranted(permission);
+            permissions.put(permission, granted);
+        }
+        values.put("permissions", permissions);
+        return values;
+    }
+
+    // Id of the first camera with a flash (the back camera on most devices), null if there is none
+    @SuppressLint("ObsoleteSdkInt")
+    synchronized String getTorchCameraId(){
+        if (this.torchCameraIdResolved || Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) return this.torchCameraId;
+
+        CameraManager cameraManager = this.systemServices.get(Context.CAMERA_SERVICE);
+        if (cameraManager != null) {
+            try {
+                for (String cameraId : cameraManager.getCameraIdList()) {
+                    Boolean flashAvailable = cameraManager.getCameraCharacteristics(cameraId).get(CameraCharacteristics.FLASH_INFO_AVAILABLE);
+                    if (Boolean.TRUE.equals(flashAvailable)) {
+                        this.torchCameraId = cameraId;
+                        break;
                     }
                 }
+            } catch (CameraAccessException e) {
+                // The camera may be available later, so the id is looked up again with the next call
+                System.err.println("An error occurred while looking for the flashlight: " + e);
+                return null;
             }
         }
-        return tempParameters;
+        this.torchCameraIdResolved = true;
+        return this.torchCameraId;
+    }
+
+    // TYPE_WIFI, TYPE_MOBILE, TYPE_OTHER (e.g. Ethernet), TYPE_NOT_CONNECTED or Type_Error without ConnectivityManager
+    String getConnectivityStatus(){
+        String status = this.connectivityStatus;
+        return (status != null) ? status : readConnectivityStatus();
+    }
+
+    @SuppressLint("ObsoleteSdkInt")
+    @SuppressWarnings("deprecation")
+    private String readConnectivityStatus(){
+        ConnectivityManager cm = this.systemServices.get(Context.CONNECTIVITY_SERVICE);
+        if (cm == null) return "Type_Error";
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            Network network = cm.getActiveNetwork();
+            return getConnectivityStatus((network != null) ? cm.getNetworkCapabilities(network) : null);
+        }
+
+        NetworkInfo activeNetwork = cm.getActiveNetworkInfo();
+        if (activeNetwork == null || !activeNetwork.isConnected()) return "TYPE_NOT_CONNECTED";
+        if (activeNetwork.getType() == ConnectivityManager.TYPE_WIFI) return "TYPE_WIFI";
+        if (activeNetwork.getType() == ConnectivityManager.TYPE_MOBILE) return "TYPE_MOBILE";
+        return "TYPE_OTHER";
     }
 
+    @SuppressLint("ObsoleteSdkInt")
+    private static String getConnectivityStatus(NetworkCapabilities networkCapabilities){
+        if (networkCapabilities == null || !networkCapabilities.hasCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET))
+            return "TYPE_NOT_CONNECTED";
+        if (networkCapabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) return "TYPE_WIFI";
+        if (networkCapabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) return "TYPE_MOBILE";
+        return "TYPE_OTHER";
+    }
+
+    // Sends the "connectivity" event for every change of the connection instead of the page polling getConnectivityStatus()
+    @SuppressLint("ObsoleteSdkInt")
+    private void registerNetworkCallback(){
+        final ConnectivityManager cm = this.systemServices.get(Context.CONNECTIVITY_SERVICE);
+        if (cm == null || Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) return;
+
+        // The default network callback only reports the network the app uses, before Android 7 every change
+        // of any network is a reason to read the active network again
+        final boolean defaultNetwork = Build.VERSION.SDK_INT >= Build.VERSION_CODES.N;
+        ConnectivityManager.NetworkCallback callback = new ConnectivityManager.NetworkCallback() {
+            @Override
+            public void onAvailable(Network network) {
+                if (!defaultNetwork) onConnectivityChanged(readConnectivityStatus());
+            }
+
+            @Override
+            public void onCapabilitiesChanged(Network network, NetworkCapabilities networkCapabilities) {
+                onConnectivityChanged(defaultNetwork ? getConnectivityStatus(networkCapabilities) : readConnectivityStatus());
+            }
+
+            @Override
+            public void onLost(Network network) {
+                onConnectivityChanged(defaultNetwork ? "TYPE_NOT_CONNECTED" : readConnectivityStatus());
+            }
+        };
+
+        try {
+            if (defaultNetwork) cm.registerDefaultNetworkCallback(callback);
+            else cm.registerNetworkCallback(new NetworkRequest.Builder().addCapability(NetworkCapabilities.NET_CAPABILITY_INTERNET).build(), callback);
+            synchronized (this) {
+                this.networkCallback = callback;
+            }
+        } catch (RuntimeException e) {
+            // E.g. a SecurityException without ACCESS_NETWORK_STATE, getConnectivityStatus() still works then
+            System.err.println("An error occurred while registering the network callback: " + e);
+        }
+    }
+
+    @SuppressLint("ObsoleteSdkInt")
+    private synchronized void unregisterNetworkCallback(){
+        if (this.networkCallback == null) return;
+
+        ConnectivityManager cm = this.systemServices.get(Context.CONNECTIVITY_SERVICE);
+        try {
+            if (cm != null) cm.unregisterNetworkCallback(this.networkCallback);
+        } catch (RuntimeException e) {
+            System.err.println("An error occurred while unregistering the network callback: " + e);
+        }
+        this.networkCallback = null;
+        this.connectivityStatus = null;
+    }
+
+    // Runs on a thread of the ConnectivityManager, the events of a network switch are collected by BridgeEvents
+    private void onConnectivityChanged(String status){
+        String previousStatus = this.connectivityStatus;
+        this.connectivityStatus = status;
+        if (status.equals(previousStatus)) return;
+
+        this.core.events.dispatch("connectivity", JSONObject.quote(status));
+        if (!this.capabilities.isEmpty() && this.capabilities.put("connectivity", status))
+            this.core.events.dispatch("capabilities", this.capabilities.toJson());
+    }
+
+    static String getNightMode(Configuration configuration){
+        int nightModeFlags = configuration.uiMode & Configuration.UI_MODE_NIGHT_MASK;
+
+        switch (nightModeFlags) {
+            case Configuration.UI_MODE_NIGHT_YES:
+                return "UI_MODE_NIGHT_YES";
+            case Configuration.UI_MODE_NIGHT_NO:
+                return "UI_MODE_NIGHT_NO";
+            case Configuration.UI_MODE_NIGHT_UNDEFINED:
+                return "UI_MODE_NIGHT_UNDEFINED";
+        }
+        return "null";
+    }
+
+    // The channel of pushNotification() is created with the first notification only
+    private void createNotificationChannel(NotificationManager notificationManager){
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O || !this.notificationChannelCreated.compareAndSet(false, true)) return;
+
+        NotificationChannel notificationChannel = new NotificationChannel(NOTIFICATION_CHANNEL_ID, "NativeWebApp", NotificationManager.IMPORTANCE_DEFAULT);
+        notificationChannel.setDescription("NativeWebApp-Notification");
+        notificationManager.createNotificationChannel(notificationChannel);
+    }
 
     // The JavaScript-Interface provides native functions to the JavaScript-Code -------------------
 
     class MyJavaScriptInterface {
-        final Context context;
+        volatile Context context;
 
         MyJavaScriptInterface(Context context){
             this.context = context;
         }
 
+        // Single entry point for calls of the callable functions (see BridgeMessage for the format)
+        @SuppressWarnings("unused")
+        @SynchronousOnly
+        @JavascriptInterface
+        public void postMessage(String message) {
+            core.dispatchMessageFrame(message);
+        }
+
+        // Calls a function in the background, the result settles the promise with the request id
+        @SuppressWarnings("unused")
+        @SynchronousOnly
+        @JavascriptInterface
+        public void callAsync(String requestId, String keyword, String argumentsJson) {
+            core.asyncCallDispatcher.call(requestId, keyword, argumentsJson);
+        }
+
+        @SuppressWarnings("unused")
+        @SynchronousOnly
+        @JavascriptInterface
+        public void cancelAsync(String requestId) {
+            core.asyncCallDispatcher.cancel(requestId);
+        }
+
+        // Stubs of the @BridgeMethod methods, hybrid-app.js runs them with Native as argument "n"
+        @SuppressWarnings("unused")
+        @SynchronousOnly
+        @JavascriptInterface
+        public String getBridgeMethodScript() {
+            StringBuilder script = new StringBuilder();
+            for (String bridgeMethodScript : core.callableFunctions.getScripts()) script.append(bridgeMethodScript);
+            return script.toString();
+        }
+
         @SuppressWarnings("unused")
         @JavascriptInterface
         public void showToast(String message) {
-            Toast.makeText(context, message, Toast.LENGTH_LONG).show();
+            runOnUiThread(() -> Toast.makeText(context, message, Toast.LENGTH_LONG).show());
         }
 
         @SuppressWarnings("unused")
@@ -440,139 +1326,140 @@ public class WebViewBridge {
         @SuppressWarnings("unused")
         @JavascriptInterface
         public void showWarning(String warningTitle, String warningText){
-            new AlertDialog.Builder(context)
+            runWithActivity(activity -> new AlertDialog.Builder(activity)
                     .setTitle(warningTitle)
                     .setMessage(warningText)
                     .setPositiveButton(android.R.string.yes, null)
                     .setIcon(android.R.drawable.ic_dialog_info)
-                    .show();
+                    .show());
         }
 
         @SuppressWarnings("unused")
         @JavascriptInterface
         public void showError(String errorTitle, String errorText){
-            new AlertDialog.Builder(context)
+            runWithActivity(activity -> new AlertDialog.Builder(activity)
                     .setTitle(errorTitle)
                     .setMessage(errorText)
                     .setPositiveButton(android.R.string.yes, null)
                     .setIcon(android.R.drawable.ic_dialog_alert)
-                    .show();
+                    .show());
         }
 
         @SuppressWarnings("unused")
         @JavascriptInterface
         public String nightModeEnabled(){
-            int nightModeFlags = this.context.getResources().getConfiguration().uiMode & Configuration.UI_MODE_NIGHT_MASK;
-
-            switch (nightModeFlags) {
-                case Configuration.UI_MODE_NIGHT_YES:
-                    return "UI_MODE_NIGHT_YES";
-                case Configuration.UI_MODE_NIGHT_NO:
-                    return "UI_MODE_NIGHT_NO";
-                case Configuration.UI_MODE_NIGHT_UNDEFINED:
-                    return "UI_MODE_NIGHT_UNDEFINED";
-            }
-            return "null";
+            return getNightMode(this.context.getResources().getConfiguration());
         }
 
         @SuppressLint("SourceLockedOrientationActivity")
         @SuppressWarnings("unused")
         @JavascriptInterface
         public void displayRotationMode(int value){
-            if (value == 0) ((Activity) this.context).setRequestedOrientation(ActivityInfo.SCREEN_ORIENTATION_PORTRAIT);
-            else if (value == 1) ((Activity) this.context).setRequestedOrientation(ActivityInfo.SCREEN_ORIENTATION_LANDSCAPE);
-            else ((Activity) this.context).setRequestedOrientation(ActivityInfo.SCREEN_ORIENTATION_FULL_SENSOR);
+            int orientation;
+            if (value == 0) orientation = ActivityInfo.SCREEN_ORIENTATION_PORTRAIT;
+            else if (value == 1) orientation = ActivityInfo.SCREEN_ORIENTATION_LANDSCAPE;
+            else orientation = ActivityInfo.SCREEN_ORIENTATION_FULL_SENSOR;
+            runWithActivity(activity -> activity.setRequestedOrientation(orientation));
         }
 
         @SuppressWarnings("unused")
         @JavascriptInterface
         public String getConnectivityStatus() {
-            ConnectivityManager cm = (ConnectivityManager) this.context
-                    .getSystemService(Context.CONNECTIVITY_SERVICE);
-
-            if (cm != null) {
-                NetworkInfo activeNetwork = cm.getActiveNetworkInfo();
-                if (null != activeNetwork) {
-                    if (activeNetwork.getType() == ConnectivityManager.TYPE_WIFI)
-                        return "TYPE_WIFI";
+            return WebViewBridge.this.getConnectivityStatus();
+        }
 
-                    if (activeNetwork.getType() == ConnectivityManager.TYPE_MOBILE)
-                        return "TYPE_MOBILE";
-                }
-                return "TYPE_NOT_CONNECTED";
-            }
-            return "Type_Error";
+        // Features of the device and the granted permissions as JSON, see DeviceCapabilities
+        @SuppressWarnings("unused")
+        @JavascriptInterface
+        public String getCapabilities(){
+            return WebViewBridge.this.getCapabilities();
         }
 
         @JavascriptInterface
         public boolean checkPermission(String permission){
-            return ContextCompat.checkSelfPermission(this.context, permission) == PackageManager.PERMISSION_GRANTED;
+            return permissions.isGranted(permission);
         }
 
+        // Shows the dialog if needed and returns the current state, Native.requestPermissions() waits for the answer
         @JavascriptInterface
         public boolean requestPermission(String permission){
-            if (!checkPermission(permission))
-                ActivityCompat.requestPermissions((Activity) this.context, new String[]{permission}, 100);
-            return checkPermission(permission);
+            permissions.request(new String[]{permission}, results -> {});
+            return permissions.isGranted(permission);
+        }
+
+        // Settles the promise of the request id with {"<permission>": granted, ...} after the permission dialog
+        @SuppressWarnings("unused")
+        @SynchronousOnly
+        @JavascriptInterface
+        public void requestPermissions(String requestId, String permissionsJson){
+            String[] requestedPermissions;
+            try {
+                JSONArray permissionArray = new JSONArray(permissionsJson);
+                requestedPermissions = new String[permissionArray.length()];
+                for (int i = 0; i < requestedPermissions.length; i++) requestedPermissions[i] = permissionArray.getString(i);
+            } catch (JSONException e) {
+                core.asyncCallDispatcher.settle(requestId, false, "Invalid permissions: " + e.getMessage());
+                return;
+            }
+            permissions.request(requestedPermissions, results -> core.asyncCallDispatcher.settle(requestId, true, new JSONObject(results)));
         }
 
         @SuppressWarnings("unused")
         @JavascriptInterface
         public String getCurrentLocation(){
-            Toast.makeText(this.context, "The application wants to get your location.", Toast.LENGTH_SHORT).show();
-            requestPermission(Manifest.permission.ACCESS_FINE_LOCATION);
+            runOnUiThread(() -> Toast.makeText(this.context, "The application wants to get your location.", Toast.LENGTH_SHORT).show());
+            awaitPermissions(LOCATION_PERMISSIONS);
 
-            if (requestPermission(Manifest.permission.ACCESS_COARSE_LOCATION) && checkPermission(Manifest.permission.ACCESS_FINE_LOCATION )) {
-                try {
-                    LocationManager lm = (LocationManager) this.context.getSystemService(Context.LOCATION_SERVICE);
-                    Location location = lm.getLastKnownLocation(LocationManager.GPS_PROVIDER);
-                    lm.requestLocationUpdates(LocationManager.GPS_PROVIDER, 0, 0, new MyLocationListener(this.context));
-                    System.out.println(location.getLatitude() + "," + location.getLongitude());
-                    return (location.getLatitude() + "," + location.getLongitude());
-                }catch(Exception e){
-                    return "null";
-                }
+            if (hasLocationPermission()) {
+                LocationTracker tracker = getLocationTracker();
+                LocationTracker.Fix fix = tracker.getFix(Long.MAX_VALUE);
+
+                // An old fix is refreshed for the next call, the shared listener is removed again after the first new fix
+                if (fix == null || tracker.getFix(CURRENT_LOCATION_MAX_AGE_MILLIS) == null) tracker.refresh();
+
+                if (fix != null) return (fix.latitude + "," + fix.longitude);
             }
             return "null";
         }
 
+        // Starts the shared location listener for Native.watchLocation(), returns the id of the watch or -1 without permission
         @SuppressWarnings("unused")
+        @SynchronousOnly
         @JavascriptInterface
-        public String takePhoto(){
-
-            if( this.context.getPackageManager().hasSystemFeature(PackageManager.FEATURE_CAMERA_ANY)){
-                String[] requestedPermissions;
-
-                if(Build.VERSION.SDK_INT < 28)
-                    requestedPermissions = new String[] {Manifest.permission.WRITE_EXTERNAL_STORAGE, Manifest.permission.CAMERA, Manifest.permission.READ_EXTERNAL_STORAGE};
-                else if(Build.VERSION.SDK_INT <= 32)
-                    requestedPermissions = new String[] {Manifest.permission.CAMERA, Manifest.permission.READ_EXTERNAL_STORAGE};
-                else requestedPermissions = new String[] {Manifest.permission.CAMERA, Manifest.permission.READ_MEDIA_IMAGES};
+        public int watchLocation(){
+            awaitPermissions(LOCATION_PERMISSIONS);
+            return hasLocationPermission() ? WebViewBridge.this.watchLocation() : -1;
+        }
 
-                ActivityCompat.requestPermissions((Activity) this.context, requestedPermissions, 1001);
+        @SuppressWarnings("unused")
+        @SynchronousOnly
+        @JavascriptInterface
+        public void clearLocationWatch(int watchId){
+            WebViewBridge.this.clearLocationWatch(watchId);
+        }
 
-                try {
-                    StrictMode.VmPolicy.Builder builder = new StrictMode.VmPolicy.Builder();
-                    StrictMode.setVmPolicy(builder.build());
-                    String photoPathAndFileName = Environment.getExternalStorageDirectory().getAbsolutePath() + "/DCIM/Camera/" + "IMG_" + new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.getDefault()).format(new Date()) + ".jpg";
-                    Intent intent = new Intent(MediaStore.ACTION_IMAGE_CAPTURE);
-                    intent.putExtra(MediaStore.EXTRA_OUTPUT, Uri.fromFile(new File(photoPathAndFileName)));
-
-                    ((Activity) this.context).startActivityForResult(intent, 100);
-                    return photoPathAndFileName;
-                } catch (Exception e) {
-                    System.err.println("Camera could not be started");
-                    return null;
-                }
-            }
+        // Opens the camera app and settles the promise of the request id with {id, url, thumbnailUrl, width, height}
+        // of the photo. The thumbnail has the size (longer side in pixels) or PhotoStore.DEFAULT_THUMBNAIL_SIZE for 0.
+        @SuppressWarnings("unused")
+        @SynchronousOnly
+        @JavascriptInterface
+        public void takePhoto(String requestId, int thumbnailSize){
+            WebViewBridge.this.takePhoto(requestId, thumbnailSize);
+        }
 
-            return "null";
+        // Deletes a photo of takePhoto() and its thumbnails (the copy in the gallery stays)
+        @SuppressWarnings("unused")
+        @JavascriptInterface
+        public boolean deletePhoto(String id){
+            return photoStore.delete(id);
         }
 
         @SuppressWarnings("unused")
         @JavascriptInterface
         public void vibrate(int milliseconds){
-            Vibrator v = (Vibrator) this.context.getSystemService(Context.VIBRATOR_SERVICE);
+            Vibrator v = systemServices.get(Context.VIBRATOR_SERVICE);
+            if (v == null) return;
+
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
                 v.vibrate(VibrationEffect.createOneShot(milliseconds, VibrationEffect.DEFAULT_AMPLITUDE));
             } else {
@@ -584,22 +1471,20 @@ public class WebViewBridge {
         @SuppressWarnings("unused")
         @JavascriptInterface
         public void pushNotification(String notificationTitle, String notificationContent){
-            if (Build.VERSION.SDK_INT >= 33)
-                requestPermission(Manifest.permission.POST_NOTIFICATIONS);
-
-            if(Build.VERSION.SDK_INT < 33 || checkPermission(Manifest.permission.POST_NOTIFICATIONS)) {
-                NotificationManager notificationManager = (NotificationManager) this.context.getSystemService(Context.NOTIFICATION_SERVICE);
-                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                    NotificationChannel notificationChannel = new NotificationChannel("NativeWebApp_ID", "NativeWebApp", NotificationManager.IMPORTANCE_DEFAULT);
-                    notificationChannel.setDescription("NativeWebApp-Notification");
-                    notificationManager.createNotificationChannel(notificationChannel);
-                }
-                NotificationCompat.Builder notificationBuilder = new NotificationCompat.Builder(this.context.getApplicationContext(), "NativeWebApp_ID")
+            if(Build.VERSION.SDK_INT < 33 || awaitPermissions(Manifest.permission.POST_NOTIFICATIONS)) {
+                NotificationManager notificationManager = systemServices.get(Context.NOTIFICATION_SERVICE);
+                if (notificationManager == null) return;
+
+                createNotificationChannel(notificationManager);
+                NotificationCompat.Builder notificationBuilder = new NotificationCompat.Builder(this.context.getApplicationContext(), NOTIFICATION_CHANNEL_ID)
                         .setSmallIcon(R.mipmap.ic_launcher) // Icon of the notification
                         .setContentTitle(notificationTitle) // Title of the notification
                         .setContentText(notificationContent)// Content of the notification
                         .setAutoCancel(true); // Notification will be removed after clicking on it
-                Intent intent = new Intent(this.context.getApplicationContext(), ((Activity) this.context).getClass());
+                // A page loaded in advance (see WebViewBridgePool) has no Activity yet, the notification opens the app then
+                Context current = this.context;
+                Intent intent = (current instanceof Activity) ? new Intent(current.getApplicationContext(), current.getClass())
+                        : current.getPackageManager().getLaunchIntentForPackage(current.getPackageName());
 
                 PendingIntent pi;
                 if (Build.VERSION.SDK_INT >= 31)
@@ -618,16 +1503,17 @@ public class WebViewBridge {
         @JavascriptInterface
         public void flashlight(boolean value) {
             if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-                CameraManager cameraManager = (CameraManager) this.context.getSystemService(Context.CAMERA_SERVICE);
+                CameraManager cameraManager = systemServices.get(Context.CAMERA_SERVICE);
+                String cameraId = getTorchCameraId();
+                if (cameraManager == null || cameraId == null) return;
 
                 try {
-                    String cameraId = cameraManager.getCameraIdList()[0];
                     cameraManager.setTorchMode(cameraId, value);
                 } catch (CameraAccessException e) {
                     System.err.println("Error: " + e);
                 }
             }else{
-                Toast.makeText(this.context, "Feature not supported in this version of Android.", Toast.LENGTH_SHORT).show();
+                runOnUiThread(() -> Toast.makeText(this.context, "Feature not supported in this version of Android.", Toast.LENGTH_SHORT).show());
             }
         }
 
@@ -643,225 +1529,146 @@ public class WebViewBridge {
             return readFile(this.context, fileName);
         }
 
-        @SuppressLint("ObsoleteSdkInt")
+        // Opens a file for Native.readFileChunks(), returns the id of the reader or -1 on errors
         @SuppressWarnings("unused")
+        @SynchronousOnly
         @JavascriptInterface
-        public void setStatusBarColor(String color){
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP)
-                ((Activity)this.context).getWindow().setStatusBarColor(Color.parseColor(color));
+        public int openFileReader(String fileName, int chunkSize){
+            try {
+                int readerId = nextFileReaderId.incrementAndGet();
+                fileReaders.put(readerId, new FileStorage.ChunkReader(getFile(fileName),
+                        (chunkSize > 0) ? chunkSize : FileStorage.DEFAULT_CHUNK_SIZE));
+                return readerId;
+            } catch (Exception e) {
+                System.err.println("An error occurred while opening the file: " + e);
+                return -1;
+            }
         }
 
-    }
-
-    private static class MyLocationListener implements LocationListener {
-        final Context context;
+        // Returns the next chunk of the reader or null at the end of the file
+        @SuppressWarnings("unused")
+        @JavascriptInterface
+        public String readFileChunk(int readerId) {
+            FileStorage.ChunkReader reader = fileReaders.get(readerId);
+            if (reader == null) return null;
+
+            try {
+                return reader.next();
+            } catch (Exception e) {
+                System.err.println("An error occurred while reading the file: " + e);
+                return null;
+            }
+        }
 
-        MyLocationListener(Context context){
-            this.context = context;
+        @SuppressWarnings("unused")
+        @SynchronousOnly
+        @JavascriptInterface
+        public void closeFileReader(int readerId){
+            WebViewBridge.this.closeFileReader(readerId);
         }
 
-        public void onLocationChanged(Location location) {
-            if (location != null) {
-                System.out.println("Location was determined!");
+        @SuppressWarnings("unused")
+        @JavascriptInterface
+        public String storeGet(String key){
+            try {
+                return getStore().get(key);
+            } catch (Exception e) {
+                System.err.println("An error occurred while reading the store: " + e);
+                return null;
             }
         }
 
-        public void onProviderDisabled(String provider) {
-            Toast.makeText(this.context, "Error onProviderDisabled", Toast.LENGTH_SHORT).show();
+        @SuppressWarnings("unused")
+        @JavascriptInterface
+        public boolean storePut(String key, String value){
+            try {
+                getStore().put(key, value);
+                return true;
+            } catch (Exception e) {
+                System.err.println("An error occurred while writing the store: " + e);
+                return false;
+            }
         }
 
-        public void onProviderEnabled(String provider) {
-            Toast.makeText(this.context, "onProviderEnabled", Toast.LENGTH_SHORT).show();
+        @SuppressWarnings("unused")
+        @JavascriptInterface
+        public boolean storeDelete(String key){
+            try {
+                getStore().delete(key);
+                return true;
+            } catch (Exception e) {
+                System.err.println("An error occurred while writing the store: " + e);
+                return false;
+            }
         }
 
-        public void onStatusChanged(String provider, int status, Bundle extras) {
-            Toast.makeText(this.context, "onStatusChanged", Toast.LENGTH_LONG).show();
+        // Operations like [["put", key, value], ["delete", key]], written together or not at all
+        @SuppressWarnings("unused")
+        @JavascriptInterface
+        public boolean storeBatch(String operationsJson){
+            try {
+                JSONArray operations = new JSONArray(operationsJson);
+                Map<String, String> values = new LinkedHashMap<>();
+                for (int i = 0; i < operations.length(); i++) {
+                    JSONArray operation = operations.getJSONArray(i);
+                    String type = operation.getString(0), key = operation.getString(1);
+
+                    if (type.equals("put")) values.put(key, operation.getString(2));
+                    else if (type.equals("delete")) values.put(key, null);
+                    else throw new JSONException("Unknown operation: " + type);
+                }
+                getStore().batch(values);
+                return true;
+            } catch (Exception e) {
+                System.err.println("An error occurred while writing the store: " + e);
+                return false;
+            }
         }
-    }
-}
-
-
-// Class for creating functions that can be called from HTTP fragments (#Fragment) -----------------
-
-class CallableFunction{
-
-    Object classObject;
-    String methodName, keyword;
-    Object[] arguments = new Object[0];
-
-    CallableFunction(Object classObject, String methodName, String keyword){
-        this.classObject = classObject;
-        this.methodName = methodName;
-        this.keyword = keyword;
-    }
-
-    CallableFunction(Object classObject, String methodName, String keyword, Object[] arguments){
-        this.classObject = classObject;
-        this.methodName = methodName;
-        this.keyword = keyword;
-        this.arguments = arguments;
-    }
-
-    @SuppressWarnings("unused")
-    public String getKeyword() {
-        return this.keyword;
-    }
-
-    public void setArguments(Object[] newArguments){
-        this.arguments = newArguments;
-    }
 
-    public void invokeMethod() {
-        try {
-            java.lang.reflect.Method method = this.classObject.getClass().getDeclaredMethod(this.methodName, getArgumentClasses());
-            method.invoke(classObject, this.arguments);
-        } catch (Exception e) {
-            System.err.println("Error: " + e);
+        // Metrics of the native side for Native.metrics()
+        @SuppressWarnings("unused")
+        @JavascriptInterface
+        public String getMetricsSnapshot(){
+            return new JSONObject(WebViewBridge.this.getMetricsSnapshot()).toString();
         }
-    }
 
-    private Class<?>[] getArgumentClasses(){
-        Class<?>[] argumentClasses = new Class<?>[this.arguments.length];
-        for(int i = 0; i < argumentClasses.length; i++){
-            argumentClasses[i] = this.arguments[i].getClass();
+        @SuppressWarnings("unused")
+        @JavascriptInterface
+        public String getStartupTimings(){
+            return new JSONObject(WebViewBridge.this.getStartupTimings()).toString();
         }
 
-        return argumentClasses;
-    }
-}
-
-
-// Class for the creation of HTML nodes from the Java-Code.
-
-class HtmlNode {
-    private String tagName, innerHtml;
-    private HashMap<String, String> cssRules, attributes;
-    private ArrayList<HtmlNode> childNodes;
-
-    @SuppressWarnings("unused")
-    public HtmlNode(String tagName) {
-        standardNode(tagName);
-    }
-
-    @SuppressWarnings("unused")
-    public HtmlNode(String tagName, String innerHtml) {
-        standardNode(tagName);
-        this.innerHtml = innerHtml;
-    }
-
-    public String get() {
-        String temp = "<" + this.tagName;
-
-        for (Map.Entry<String, String> entry : this.attributes.entrySet()) {
-            String key = entry.getKey();
-            String value = entry.getValue();
-            temp = temp.concat(" " + key + "=\"" + value + "\"");
+        @SuppressWarnings("unused")
+        @JavascriptInterface
+        public String getResponseCacheStatistics(){
+            return new JSONObject(WebViewBridge.this.getResponseCacheStatistics()).toString();
         }
 
-        if (this.cssRules.size() > 0) {
-            temp = temp.concat(" style=\"");
-
-            for (Map.Entry<String, String> entry : this.cssRules.entrySet()) {
-                String key = entry.getKey();
-                String value = entry.getValue();
-                temp = temp.concat(key + ": " + value + "; ");
+        // Waits until all writes are on the disk, meant for Native.store.flush() (asynchronous), false if they could not be written
+        @SuppressWarnings("unused")
+        @JavascriptInterface
+        public boolean storeFlush(){
+            try {
+                getStore().flush();
+                return true;
+            } catch (Exception e) {
+                System.err.println("An error occurred while writing the store: " + e);
+                return false;
             }
-
-            temp = temp.concat("\"");
         }
 
-        if (this.innerHtml.contentEquals("") && this.getChildNodes().size() < 1) {
-            temp = temp.concat("/>");
-        } else {
-            temp = temp.concat(">" + this.innerHtml);
-            for (HtmlNode tempNode : this.childNodes)
-                temp = temp.concat(tempNode.get());
-            temp = temp.concat("</" + this.tagName + ">");
+        @SuppressLint("ObsoleteSdkInt")
+        @SuppressWarnings("unused")
+        @JavascriptInterface
+        public void setStatusBarColor(String color){
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP)
+                runWithActivity(activity -> activity.getWindow().setStatusBarColor(Color.parseColor(color)));
         }
 
-        return temp;
-    }
-
-    private void standardNode(String tagName) {
-        this.tagName = tagName;
-        this.innerHtml = "";
-        this.attributes = new HashMap<>();
-        this.cssRules = new HashMap<>();
-        this.childNodes = new ArrayList<>();
-    }
-
-    @SuppressWarnings("unused")
-    public void setTagName(String newTagName) {
-        this.tagName = newTagName;
-    }
-
-    @SuppressWarnings("unused")
-    public String getTagName() {
-        return this.tagName;
-    }
-
-    @SuppressWarnings("unused")
-    public void setInnerHTML(String newInnerHtml) {
-        this.innerHtml = newInnerHtml;
-    }
-
-    @SuppressWarnings("unused")
-    public String getInnerHtml() {
-        return this.innerHtml;
-    }
-
-    public void setAttribute(String attributeName, String attributeContent) {
-        this.attributes.put(attributeName, attributeContent);
-    }
-
-    public String getAttribute(String attributeName) {
-        return this.attributes.get(attributeName);
-    }
-
-    @SuppressWarnings("unused")
-    public void setCssAttribute(String cssAttributeName, String cssAttributeContent) {
-        this.cssRules.put(cssAttributeName, cssAttributeContent);
-    }
-
-    @SuppressWarnings("unused")
-    public String getCssAttribute(String cssAttributeName) {
-        return this.cssRules.get(cssAttributeName);
-    }
-
-    @SuppressWarnings("unused")
-    public void appendChild(HtmlNode childNode) {
-        this.childNodes.add(childNode);
-    }
-
-    @SuppressWarnings("unused")
-    public void removeChild(int id) {
-        this.childNodes.remove(id);
-    }
-
-    @SuppressWarnings("unused")
-    public void removeChild(HtmlNode childNode) {
-        this.childNodes.remove(childNode);
-    }
-
-    public ArrayList<HtmlNode> getChildNodes() {
-        return this.childNodes;
-    }
-
-    public void setId(String id) {
-        this.setAttribute("id", id);
-    }
-
-    public String getId() {
-        return this.getAttribute("id");
-    }
-
-    @SuppressWarnings("unused")
-    public void setHtmlClass(String classname) {
-        this.setAttribute("class", classname);
     }
 
-    @SuppressWarnings("unused")
-    public String getHtmlClass() {
-        return this.getAttribute("class");
-    }
-}
\ No newline at end of file
+    // Marks the methods of the JavaScript-Interface that must not be called asynchronously
+    @Retention(RetentionPolicy.RUNTIME)
+    @Target(ElementType.METHOD)
+    @interface SynchronousOnly {}
+}
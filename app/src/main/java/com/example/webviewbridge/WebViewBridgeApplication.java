@@ -0,0 +1,28 @@
+package com.example.webviewbridge;
+
+import android.app.Application;
+
+public class WebViewBridgeApplication extends Application {
+
+    private WebViewBridgePool bridgePool;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+
+        // The page starts loading while the Activity is created, MainActivity takes the prepared bridge
+        bridgePool = new WebViewBridgePool(this, WebViewBridge.ASSET_ORIGIN + "index.html", 1,
+                bridge -> bridge.preloadAssets("src/js/hybrid-app.js"));
+        bridgePool.prewarm();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (level >= TRIM_MEMORY_BACKGROUND) bridgePool.clear();
+    }
+
+    public WebViewBridgePool getBridgePool() {
+        return bridgePool;
+    }
+}
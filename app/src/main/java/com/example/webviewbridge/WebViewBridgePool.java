@@ -0,0 +1,125 @@
+package com.example.webviewbridge;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.os.Looper;
+import android.view.View;
+import android.view.ViewGroup;
+import android.webkit.WebView;
+
+import java.util.ArrayDeque;
+
+// Bridges with a loaded page, created before an Activity needs them --------------------------------
+//
+// Creating the first WebView initializes Chromium, which is the largest part of the startup of a
+// WebView app. The pool creates its WebViews with the application context (wrapped, so they can be
+// moved to an Activity later), registers the bridge and starts loading the page, e.g. in
+// Application.onCreate() or when the UI thread is idle. acquire() hands a bridge with a (partly)
+// loaded page to an Activity or Fragment; the WebViews are not reused after release(), a new one is
+// prepared when the page of the acquired bridge has finished loading (so it doesn't slow down the
+// first paint). All methods must be called on the UI thread.
+
+@SuppressWarnings("unused")
+public class WebViewBridgePool {
+
+    // Prepares a new bridge before its page is loaded, e.g. with addCallableFunction() or preloadAssets()
+    public interface Setup {
+        void setUp(WebViewBridge bridge);
+    }
+
+    private final Context applicationContext;
+    private final String url;
+    private final int size;
+    private final Setup setup;
+    // The bridges share their callable functions, so the functions of Setup don't take memory per WebView
+    private final CallableRegistry callableFunctions = new CallableRegistry();
+    private final ArrayDeque<WebViewBridge> bridges = new ArrayDeque<>();
+    private boolean prewarmScheduled = false;
+
+    // Keeps up to size bridges with the page of the url, e.g. WebViewBridge.ASSET_ORIGIN + "index.html"
+    public WebViewBridgePool(Context context, String url, int size, Setup setup){
+        this.applicationContext = context.getApplicationContext();
+        this.url = url;
+        this.size = size;
+        this.setup = setup;
+    }
+
+    // Creates the missing bridges at once
+    public void prewarm(){
+        while (this.bridges.size() < this.size) this.bridges.add(createBridge(this.applicationContext));
+    }
+
+    // Creates the missing bridges one by one when the UI thread has nothing else to do
+    public void prewarmOnIdle(){
+        if (this.prewarmScheduled || this.bridges.size() >= this.size) return;
+
+        this.prewarmScheduled = true;
+        Looper.myQueue().addIdleHandler(() -> {
+            if (this.bridges.size() < this.size) this.bridges.add(createBridge(this.applicationContext));
+
+            this.prewarmScheduled = this.bridges.size() < this.size;
+            return this.prewarmScheduled;
+        });
+    }
+
+    // Returns a prepared bridge attached to the Activity, or a new one if there is none. The caller adds
+    // bridge.webView to its layout; the pool is filled up again when the UI thread is idle after its page
+    // has finished loading.
+    public WebViewBridge acquire(Activity activity){
+        WebViewBridge bridge = this.bridges.poll();
+        if (bridge == null) bridge = createBridge(activity);
+        bridge.attachTo(activity);
+
+        bridge.runWhenPageFinished(this::prewarmOnIdle);
+        return bridge;
+    }
+
+    // Like acquire(), the WebView takes the place (id and layout parameters) of the placeholder in the layout.
+    // A plain View as placeholder is cheaper to inflate than a WebView.
+    public WebViewBridge acquire(Activity activity, View placeholder){
+        WebViewBridge bridge = acquire(activity);
+
+        ViewGroup parent = (ViewGroup) placeholder.getParent();
+        if (parent != null) {
+            int index = parent.indexOfChild(placeholder);
+            ViewGroup.LayoutParams layoutParams = placeholder.getLayoutParams();
+            parent.removeViewAt(index);
+            bridge.webView.setId(placeholder.getId());
+            parent.addView(bridge.webView, index, layoutParams);
+        }
+        if (placeholder instanceof WebView) ((WebView) placeholder).destroy();
+        return bridge;
+    }
+
+    // Destroys a bridge of acquire(), e.g. in onDestroy() of the Activity
+    public void release(WebViewBridge bridge){
+        destroyBridge(bridge);
+    }
+
+    // Destroys the prepared bridges, e.g. in onTrimMemory()
+    public void clear(){
+        for (WebViewBridge bridge; (bridge = this.bridges.poll()) != null; ) destroyBridge(bridge);
+    }
+
+    public int getPreparedCount(){
+        return this.bridges.size();
+    }
+
+    private WebViewBridge createBridge(Context context){
+        StartupTimings startupTimings = WebViewBridge.newStartupTimings();
+        WebView webView = new WebView(new MutableContextWrapper(context));
+        startupTimings.mark("webViewCreated");
+
+        WebViewBridge bridge = new WebViewBridge(webView, webView.getContext(), startupTimings, this.callableFunctions);
+        if (this.setup != null) this.setup.setUp(bridge);
+        bridge.loadUrl(this.url);
+        return bridge;
+    }
+
+    private static void destroyBridge(WebViewBridge bridge){
+        bridge.destroy();
+        if (bridge.webView.getParent() instanceof ViewGroup) ((ViewGroup) bridge.webView.getParent()).removeView(bridge.webView);
+        bridge.webView.destroy();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.webviewbridge;
+
+import android.content.Context;
+import android.webkit.WebView;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+// BridgeHost of an Android WebView and the Context of its Activity ----------------------------------
+
+class WebViewHost implements BridgeHost {
+    final WebView webView;
+    final Context context;
+
+    WebViewHost(WebView webView, Context context){
+        this.webView = webView;
+        this.context = context;
+    }
+
+    @Override
+    public void evaluateJavascript(String script, ResultCallback callback){
+        this.webView.evaluateJavascript(script, (callback != null) ? callback::onResult : null);
+    }
+
+    @Override
+    public void post(Runnable task){
+        this.webView.post(task);
+    }
+
+    @Override
+    public void postOnAnimation(Runnable task){
+        this.webView.postOnAnimation(task);
+    }
+
+    @Override
+    public void postDelayed(Runnable task, long delayMillis){
+        this.webView.postDelayed(task, delayMillis);
+    }
+
+    @Override
+    public void loadUrl(String url){
+        this.webView.loadUrl(url);
+    }
+
+    @Override
+    public void loadData(String data, String mimeType, String encoding){
+        this.webView.loadData(data, mimeType, encoding);
+    }
+
+    @Override
+    public InputStream openAsset(String path) throws IOException {
+        return this.context.getAssets().open(path);
+    }
+
+    @Override
+    public File getFilesDir(){
+        return this.context.getFilesDir();
+    }
+
+    @Override
+    public File getCacheDir(){
+        return this.context.getCacheDir();
+    }
+
+    @Override
+    public Object getSystemService(String name){
+        return this.context.getSystemService(name);
+    }
+}
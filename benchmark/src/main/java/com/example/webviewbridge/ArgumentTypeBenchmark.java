@@ -0,0 +1,63 @@
+package com.example.webviewbridge;
+
+import com.example.webviewbridge.benchmark.ProofTypes;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Decodes the parameters of a URL hash call with the old try/catch guessing of proofTypes() and with
+// the declared argument types. The payloads mix the types, "text" is mostly strings, the worst case
+// for proofTypes() because every string throws two exceptions.
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ArgumentTypeBenchmark {
+
+    @Param({"numbers", "mixed", "text"})
+    public String payload;
+
+    private Object[] values;
+    private ArgumentType[] types;
+
+    @Setup
+    public void setUp() {
+        switch (this.payload) {
+            case "numbers":
+                this.values = new Object[] {"42", "-7", "3.25", "1000000"};
+                this.types = ArgumentType.of(new Object[] {"int", "int", "double", "long"});
+                break;
+            case "mixed":
+                this.values = new Object[] {"42", "true", "0.5", "Hello World"};
+                this.types = ArgumentType.of(new Object[] {"int", "boolean", "double", "String"});
+                break;
+            default:
+                this.values = new Object[] {"Hello", "World", "007", "main-content"};
+                this.types = ArgumentType.of(new Object[] {"String", "String", "String", "String"});
+        }
+    }
+
+    @Benchmark
+    public Object[] proofTypes() {
+        return ProofTypes.proofTypes(this.values);
+    }
+
+    @Benchmark
+    public Object[] decodeAll() {
+        return ArgumentType.decodeAll(this.types, this.values);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.webviewbridge;
+
+import com.example.webviewbridge.benchmark.Calculator;
+import com.example.webviewbridge.benchmark.Calculator_BridgeMethods;
+
+import org.json.JSONException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Parses the calls of the URL hash and of Android.postMessage() and dispatches a call of a callable
+// function with its declared types (reflection), without declared types (reflection, resolved by
+// the classes of the values) and through the dispatcher generated for @BridgeMethod.
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BridgeCallBenchmark {
+
+    private static final String HASH_CALL = "add=17&25";
+    private static final String MESSAGE_FRAME = "[[1,\"add\",[17,25]]]";
+
+    private CallableFunction typedFunction, untypedFunction, generatedFunction;
+
+    @Setup
+    public void setUp() {
+        Calculator calculator = new Calculator();
+        this.typedFunction = new CallableFunction(calculator, "add", "add", new Object[] {"int", "int"});
+        this.untypedFunction = new CallableFunction(calculator, "add", "add");
+        this.generatedFunction = new CallableFunction(new Calculator_BridgeMethods(calculator), 0, "add");
+    }
+
+    @Benchmark
+    public BridgeMessage parseHashCall() {
+        return BridgeMessage.parseHashCall(HASH_CALL);
+    }
+
+    @Benchmark
+    public List<BridgeMessage> parseMessageFrame() throws JSONException {
+        return BridgeMessage.parseFrame(MESSAGE_FRAME);
+    }
+
+    // Same path as a call from the URL hash: parsing, decoding of the strings and the reflective call
+    @Benchmark
+    public Object hashCallToReflection() throws Exception {
+        BridgeMessage message = BridgeMessage.parseHashCall(HASH_CALL);
+        return this.typedFunction.call(message.arguments);
+    }
+
+    @Benchmark
+    public Object invokeUntypedReflection() throws Exception {
+        return this.untypedFunction.call(17, 25);
+    }
+
+    @Benchmark
+    public Object invokeTypedReflection() throws Exception {
+        return this.typedFunction.call(17, 25);
+    }
+
+    @Benchmark
+    public Object invokeGenerated() throws Exception {
+        return this.generatedFunction.call(17, 25);
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.webviewbridge;
+
+import com.example.webviewbridge.benchmark.Calculator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+// Runs the bridge core on the InMemoryBridgeHost: a postMessage frame with the given number of calls
+// from parsing to the dispatched calls, and a frame of DOM commands from the queue to the script.
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BridgeCoreBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int calls;
+
+    private InMemoryBridgeHost host;
+    private BridgeCore core;
+    private String frame;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.host = new InMemoryBridgeHost(Files.createTempDirectory("bridge-core-benchmark").toFile());
+        this.core = new BridgeCore(this.host, Collections.<String, CallableFunction>emptyMap());
+        this.core.callableFunctions.put("add", new CallableFunction(new Calculator(), "add", "add", new Object[] {"int", "int"}));
+        this.core.onPageFinished();
+
+        StringBuilder frame = new StringBuilder("[");
+        for (int i = 0; i < this.calls; i++) frame.append((i > 0) ? "," : "").append("[").append(i).append(",\"add\",[").append(i).append(",1]]");
+        this.frame = frame.append("]").toString();
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.core.shutdown();
+    }
+
+    @Benchmark
+    public int dispatchMessageFrame() {
+        this.core.dispatchMessageFrame(this.frame);
+        return this.host.runPendingTasks();
+    }
+
+    @Benchmark
+    public int flushDomCommands() {
+        for (int i = 0; i < this.calls; i++)
+            this.core.executeJavaScript(DomCommandQueue.mergeKey("style", DomScripts.BY_ID, "item" + i, "color"), DomScripts.call("setStyle", DomScripts.BY_ID, "item" + i, "color", "red"));
+        int tasks = this.host.runPendingTasks();
+        this.host.clearScripts();
+        return tasks;
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.webviewbridge;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+// Writes and reads a text file of the given size like readFile()/writeFile() of the WebViewBridge.
+// A temporary directory stands in for the files directory of the Context. The text is mostly ASCII
+// with some multi-byte characters, like the JSON documents the pages usually store.
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileStorageBenchmark {
+
+    @Param({"16384", "1048576", "8388608"})
+    public int size;
+
+    private File directory, file, writtenFile;
+    private String text;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.directory = Files.createTempDirectory("file-storage-benchmark").toFile();
+        this.file = new File(this.directory, "read.json");
+        this.writtenFile = new File(this.directory, "write.json");
+
+        StringBuilder text = new StringBuilder(this.size);
+        for (int i = 0; text.length() < this.size; i++)
+            text.append("{\"id\":").append(i).append(",\"name\":\"Gr\u00fc\u00dfe \u2013 item ").append(i).append("\"},\n");
+        this.text = text.toString();
+        FileStorage.writeText(this.file, this.text);
+    }
+
+    @TearDown
+    public void tearDown() {
+        File[] files = this.directory.listFiles();
+        if (files != null) for (File file : files) file.delete();
+        this.directory.delete();
+    }
+
+    @Benchmark
+    public void writeText() throws IOException {
+        FileStorage.writeText(this.writtenFile, this.text);
+    }
+
+    @Benchmark
+    public String readText() throws IOException {
+        return FileStorage.readText(this.file, Long.MAX_VALUE);
+    }
+
+    @Benchmark
+    public String readTextMapped() throws IOException {
+        return FileStorage.readText(this.file, 0);
+    }
+
+    @Benchmark
+    public byte[] readBytes() throws IOException {
+        return FileStorage.readBytes(this.file);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.webviewbridge;
+
+import com.example.webviewbridge.benchmark.ConcatHtmlNode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Renders a table with the given number of rows with the old String.concat() serializer and with
+// the streaming serializer of HtmlNode.
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HtmlNodeBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int rows;
+
+    private ConcatHtmlNode concatTable;
+    private HtmlNode table;
+    private final StringBuilder buffer = new StringBuilder();
+
+    @Setup
+    public void setUp() {
+        this.concatTable = new ConcatHtmlNode("table");
+        this.table = new HtmlNode("table");
+
+        for (int i = 0; i < this.rows; i++) {
+            ConcatHtmlNode concatRow = new ConcatHtmlNode("tr");
+            HtmlNode row = new HtmlNode("tr");
+            concatRow.setHtmlClass("row");
+            row.setHtmlClass("row");
+
+            for (int j = 0; j < 5; j++) {
+                ConcatHtmlNode concatCell = new ConcatHtmlNode("td", "Product " + i + "." + j);
+                HtmlNode cell = new HtmlNode("td", "Product " + i + "." + j);
+                concatCell.setId("cell-" + i + "-" + j);
+                cell.setId("cell-" + i + "-" + j);
+                concatCell.setCssAttribute("color", "#333");
+                cell.setCssAttribute("color", "#333");
+                concatRow.appendChild(concatCell);
+                row.appendChild(cell);
+            }
+
+            this.concatTable.appendChild(concatRow);
+            this.table.appendChild(row);
+        }
+    }
+
+    @Benchmark
+    public String concatGet() {
+        return this.concatTable.get();
+    }
+
+    @Benchmark
+    public String get() {
+        return this.table.get();
+    }
+
+    @Benchmark
+    public int writeToReusedBuffer() throws IOException {
+        this.buffer.setLength(0);
+        this.table.writeTo(this.buffer);
+        return this.buffer.length();
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.webviewbridge.benchmark;
+
+import com.example.webviewbridge.annotations.BridgeMethod;
+
+// Target of the calls in BridgeCallBenchmark, the same method is called by reflection and through
+// the generated Calculator_BridgeMethods.
+
+public class Calculator {
+    private int total = 0;
+
+    @BridgeMethod
+    public int add(int a, int b) {
+        this.total += a + b;
+        return this.total;
+    }
+}
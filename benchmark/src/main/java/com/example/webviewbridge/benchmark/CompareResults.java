@@ -0,0 +1,72 @@
+package com.example.webviewbridge.benchmark;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+// Compares two JMH result files (-rf json) and fails if a benchmark got slower than the threshold.
+// Usage: CompareResults <baseline.json> <results.json> [threshold in percent, default 10]
+// The benchmarks are matched by name and parameters, all of them use AverageTime (lower is better).
+
+public class CompareResults {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CompareResults <baseline.json> <results.json> [threshold in percent]");
+            System.exit(2);
+        }
+
+        Map<String, double[]> baseline = read(args[0]), results = read(args[1]);
+        double threshold = (args.length > 2) ? Double.parseDouble(args[2]) : 10;
+        int regressions = 0;
+
+        System.out.println(String.format(Locale.ROOT, "%-70s %14s %14s %9s", "Benchmark", "Baseline", "Current", "Change"));
+        for (Map.Entry<String, double[]> result : results.entrySet()) {
+            double[] base = baseline.get(result.getKey());
+            double current = result.getValue()[0];
+            if (base == null) {
+                System.out.println(String.format(Locale.ROOT, "%-70s %14s %14.3f %9s", result.getKey(), "-", current, "new"));
+                continue;
+            }
+
+            // Differences within the error margins of both runs are not counted as regressions
+            double change = (current - base[0]) / base[0] * 100;
+            boolean regression = change > threshold && current - result.getValue()[1] > base[0] + base[1];
+            if (regression) regressions++;
+            System.out.println(String.format(Locale.ROOT, "%-70s %14.3f %14.3f %+8.1f%%%s", result.getKey(), base[0], current, change, regression ? "  REGRESSION" : ""));
+        }
+
+        if (regressions > 0) {
+            System.err.println(regressions + " benchmark(s) are more than " + threshold + " % slower than the baseline");
+            System.exit(1);
+        }
+    }
+
+    // Score and score error by "<benchmark> <param>=<value> ..."
+    private static Map<String, double[]> read(String path) throws IOException {
+        JSONArray runs = new JSONArray(new String(Files.readAllBytes(Paths.get(path)), StandardCharsets.UTF_8));
+        Map<String, double[]> scores = new LinkedHashMap<>();
+
+        for (int i = 0; i < runs.length(); i++) {
+            JSONObject run = runs.getJSONObject(i);
+            StringBuilder name = new StringBuilder(run.getString("benchmark").replace("com.example.webviewbridge.", ""));
+            JSONObject params = run.optJSONObject("params");
+            if (params != null) {
+                for (String param : new TreeSet<>(params.keySet())) name.append(' ').append(param).append('=').append(params.get(param));
+            }
+
+            JSONObject metric = run.getJSONObject("primaryMetric");
+            double error = metric.optDouble("scoreError", 0);
+            scores.put(name.toString(), new double[] {metric.getDouble("score"), Double.isNaN(error) ? 0 : error});
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.webviewbridge.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+// Copy of HtmlNode.get() before the streaming serializer, used as baseline in HtmlNodeBenchmark.
+
+public class ConcatHtmlNode {
+    private String tagName, innerHtml;
+    private HashMap<String, String> cssRules, attributes;
+    private ArrayList<ConcatHtmlNode> childNodes;
+
+    @SuppressWarnings("unused")
+    public ConcatHtmlNode(String tagName) {
+        standardNode(tagName);
+    }
+
+    @SuppressWarnings("unused")
+    public ConcatHtmlNode(String tagName, String innerHtml) {
+        standardNode(tagName);
+        this.innerHtml = innerHtml;
+    }
+
+    public String get() {
+        String temp = "<" + this.tagName;
+
+        for (Map.Entry<String, String> entry : this.attributes.entrySet()) {
+            String key = entry.getKey();
+            String value = entry.getValue();
+            temp = temp.concat(" " + key + "=\"" + value + "\"");
+        }
+
+        if (this.cssRules.size() > 0) {
+            temp = temp.concat(" style=\"");
+
+            for (Map.Entry<String, String> entry : this.cssRules.entrySet()) {
+                String key = entry.getKey();
+                String value = entry.getValue();
+                temp = temp.concat(key + ": " + value + "; ");
+            }
+
+            temp = temp.concat("\"");
+        }
+
+        if (this.innerHtml.contentEquals("") && this.getChildNodes().size() < 1) {
+            temp = temp.concat("/>");
+        } else {
+            temp = temp.concat(">" + this.innerHtml);
+            for (ConcatHtmlNode tempNode : this.childNodes)
+                temp = temp.concat(tempNode.get());
+            temp = temp.concat("</" + this.tagName + ">");
+        }
+
+        return temp;
+    }
+
+    private void standardNode(String tagName) {
+        this.tagName = tagName;
+        this.innerHtml = "";
+        this.attributes = new HashMap<>();
+        this.cssRules = new HashMap<>();
+        this.childNodes = new ArrayList<>();
+    }
+
+    @SuppressWarnings("unused")
+    public void setTagName(String newTagName) {
+        this.tagName = newTagName;
+    }
+
+    @SuppressWarnings("unused")
+    public String getTagName() {
+        return this.tagName;
+    }
+
+    @SuppressWarnings("unused")
+    public void setInnerHTML(String newInnerHtml) {
+        this.innerHtml = newInnerHtml;
+    }
+
+    @SuppressWarnings("unused")
+    public String getInnerHtml() {
+        return this.innerHtml;
+    }
+
+    public void setAttribute(String attributeName, String attributeContent) {
+        this.attributes.put(attributeName, attributeContent);
+    }
+
+    public String getAttribute(String attributeName) {
+        return this.attributes.get(attributeName);
+    }
+
+    @SuppressWarnings("unused")
+    public void setCssAttribute(String cssAttributeName, String cssAttributeContent) {
+        this.cssRules.put(cssAttributeName, cssAttributeContent);
+    }
+
+    @SuppressWarnings("unused")
+    public String getCssAttribute(String cssAttributeName) {
+        return this.cssRules.get(cssAttributeName);
+    }
+
+    @SuppressWarnings("unused")
+    public void appendChild(ConcatHtmlNode childNode) {
+        this.childNodes.add(childNode);
+    }
+
+    @SuppressWarnings("unused")
+    public void removeChild(int id) {
+        this.childNodes.remove(id);
+    }
+
+    @SuppressWarnings("unused")
+    public void removeChild(ConcatHtmlNode childNode) {
+        this.childNodes.remove(childNode);
+    }
+
+    public ArrayList<ConcatHtmlNode> getChildNodes() {
+        return this.childNodes;
+    }
+
+    public void setId(String id) {
+        this.setAttribute("id", id);
+    }
+
+    public String getId() {
+        return this.getAttribute("id");
+    }
+
+    @SuppressWarnings("unused")
+    public void setHtmlClass(String classname) {
+        this.setAttribute("class", classname);
+    }
+
+    @SuppressWarnings("unused")
+    public String getHtmlClass() {
+        return this.getAttribute("class");
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.webviewbridge.benchmark;
+
+// Copy of WebViewBridge.proofTypes() before the typed decoding, used as baseline in ArgumentTypeBenchmark.
+
+public class ProofTypes {
+
+    public static Object[] proofTypes(Object[] callableFunctionsParameters){
+        Object[] tempParameters = new Object[callableFunctionsParameters.length];
+        for (int i = 0; i < callableFunctionsParameters.length; i++ ){
+            Object object = callableFunctionsParameters[i];
+            if (object.equals("true") || object.equals("false")){
+                tempParameters[i] = (Boolean.parseBoolean((String) object));
+            }else{
+                try{
+                    tempParameters[i] = Integer.parseInt((String)object);
+                }catch(Exception e){
+                    try{
+                        tempParameters[i] = Float.parseFloat((String)object);
+                    }catch(Exception e2){
+                        tempParameters[i] = object;
+                    }
+                }
+            }
+        }
+        return tempParameters;
+    }
+}
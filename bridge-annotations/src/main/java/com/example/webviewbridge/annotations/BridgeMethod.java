@@ -0,0 +1,20 @@
+package com.example.webviewbridge.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Marks a method that can be called from JavaScript ------------------------------------------------
+//
+// The BridgeMethodProcessor generates a class <ClassName>_BridgeMethods for every class with annotated
+// methods. It calls the methods directly (no reflection) and is registered with
+// WebViewBridge.addBridgeMethods(new <ClassName>_BridgeMethods(object)). In JavaScript the methods are
+// available as Native.methods.<keyword>(...) and Native.methods.<keyword>.async(...).
+
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.METHOD)
+public @interface BridgeMethod {
+    // Keyword of the method in JavaScript, the method name is used if it is empty
+    String value() default "";
+}
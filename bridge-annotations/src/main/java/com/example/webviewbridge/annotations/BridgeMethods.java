@@ -0,0 +1,18 @@
+package com.example.webviewbridge.annotations;
+
+// Dispatcher of the methods of one class annotated with @BridgeMethod, implemented by the generated
+// <ClassName>_BridgeMethods classes. The methods are addressed by their index in getKeywords().
+
+public interface BridgeMethods {
+
+    String[] getKeywords();
+
+    // Declared parameter types of the method, e.g. {"String", "int"}
+    String[] getParameterTypes(int index);
+
+    // Script that adds the stubs of the methods to Native.methods, it is called with Native as argument "n"
+    String getJavaScript();
+
+    // The arguments are already converted to the parameter types
+    Object call(int index, Object[] arguments) throws Exception;
+}
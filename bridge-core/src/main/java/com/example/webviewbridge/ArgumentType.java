@@ -0,0 +1,188 @@
+package com.example.webviewbridge;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+// Declared type of an argument of a callable function and its decoder ------------------------------
+//
+// The types are resolved once from the arguments passed to addCallableFunction() (e.g. "String", "int"
+// or int.class). Every call then converts its values without trying parsers and catching exceptions.
+// Values arrive as String (URL hash) or already typed (message channel), both are accepted.
+
+enum ArgumentType {
+    BOOLEAN {
+        @Override
+        Object decode(Object value) {
+            if (value instanceof Boolean) return value;
+            if ("true".equals(value)) return Boolean.TRUE;
+            if ("false".equals(value)) return Boolean.FALSE;
+            return INVALID;
+        }
+    },
+    INT {
+        @Override
+        Object decode(Object value) {
+            Object number = LONG.decode(value);
+            if (number instanceof Long && (Long) number >= Integer.MIN_VALUE && (Long) number <= Integer.MAX_VALUE)
+                return ((Long) number).intValue();
+            return INVALID;
+        }
+    },
+    LONG {
+        @Override
+        Object decode(Object value) {
+            if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte)
+                return ((Number) value).longValue();
+            if (value instanceof Number) {
+                double doubleValue = ((Number) value).doubleValue();
+                if (doubleValue == Math.rint(doubleValue) && Math.abs(doubleValue) < 0x1p63) return (long) doubleValue;
+                return INVALID;
+            }
+            return (value instanceof String) ? parseLong((String) value) : INVALID;
+        }
+    },
+    DOUBLE {
+        @Override
+        Object decode(Object value) {
+            if (value instanceof Number) return ((Number) value).doubleValue();
+            if (value instanceof String && isDecimal((String) value)) return Double.parseDouble((String) value);
+            return INVALID;
+        }
+    },
+    // Float for float parameters, Method.invoke() doesn't narrow a Double. Values beyond the range of float are invalid.
+    FLOAT {
+        @Override
+        Object decode(Object value) {
+            Object number = DOUBLE.decode(value);
+            if (number == INVALID) return INVALID;
+
+            float floatValue = ((Double) number).floatValue();
+            if (Float.isInfinite(floatValue) && !((Double) number).isInfinite()) return INVALID;
+            return floatValue;
+        }
+    },
+    STRING {
+        @Override
+        Object decode(Object value) {
+            return (value == null || value instanceof String) ? value : String.valueOf(value);
+        }
+    },
+    JSON {
+        @Override
+        Object decode(Object value) {
+            if (value instanceof JSONObject || value instanceof JSONArray || value == null) return value;
+            if (!(value instanceof String)) return INVALID;
+
+            String json = ((String) value).trim();
+            if (!json.startsWith("{") && !json.startsWith("[")) return INVALID;
+            try {
+                return new JSONTokener(json).nextValue();
+            } catch (JSONException e) {
+                return INVALID;
+            }
+        }
+    },
+    // Without a declared type the value is passed on unchanged
+    ANY {
+        @Override
+        Object decode(Object value) {
+            return value;
+        }
+    };
+
+    // Returned by decode() when the value can't be converted to the type
+    static final Object INVALID = new Object();
+
+    abstract Object decode(Object value);
+
+    static ArgumentType of(Object declaredType){
+        if (declaredType instanceof Class) return ofClass((Class<?>) declaredType);
+        if (!(declaredType instanceof String)) return ANY;
+
+        switch ((String) declaredType) {
+            case "boolean": case "Boolean": return BOOLEAN;
+            case "int": case "Integer": return INT;
+            case "long": case "Long": return LONG;
+            case "float": case "Float": return FLOAT;
+            case "double": case "Double": return DOUBLE;
+            case "String": return STRING;
+            case "JSON": case "JSONObject": case "JSONArray": return JSON;
+            default: return ANY;
+        }
+    }
+
+    private static ArgumentType ofClass(Class<?> type){
+        if (type == boolean.class || type == Boolean.class) return BOOLEAN;
+        if (type == int.class || type == Integer.class) return INT;
+        if (type == long.class || type == Long.class) return LONG;
+        if (type == float.class || type == Float.class) return FLOAT;
+        if (type == double.class || type == Double.class) return DOUBLE;
+        if (type == String.class) return STRING;
+        if (type == JSONObject.class || type == JSONArray.class) return JSON;
+        return ANY;
+    }
+
+    static ArgumentType[] of(Object[] declaredTypes){
+        ArgumentType[] types = new ArgumentType[declaredTypes.length];
+        for (int i = 0; i < types.length; i++) types[i] = of(declaredTypes[i]);
+        return types;
+    }
+
+    // Decodes all values, returns null if a value doesn't match its type or the number of values is wrong
+    static Object[] decodeAll(ArgumentType[] types, Object[] values){
+        if (types.length == 0) return values;
+        if (types.length != values.length) return null;
+
+        Object[] decodedValues = new Object[values.length];
+        for (int i = 0; i < values.length; i++) {
+            decodedValues[i] = types[i].decode(values[i]);
+            if (decodedValues[i] == INVALID) return null;
+        }
+        return decodedValues;
+    }
+
+    // Optional minus followed by digits, e.g. "-42" or "007"
+    private static Object parseLong(String value){
+        int length = value.length(), i = 0;
+        boolean negative = length > 0 && value.charAt(0) == '-';
+        if (negative || (length > 0 && value.charAt(0) == '+')) i++;
+        if (i == length) return INVALID;
+
+        long result = 0;
+        for (; i < length; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) return INVALID;
+            // Accumulates negative, so Long.MIN_VALUE fits as well
+            if (result < (Long.MIN_VALUE + digit) / 10) return INVALID;
+            result = result * 10 - digit;
+        }
+
+        if (!negative && result == Long.MIN_VALUE) return INVALID;
+        return negative ? result : -result;
+    }
+
+    // Decimal number with optional fraction and exponent, e.g. "3", "-0.5" or "1.2e-3"
+    private static boolean isDecimal(String value){
+        int length = value.length(), i = 0;
+        if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) i++;
+
+        int digits = 0;
+        while (i < length && Character.isDigit(value.charAt(i)) && value.charAt(i) < 128) { i++; digits++; }
+        if (i < length && value.charAt(i) == '.') {
+            i++;
+            while (i < length && Character.isDigit(value.charAt(i)) && value.charAt(i) < 128) { i++; digits++; }
+        }
+        if (digits == 0) return false;
+
+        if (i < length && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) i++;
+            int exponentDigits = 0;
+            while (i < length && Character.isDigit(value.charAt(i)) && value.charAt(i) < 128) { i++; exponentDigits++; }
+            if (exponentDigits == 0) return false;
+        }
+        return i == length;
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.webviewbridge;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+
+// Serves the assets of the app over a virtual https origin (WebViewBridge.ASSET_ORIGIN) --------------
+//
+// Pages loaded from the origin behave like normal websites (no file:// access rights needed) and get
+// their assets from shouldInterceptRequest(). Recently used assets are kept in an LRU cache together
+// with their MIME type and ETag, so repeated navigations don't read the assets again.
+// An asset can be stored pre-compressed as "<name>.gz", it is decompressed once when it is loaded.
+
+class AssetServer {
+    static final String HOST = "appassets.androidplatform.net";
+    static final String PATH_PREFIX = "/assets/";
+    static final String ORIGIN = "https://" + HOST + PATH_PREFIX;
+    private static final long DEFAULT_CACHE_SIZE = 8 * 1024 * 1024;
+
+    private static final Map<String, String> MIME_TYPES = new HashMap<>();
+
+    static {
+        MIME_TYPES.put("html", "text/html");
+        MIME_TYPES.put("htm", "text/html");
+        MIME_TYPES.put("js", "text/javascript");
+        MIME_TYPES.put("mjs", "text/javascript");
+        MIME_TYPES.put("css", "text/css");
+        MIME_TYPES.put("json", "application/json");
+        MIME_TYPES.put("map", "application/json");
+        MIME_TYPES.put("txt", "text/plain");
+        MIME_TYPES.put("xml", "text/xml");
+        MIME_TYPES.put("svg", "image/svg+xml");
+        MIME_TYPES.put("png", "image/png");
+        MIME_TYPES.put("jpg", "image/jpeg");
+        MIME_TYPES.put("jpeg", "image/jpeg");
+        MIME_TYPES.put("gif", "image/gif");
+        MIME_TYPES.put("webp", "image/webp");
+        MIME_TYPES.put("ico", "image/x-icon");
+        MIME_TYPES.put("woff", "font/woff");
+        MIME_TYPES.put("woff2", "font/woff2");
+        MIME_TYPES.put("ttf", "font/ttf");
+        MIME_TYPES.put("otf", "font/otf");
+        MIME_TYPES.put("mp3", "audio/mpeg");
+        MIME_TYPES.put("mp4", "video/mp4");
+        MIME_TYPES.put("webm", "video/webm");
+        MIME_TYPES.put("wasm", "application/wasm");
+    }
+
+    // Opens an asset by its path, e.g. AssetManager.open()
+    interface AssetSource {
+        InputStream open(String path) throws IOException;
+    }
+
+    // Content of an asset with the values of its response headers
+    static final class Asset {
+        final String path, mimeType, encoding, eTag;
+        final byte[] data;
+
+        Asset(String path, byte[] data){
+            this.path = path;
+            this.data = data;
+            this.mimeType = getMimeType(path);
+            this.encoding = this.mimeType.startsWith("text/") || this.mimeType.endsWith("json")
+                    || this.mimeType.endsWith("javascript") || this.mimeType.endsWith("+xml") ? "UTF-8" : null;
+
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, data.length);
+            this.eTag = "\"" + Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(data.length) + "\"";
+        }
+    }
+
+    private final AssetSource assetSource;
+    private final long maxCacheSize;
+    private final LinkedHashMap<String, Asset> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cacheSize = 0;
+    private int hits = 0, misses = 0;
+
+    AssetServer(AssetSource assetSource){
+        this(assetSource, DEFAULT_CACHE_SIZE);
+    }
+
+    // The cache size is the number of bytes of the cached assets
+    AssetServer(AssetSource assetSource, long maxCacheSize){
+        this.assetSource = assetSource;
+        this.maxCacheSize = maxCacheSize;
+    }
+
+    // Returns the path of the asset for URLs of the origin (with decoded path), otherwise null
+    static String getAssetPath(String scheme, String host, String path){
+        if (!"https".equals(scheme) || !HOST.equals(host) || path == null || !path.startsWith(PATH_PREFIX)) return null;
+
+        String assetPath = path.substring(PATH_PREFIX.length());
+        if (assetPath.isEmpty() || assetPath.endsWith("/")) assetPath += "index.html";
+
+        // Paths that leave the assets folder are not served
+        String segments = "/" + assetPath + "/";
+        if (segments.contains("/../") || segments.contains("/./") || segments.contains("//")) return null;
+        return assetPath;
+    }
+
+    // Returns the asset or null if it doesn't exist
+    Asset get(String path) throws IOException {
+        synchronized (this) {
+            Asset asset = this.cache.get(path);
+            if (asset != null) {
+                this.hits++;
+                return asset;
+            }
+            this.misses++;
+        }
+
+        // Loaded outside of the lock, so a large asset doesn't block the other requests
+        Asset asset = load(path);
+        if (asset != null) addToCache(asset);
+        return asset;
+    }
+
+    // Loads the assets into the cache before they are requested, e.g. the scripts of the first page
+    void preload(String... paths){
+        for (String path : paths) {
+            try {
+                synchronized (this) {
+                    if (this.cache.containsKey(path)) continue;
+                }
+                Asset asset = load(path);
+                if (asset != null) addToCache(asset);
+            } catch (IOException e) {
+                System.err.println("An error occurred while preloading the asset " + path + ": " + e);
+            }
+        }
+    }
+
+    synchronized int getHitCount(){
+        return this.hits;
+    }
+
+    synchronized int getMissCount(){
+        return this.misses;
+    }
+
+    private Asset load(String path) throws IOException {
+        try (InputStream inputStream = this.assetSource.open(path + ".gz")) {
+            return new Asset(path, readFully(new GZIPInputStream(inputStream)));
+        } catch (FileNotFoundException ignored) {
+            // Continues with the uncompressed asset
+        }
+
+        try (InputStream inputStream = this.assetSource.open(path)) {
+            return new Asset(path, readFully(inputStream));
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+    }
+
+    private synchronized void addToCache(Asset asset){
+        if (asset.data.length > this.maxCacheSize) return;
+
+        Asset previous = this.cache.put(asset.path, asset);
+        if (previous != null) this.cacheSize -= previous.data.length;
+        this.cacheSize += asset.data.length;
+
+        Iterator<Asset> eldestAssets = this.cache.values().iterator();
+        while (this.cacheSize > this.maxCacheSize && eldestAssets.hasNext()) {
+            this.cacheSize -= eldestAssets.next().data.length;
+            eldestAssets.remove();
+        }
+    }
+
+    static String getMimeType(String path){
+        int dot = path.lastIndexOf('.');
+        String mimeType = (dot >= 0) ? MIME_TYPES.get(path.substring(dot + 1).toLowerCase(Locale.ROOT)) : null;
+        return (mimeType != null) ? mimeType : "application/octet-stream";
+    }
+
+    private static byte[] readFully(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(inputStream.available(), 8192));
+        byte[] buffer = new byte[8192];
+        for (int read; (read = inputStream.read(buffer)) >= 0; ) output.write(buffer, 0, read);
+        return output.toByteArray();
+    }
+}
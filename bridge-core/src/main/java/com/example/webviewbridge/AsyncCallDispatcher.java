@@ -0,0 +1,145 @@
+package com.example.webviewbridge;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs native calls from JavaScript in the background and settles their promises -----------------
+//
+// JavaScript sends a request id with every call (Native.callNativeFunctionAsync). The function runs on
+// a bounded executor and the results of all calls that finished in the meantime are passed back to
+// Native._settleAsync() with a single evaluateJavascript.
+
+class AsyncCallDispatcher {
+    private static final int MAX_THREADS = 4;
+    private static final int MAX_QUEUED_CALLS = 64;
+    // Set while a call of a Promise runs on the current thread, see isAsyncCall()
+    private static final ThreadLocal<Boolean> asyncCall = new ThreadLocal<>();
+
+    private final BridgeCore core;
+    private final BridgeHost host;
+    private final BridgeMetrics metrics;
+    private final ThreadPoolExecutor executor;
+    private final ConcurrentHashMap<String, Future<?>> pendingCalls = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<JSONArray> settledCalls = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    // The interface functions of the core are looked up first, then the functions added with addCallableFunction()
+    AsyncCallDispatcher(BridgeCore core){
+        this.core = core;
+        this.host = core.host;
+        this.metrics = core.metrics;
+
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(MAX_QUEUED_CALLS),
+                runnable -> new Thread(runnable, "WebViewBridge-async-" + threadNumber.incrementAndGet()));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    void call(final String requestId, String keyword, String argumentsJson){
+        CallableFunction function = this.core.interfaceFunctions.get(keyword);
+        if (function == null) function = this.core.callableFunctions.get(keyword);
+        if (function == null) {
+            settle(requestId, false, "Unknown function: " + keyword);
+            return;
+        }
+
+        final Object[] arguments;
+        try {
+            arguments = BridgeMessage.parseArguments((argumentsJson != null) ? new JSONArray(argumentsJson) : null);
+        } catch (JSONException e) {
+            settle(requestId, false, "Invalid arguments: " + e.getMessage());
+            return;
+        }
+
+        final CallableFunction callableFunction = function;
+        try {
+            // The lock keeps the task from removing its entry before it was added
+            synchronized (this.pendingCalls) {
+                this.pendingCalls.put(requestId, this.executor.submit(() -> run(requestId, callableFunction, arguments)));
+            }
+        } catch (RejectedExecutionException e) {
+            settle(requestId, false, "Too many pending native calls");
+        }
+    }
+
+    void cancel(String requestId){
+        Future<?> future = this.pendingCalls.remove(requestId);
+        if (future != null) future.cancel(true);
+    }
+
+    int getPendingCallCount(){
+        return this.pendingCalls.size();
+    }
+
+    // Whether the current thread runs the call of a Promise, which may wait (e.g. for a permission dialog)
+    // without blocking the page
+    static boolean isAsyncCall(){
+        return asyncCall.get() != null;
+    }
+
+    void shutdown(){
+        this.executor.shutdownNow();
+        this.pendingCalls.clear();
+    }
+
+    private void run(String requestId, CallableFunction callableFunction, Object[] arguments){
+        Object result = null;
+        String error = null;
+        long start = this.metrics.start();
+
+        asyncCall.set(Boolean.TRUE);
+        try {
+            result = this.core.call(callableFunction, arguments);
+        } catch (InvocationTargetException e) {
+            error = String.valueOf(e.getCause());
+        } catch (Exception e) {
+            error = String.valueOf(e);
+        } finally {
+            asyncCall.remove();
+        }
+        this.metrics.record("async:" + callableFunction.keyword, start, error != null);
+
+        synchronized (this.pendingCalls) {
+            // Cancelled calls were already settled by JavaScript
+            if (this.pendingCalls.remove(requestId) == null) return;
+        }
+
+        if (error == null) settle(requestId, true, result);
+        else settle(requestId, false, error);
+    }
+
+    // Also settles the promises of calls that don't run on the executor, e.g. Native.requestPermissions()
+    void settle(String requestId, boolean success, Object value){
+        JSONArray settledCall = new JSONArray();
+        settledCall.put(requestId);
+        settledCall.put(success);
+        settledCall.put((value != null) ? value : JSONObject.NULL);
+        this.settledCalls.add(settledCall);
+
+        if (this.flushScheduled.compareAndSet(false, true)) this.host.post(this::flush);
+    }
+
+    // Passes all settled calls to JavaScript in one batch
+    private void flush(){
+        this.flushScheduled.set(false);
+
+        JSONArray batch = new JSONArray();
+        JSONArray settledCall;
+        while ((settledCall = this.settledCalls.poll()) != null) batch.put(settledCall);
+
+        if (batch.length() > 0) this.host.evaluateJavascript("Native._settleAsync(" + batch + ");", null);
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.webviewbridge;
+
+import org.json.JSONException;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+// Part of the WebViewBridge that doesn't depend on Android ------------------------------------------
+//
+// Dispatches the calls from the page (URL hash, postMessage frames and asynchronous calls), batches
+// the DOM commands and records the metrics. Everything it needs from the page goes through the
+// BridgeHost, so it runs the same with a WebView and with the InMemoryBridgeHost on a plain JVM.
+
+class BridgeCore {
+    // Bridge of the call that runs on the current thread, see getCallingCore()
+    private static final ThreadLocal<BridgeCore> callingCore = new ThreadLocal<>();
+
+    final BridgeHost host;
+    // Functions of the JavaScript-Interface that can also be called asynchronously
+    final Map<String, CallableFunction> interfaceFunctions;
+    // May be shared with other bridges, the calls still run in the context of this bridge
+    final CallableRegistry callableFunctions;
+    // Latencies of the native calls, see WebViewBridge.getMetricsSnapshot()
+    final BridgeMetrics metrics = new BridgeMetrics();
+    final DomCommandQueue domCommandQueue;
+    final AsyncCallDispatcher asyncCallDispatcher;
+    // Events of Native.on(), e.g. changes of the connectivity
+    final BridgeEvents events;
+    private volatile Executor callableFunctionExecutor;
+    private volatile String lastCallbackValue = "";
+    // Objects of this bridge for the functions with a context type, e.g. its JavaScript-Interface
+    private final Map<Class<?>, Object> contextObjects = new ConcurrentHashMap<>();
+
+    BridgeCore(BridgeHost host, Map<String, CallableFunction> interfaceFunctions){
+        this(host, interfaceFunctions, new CallableRegistry());
+    }
+
+    // The interface functions and the registry can be shared by several bridges (e.g. one per WebView)
+    BridgeCore(BridgeHost host, Map<String, CallableFunction> interfaceFunctions, CallableRegistry callableFunctions){
+        this.host = host;
+        this.interfaceFunctions = interfaceFunctions;
+        this.callableFunctions = callableFunctions;
+        this.domCommandQueue = new DomCommandQueue(host, value -> this.lastCallbackValue = value, DomScripts.RUNTIME);
+        this.asyncCallDispatcher = new AsyncCallDispatcher(this);
+        this.events = new BridgeEvents(host);
+    }
+
+    void onPageStarted(){
+        this.domCommandQueue.onPageStarted();
+    }
+
+    void onPageFinished(){
+        this.domCommandQueue.onPageFinished();
+    }
+
+    void shutdown(){
+        this.asyncCallDispatcher.shutdown();
+        this.domCommandQueue.cancelResults();
+    }
+
+    String getLastCallbackValue(){
+        return this.lastCallbackValue;
+    }
+
+    // Runs the callable functions on the given executor (e.g. a worker pool), null runs them on the calling thread
+    void setCallableFunctionExecutor(Executor executor){
+        this.callableFunctionExecutor = executor;
+    }
+
+    // The functions created with a context type call their method on the object of this type
+    void putContextObject(Class<?> type, Object object){
+        this.contextObjects.put(type, object);
+    }
+
+    // Returns the bridge whose page made the call that runs on the current thread, null outside of calls
+    static BridgeCore getCallingCore(){
+        return callingCore.get();
+    }
+
+    static <T> T getCallingContextObject(Class<T> type){
+        BridgeCore core = callingCore.get();
+        return (core != null) ? type.cast(core.contextObjects.get(type)) : null;
+    }
+
+    // Calls the function in the context of this bridge, so its results can go back to the calling page
+    Object call(CallableFunction callableFunction, Object[] arguments) throws Exception {
+        BridgeCore previousCore = callingCore.get();
+        callingCore.set(this);
+        try {
+            return callableFunction.call(arguments);
+        } finally {
+            if (previousCore != null) callingCore.set(previousCore);
+            else callingCore.remove();
+        }
+    }
+
+    void executeJavaScript(String mergeKey, String command){
+        this.domCommandQueue.add(mergeKey, command);
+    }
+
+    // Evaluates the expression after the queued commands, in the same script
+    <T> ScriptResult<T> evaluateJavaScript(String expression, ScriptResult.Decoder<T> decoder){
+        return this.domCommandQueue.addExpression(expression, decoder);
+    }
+
+    // Evaluates all expressions in one script, the result has their values in order
+    <T> ScriptResult<List<T>> evaluateJavaScript(List<String> expressions, ScriptResult.Decoder<T> decoder){
+        return ScriptResult.all(this.domCommandQueue.addExpressions(expressions, decoder));
+    }
+
+    // Calls the functions of a message frame in order on the UI thread, like the calls from the URL hash
+    void dispatchMessageFrame(String frame){
+        final List<BridgeMessage> messages;
+        try {
+            messages = BridgeMessage.parseFrame(frame);
+        } catch (JSONException e) {
+            System.err.println("An error occurred while reading the message: " + e);
+            return;
+        }
+
+        this.host.post(() -> {
+            for (BridgeMessage message : messages)
+                callFunction(message.keyword, message.arguments);
+        });
+    }
+
+    // Calls the function of the URL hash ("keyword=argument&argument"), other hashes are ignored
+    void dispatchHashCall(String hash){
+        BridgeMessage message = BridgeMessage.parseHashCall(hash);
+        if (message != null) callFunction(message.keyword, message.arguments);
+    }
+
+    void callFunction(String keyword, Object[] arguments){
+        final CallableFunction callableFunction = this.callableFunctions.get(keyword);
+        if (callableFunction == null || arguments == null) return;
+
+        // The arguments travel with each call, so concurrent calls of the same keyword can't overwrite each other
+        Executor executor = this.callableFunctionExecutor;
+        if (executor != null) executor.execute(() -> invokeCallableFunction(callableFunction, arguments));
+        else invokeCallableFunction(callableFunction, arguments);
+    }
+
+    private void invokeCallableFunction(CallableFunction callableFunction, Object[] arguments){
+        long start = this.metrics.start();
+        boolean failed = false;
+        try {
+            call(callableFunction, arguments);
+        } catch (InvocationTargetException e) {
+            failed = true;
+            System.err.println("An error occurred while calling " + callableFunction.keyword + ": " + e.getCause());
+        } catch (Exception e) {
+            failed = true;
+            System.err.println("An error occurred while calling " + callableFunction.keyword + ": " + e);
+        }
+        this.metrics.record("callable:" + callableFunction.keyword, start, failed);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.webviewbridge;
+
+import org.json.JSONObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Events of the device for the listeners of Native.on(type, listener) --------------------------------
+//
+// Platform callbacks often come in bursts (a network switch reports lost, available and several
+// changed capabilities within a few milliseconds). The events are collected for debounceMillis after
+// the first one, only the last event of every type is kept, and all of them are passed to the page
+// with one evaluateJavascript().
+
+class BridgeEvents {
+    static final long DEFAULT_DEBOUNCE_MILLIS = 100;
+
+    private final BridgeHost host;
+    private final long debounceMillis;
+    // Detail of the last event of every type as JSON value, in the order of the first event
+    private final Map<String, String> pendingEvents = new LinkedHashMap<>();
+    private boolean flushScheduled = false;
+
+    BridgeEvents(BridgeHost host){
+        this(host, DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    BridgeEvents(BridgeHost host, long debounceMillis){
+        this.host = host;
+        this.debounceMillis = debounceMillis;
+    }
+
+    // Can be called on any thread, e.g. dispatch("connectivity", "{\"status\":\"TYPE_WIFI\"}")
+    void dispatch(String type, String detailJson){
+        synchronized (this) {
+            this.pendingEvents.put(type, detailJson);
+            if (this.flushScheduled) return;
+            this.flushScheduled = true;
+        }
+        this.host.postDelayed(this::flush, this.debounceMillis);
+    }
+
+    // Passes the pending events to the page as [[type, detail], ...], runs on the UI thread
+    void flush(){
+        StringBuilder events = new StringBuilder("[");
+        synchronized (this) {
+            this.flushScheduled = false;
+            if (this.pendingEvents.isEmpty()) return;
+
+            for (Map.Entry<String, String> event : this.pendingEvents.entrySet()) {
+                if (events.length() > 1) events.append(',');
+                events.append('[').append(JSONObject.quote(event.getKey())).append(',').append(event.getValue()).append(']');
+            }
+            this.pendingEvents.clear();
+        }
+        this.host.evaluateJavascript("window.Native&&Native._dispatchEvents(" + events.append(']') + ");", null);
+    }
+}
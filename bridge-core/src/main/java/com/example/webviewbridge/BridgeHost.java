@@ -0,0 +1,44 @@
+package com.example.webviewbridge;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Environment of the bridge: the page that runs the scripts and the platform around it ------------
+//
+// The bridge core (dispatch of the calls, DOM command batching, asynchronous results) only talks to
+// the page through this interface. WebViewHost implements it with an Android WebView, the
+// InMemoryBridgeHost (test fixtures) records the scripts instead, so the core also runs on a plain JVM.
+
+interface BridgeHost {
+
+    // Receives the result of a script as JSON value
+    interface ResultCallback {
+        void onResult(String value);
+    }
+
+    // Must be called on the UI thread, the callback may be null
+    void evaluateJavascript(String script, ResultCallback callback);
+
+    // Runs the task on the UI thread
+    void post(Runnable task);
+
+    // Runs the task on the UI thread before the next frame is drawn
+    void postOnAnimation(Runnable task);
+
+    // Runs the task on the UI thread after the delay
+    void postDelayed(Runnable task, long delayMillis);
+
+    void loadUrl(String url);
+
+    void loadData(String data, String mimeType, String encoding);
+
+    InputStream openAsset(String path) throws IOException;
+
+    File getFilesDir();
+
+    File getCacheDir();
+
+    // Returns the system service with the name of Context.getSystemService(), null if there is none
+    Object getSystemService(String name);
+}
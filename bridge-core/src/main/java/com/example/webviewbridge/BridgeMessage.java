@@ -0,0 +1,87 @@
+package com.example.webviewbridge;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// A single call of a callable function, sent from JavaScript via Android.postMessage() -----------
+//
+// A message is a JSON array with one entry per call, so many calls can be sent in one frame:
+// [[callId, "keyword", [argument, ...]], ...]
+// The arguments keep their JSON types (boolean, number, string, null, object or array).
+
+class BridgeMessage {
+    final int callId;
+    final String keyword;
+    final Object[] arguments;
+
+    BridgeMessage(int callId, String keyword, Object[] arguments){
+        this.callId = callId;
+        this.keyword = keyword;
+        this.arguments = arguments;
+    }
+
+    static List<BridgeMessage> parseFrame(String frame) throws JSONException {
+        JSONArray calls = new JSONArray(frame);
+        List<BridgeMessage> messages = new ArrayList<>(calls.length());
+
+        for (int i = 0; i < calls.length(); i++){
+            JSONArray call = calls.getJSONArray(i);
+            messages.add(new BridgeMessage(call.getInt(0), call.getString(1), parseArguments(call.optJSONArray(2))));
+        }
+        return messages;
+    }
+
+    // Parses a call of the URL hash ("keyword=argument&argument"), null if the hash is not a call
+    static BridgeMessage parseHashCall(String hash){
+        int separator = hash.indexOf('=');
+        if (separator <= 0) return null;
+
+        Object[] arguments = split(hash, separator + 1, '&');
+        return new BridgeMessage(0, hash.substring(0, separator), arguments);
+    }
+
+    // Like String.split() with a single character, but keeps empty arguments at the end (e.g. "a&")
+    private static Object[] split(String value, int start, char separator){
+        int count = 1;
+        for (int i = start; i < value.length(); i++)
+            if (value.charAt(i) == separator) count++;
+
+        Object[] parts = new Object[count];
+        for (int i = 0; i < count; i++) {
+            int end = value.indexOf(separator, start);
+            if (end < 0) end = value.length();
+            parts[i] = value.substring(start, end);
+            start = end + 1;
+        }
+        return parts;
+    }
+
+    static Object[] parseArguments(JSONArray jsonArguments) throws JSONException {
+        Object[] arguments = new Object[(jsonArguments != null) ? jsonArguments.length() : 0];
+
+        for (int i = 0; i < arguments.length; i++)
+            arguments[i] = toJavaValue(jsonArguments.get(i));
+
+        return arguments;
+    }
+
+    // Numbers become Integer where they fit, so they match the parameters of the registered methods
+    private static Object toJavaValue(Object value){
+        if (value == JSONObject.NULL) return null;
+
+        if (value instanceof Number && !(value instanceof Integer)){
+            Number number = (Number) value;
+            double doubleValue = number.doubleValue();
+            if (doubleValue == Math.rint(doubleValue) && doubleValue >= Integer.MIN_VALUE && doubleValue <= Integer.MAX_VALUE)
+                return number.intValue();
+            if (number instanceof Long) return number;
+            return doubleValue;
+        }
+
+        return value;
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.webviewbridge;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Call counts, error counts and latency histograms of the bridge calls, by method name -------------
+//
+// The histograms work like HDR histograms with a fixed precision: every power of two of microseconds
+// is split into 8 linear buckets, so a recorded latency is off by at most 12.5 % and a histogram needs
+// 312 counters for the range from 1 µs to several days. Recording is lock-free, so the metrics can
+// stay enabled in production builds.
+
+class BridgeMetrics {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    // Latencies of one method in microseconds
+    static final class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong count = new AtomicLong(), errors = new AtomicLong(), totalMicros = new AtomicLong(), maxMicros = new AtomicLong();
+
+        void record(long micros, boolean failed){
+            if (micros < 0) micros = 0;
+            this.buckets.incrementAndGet(getBucketIndex(micros));
+            this.count.incrementAndGet();
+            this.totalMicros.addAndGet(micros);
+            if (failed) this.errors.incrementAndGet();
+
+            for (long max = this.maxMicros.get(); micros > max; max = this.maxMicros.get()) {
+                if (this.maxMicros.compareAndSet(max, micros)) break;
+            }
+        }
+
+        long getCount(){
+            return this.count.get();
+        }
+
+        long getErrorCount(){
+            return this.errors.get();
+        }
+
+        // Returns the highest latency of the bucket that contains the given percentile (0 to 100)
+        long getPercentile(double percentile){
+            long count = this.count.get();
+            if (count == 0) return 0;
+
+            long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += this.buckets.get(i);
+                if (seen >= rank) return Math.min(getBucketUpperBound(i), this.maxMicros.get());
+            }
+            return this.maxMicros.get();
+        }
+
+        Map<String, Long> toMap(){
+            Map<String, Long> values = new LinkedHashMap<>();
+            long count = this.count.get();
+            values.put("count", count);
+            values.put("errors", this.errors.get());
+            values.put("meanMicros", (count > 0) ? this.totalMicros.get() / count : 0);
+            values.put("p50Micros", getPercentile(50));
+            values.put("p90Micros", getPercentile(90));
+            values.put("p99Micros", getPercentile(99));
+            values.put("maxMicros", this.maxMicros.get());
+            return values;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private volatile boolean enabled = true;
+
+    void setEnabled(boolean enabled){
+        this.enabled = enabled;
+    }
+
+    // Returns the start time for record(), 0 while the metrics are disabled
+    long start(){
+        return this.enabled ? System.nanoTime() : 0;
+    }
+
+    void record(String method, long startNanos, boolean failed){
+        if (startNanos == 0) return;
+        getHistogram(method).record((System.nanoTime() - startNanos) / 1000, failed);
+    }
+
+    Histogram getHistogram(String method){
+        Histogram histogram = this.histograms.get(method);
+        if (histogram == null) {
+            Histogram newHistogram = new Histogram();
+            histogram = this.histograms.putIfAbsent(method, newHistogram);
+            if (histogram == null) histogram = newHistogram;
+        }
+        return histogram;
+    }
+
+    // Values of all methods sorted by name, e.g. {"callable:loadUrl": {"count": 3, "p99Micros": 415, ...}}
+    Map<String, Map<String, Long>> getSnapshot(){
+        List<String> methods = new ArrayList<>(this.histograms.keySet());
+        Collections.sort(methods);
+
+        Map<String, Map<String, Long>> snapshot = new LinkedHashMap<>();
+        for (String method : methods) {
+            Histogram histogram = this.histograms.get(method);
+            if (histogram != null) snapshot.put(method, histogram.toMap());
+        }
+        return snapshot;
+    }
+
+    void reset(){
+        this.histograms.clear();
+    }
+
+    // Values below 8 µs have their own buckets, larger ones get the 3 bits below the highest bit
+    static int getBucketIndex(long micros){
+        if (micros < SUB_BUCKETS) return (int) micros;
+
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(micros), MAX_EXPONENT);
+        int subBucket = (int) ((Math.min(micros, (1L << (MAX_EXPONENT + 1)) - 1) >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long getBucketUpperBound(int index){
+        if (index < SUB_BUCKETS) return index;
+
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKETS;
+        return ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -0,0 +1,560 @@
+package com.example.webviewbridge;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Key-value store of Native.store, all values are kept in one append-only log ---------------------
+//
+// Writes are visible immediately and collected in memory. A background thread appends them as one
+// frame and syncs the file once per group (group commit), so many small writes cost a single fsync.
+// Every frame has a checksum, a torn frame at the end of the log is dropped when the store is opened,
+// so the writes of a frame (e.g. one batch) are stored completely or not at all.
+//
+// Log:   frame*               Frame: int bodyLength, int crc32, body
+// Body:  operation*           Operation: byte type, int keyLength, key, [int valueLength, value]
+//
+// The index keeps the position of every value in the log, recently used values are also kept in a
+// bounded LRU cache. The log is compacted when it is more than twice as large as its live entries,
+// by a thread of its own, so writes are committed while the compacted log is written next to it.
+//
+// Only one instance may write a log, so the bridges of a process (e.g. a pooled bridge next to the
+// visible one) share it with acquire() and release().
+
+class BridgeStore implements Closeable {
+    private static final byte PUT = 1, DELETE = 2;
+    private static final int FRAME_HEADER_SIZE = 8;
+    private static final Object DELETED = new Object();
+
+    private static final long COMMIT_DELAY_MILLIS = 10;
+    private static final int MAX_FRAME_SIZE = 1024 * 1024;
+    private static final long MIN_COMPACTION_SIZE = 1024 * 1024;
+    private static final long DEFAULT_CACHE_SIZE = 1024 * 1024;
+
+    // Position and length of a committed value in the log
+    private static final class Location {
+        final long position;
+        final int length;
+
+        Location(long position, int length){
+            this.position = position;
+            this.length = length;
+        }
+    }
+
+    // Write that is not committed yet, the value is DELETED for deletions
+    private static final class PendingWrite {
+        final String key;
+        final Object value;
+        final int valueOffset, valueLength;
+
+        PendingWrite(String key, Object value, int valueOffset, int valueLength){
+            this.key = key;
+            this.value = value;
+            this.valueOffset = valueOffset;
+            this.valueLength = valueLength;
+        }
+    }
+
+    // Shared stores by the canonical path of their log, see acquire()
+    private static final HashMap<String, BridgeStore> sharedStores = new HashMap<>();
+
+    private final File file;
+    // Path in sharedStores and number of acquire() calls without release(), guarded by sharedStores
+    private String sharedPath;
+    private int references = 0;
+    private final long maxCacheSize;
+    private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor();
+    private final Object commitLock = new Object();
+
+    // Guarded by this
+    private RandomAccessFile randomAccessFile;
+    private FileChannel channel;
+    private final HashMap<String, Location> index = new HashMap<>();
+    private final HashMap<String, Object> pendingValues = new HashMap<>();
+    private final LinkedHashMap<String, String> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private long cacheSize = 0, logSize = 0, liveSize = 0;
+    private ByteArrayOutputStream pendingFrame = new ByteArrayOutputStream();
+    private DataOutputStream pendingFrameOutput = new DataOutputStream(this.pendingFrame);
+    private List<PendingWrite> pendingWrites = new ArrayList<>();
+    private boolean commitScheduled = false, compactionScheduled = false, closed = false;
+    private int commitCount = 0;
+
+    BridgeStore(File file) throws IOException {
+        this(file, DEFAULT_CACHE_SIZE);
+    }
+
+    // The cache size is the number of characters of the cached values
+    BridgeStore(File file, long maxCacheSize) throws IOException {
+        this.file = file;
+        this.maxCacheSize = maxCacheSize;
+        open();
+    }
+
+    // Returns the store of the log that is already open in this process, or opens it
+    static BridgeStore acquire(File file) throws IOException {
+        String path = file.getCanonicalPath();
+        synchronized (sharedStores) {
+            BridgeStore store = sharedStores.get(path);
+            if (store == null) {
+                store = new BridgeStore(file);
+                store.sharedPath = path;
+                sharedStores.put(path, store);
+            }
+            store.references++;
+            return store;
+        }
+    }
+
+    // Closes a store of acquire() when its last user releases it
+    void release() throws IOException {
+        synchronized (sharedStores) {
+            if (this.sharedPath == null || --this.references > 0) return;
+
+            // Closed while holding the lock, so acquire() doesn't open the log again before the last frame is written
+            sharedStores.remove(this.sharedPath);
+            this.sharedPath = null;
+            close();
+        }
+    }
+
+    synchronized String get(String key){
+        Object pendingValue = this.pendingValues.get(key);
+        if (pendingValue != null) return (pendingValue == DELETED) ? null : (String) pendingValue;
+
+        String value = this.cache.get(key);
+        if (value != null) return value;
+
+        Location location = this.index.get(key);
+        if (location == null) return null;
+
+        try {
+            ByteBuffer buffer = ByteBuffer.allocate(location.length);
+            while (buffer.hasRemaining()) {
+                if (this.channel.read(buffer, location.position + buffer.position()) < 0) throw new IOException("Unexpected end of the log");
+            }
+            value = new String(buffer.array(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.err.println("An error occurred while reading the store: " + e);
+            return null;
+        }
+
+        addToCache(key, value);
+        return value;
+    }
+
+    synchronized boolean contains(String key){
+        Object pendingValue = this.pendingValues.get(key);
+        if (pendingValue != null) return pendingValue != DELETED;
+        return this.index.containsKey(key);
+    }
+
+    synchronized int size(){
+        int size = this.index.size();
+        for (Map.Entry<String, Object> entry : this.pendingValues.entrySet()) {
+            boolean committed = this.index.containsKey(entry.getKey());
+            if (entry.getValue() == DELETED && committed) size--;
+            else if (entry.getValue() != DELETED && !committed) size++;
+        }
+        return size;
+    }
+
+    synchronized void put(String key, String value){
+        if (value == null) {
+            delete(key);
+            return;
+        }
+        addWrite(key, value);
+        scheduleCommit();
+    }
+
+    synchronized void delete(String key){
+        addWrite(key, DELETED);
+        scheduleCommit();
+    }
+
+    // Writes the values (null deletes the key) in the same frame, so they are stored together or not at all
+    synchronized void batch(Map<String, String> values){
+        for (Map.Entry<String, String> entry : values.entrySet())
+            addWrite(entry.getKey(), (entry.getValue() != null) ? entry.getValue() : DELETED);
+        scheduleCommit();
+    }
+
+    // Blocks until all writes made before are on the disk
+    void flush() throws IOException {
+        try {
+            this.writer.submit(() -> {
+                commit();
+                return null;
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw (e.getCause() instanceof IOException) ? (IOException) e.getCause() : new IOException(e.getCause());
+        }
+    }
+
+    // Number of fsyncs since the store was opened
+    synchronized int getCommitCount(){
+        return this.commitCount;
+    }
+
+    synchronized long getLogSize(){
+        return this.logSize;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (this.closed) return;
+        }
+        try {
+            flush();
+        } finally {
+            this.writer.shutdown();
+            // A running compaction still replaces the log
+            this.compactor.shutdown();
+            try {
+                this.compactor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            synchronized (this) {
+                this.closed = true;
+                this.randomAccessFile.close();
+            }
+        }
+    }
+
+    private void addWrite(String key, Object value){
+        if (this.closed) throw new IllegalStateException("The store is closed");
+
+        try {
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            this.pendingFrameOutput.writeByte((value == DELETED) ? DELETE : PUT);
+            this.pendingFrameOutput.writeInt(keyBytes.length);
+            this.pendingFrameOutput.write(keyBytes);
+
+            int valueOffset = -1, valueLength = 0;
+            if (value != DELETED) {
+                byte[] valueBytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+                this.pendingFrameOutput.writeInt(valueBytes.length);
+                valueOffset = this.pendingFrameOutput.size();
+                valueLength = valueBytes.length;
+                this.pendingFrameOutput.write(valueBytes);
+            }
+
+            this.pendingWrites.add(new PendingWrite(key, value, valueOffset, valueLength));
+            this.pendingValues.put(key, value);
+        } catch (IOException e) {
+            // A ByteArrayOutputStream doesn't throw IOExceptions
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void scheduleCommit(){
+        if (this.pendingFrame.size() >= MAX_FRAME_SIZE) {
+            this.commitScheduled = true;
+            this.writer.execute(this::commitSafely);
+        } else if (!this.commitScheduled) {
+            this.commitScheduled = true;
+            this.writer.schedule(this::commitSafely, COMMIT_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void commitSafely(){
+        try {
+            commit();
+        } catch (IOException e) {
+            System.err.println("An error occurred while writing the store: " + e);
+        }
+    }
+
+    // Appends all pending writes as one frame, only the writer thread commits
+    private void commit() throws IOException {
+        synchronized (this.commitLock) {
+            byte[] body;
+            List<PendingWrite> writes;
+            long frameStart;
+            FileChannel channel;
+
+            synchronized (this) {
+                this.commitScheduled = false;
+                if (this.pendingWrites.isEmpty() || this.closed) return;
+
+                body = this.pendingFrame.toByteArray();
+                writes = this.pendingWrites;
+                this.pendingFrame = new ByteArrayOutputStream();
+                this.pendingFrameOutput = new DataOutputStream(this.pendingFrame);
+                this.pendingWrites = new ArrayList<>();
+                frameStart = this.logSize;
+                channel = this.channel;
+            }
+
+            // The file is written outside of the lock, so reads and new writes don't wait for the fsync
+            try {
+                writeFrame(channel, frameStart, body);
+                channel.force(false);
+            } catch (IOException e) {
+                synchronized (this) {
+                    // The writes stay pending, so the next commit tries them again
+                    byte[] newerBody = this.pendingFrame.toByteArray();
+                    this.pendingFrame = new ByteArrayOutputStream();
+                    this.pendingFrame.write(body, 0, body.length);
+                    this.pendingFrame.write(newerBody, 0, newerBody.length);
+                    this.pendingFrameOutput = new DataOutputStream(this.pendingFrame);
+                    for (PendingWrite write : this.pendingWrites)
+                        writes.add(new PendingWrite(write.key, write.value, (write.valueOffset < 0) ? -1 : write.valueOffset + body.length, write.valueLength));
+                    this.pendingWrites = writes;
+                    channel.truncate(frameStart);
+                }
+                throw e;
+            }
+
+            synchronized (this) {
+                this.logSize = frameStart + FRAME_HEADER_SIZE + body.length;
+                this.commitCount++;
+                for (PendingWrite write : writes) {
+                    long valuePosition = frameStart + FRAME_HEADER_SIZE + write.valueOffset;
+                    applyToIndex(write.key, (write.value == DELETED) ? null : new Location(valuePosition, write.valueLength));
+
+                    // Newer writes of the same key are still pending and stay visible
+                    if (this.pendingValues.get(write.key) == write.value) {
+                        this.pendingValues.remove(write.key);
+                        if (write.value != DELETED) addToCache(write.key, (String) write.value);
+                    }
+                }
+
+                if (!this.compactionScheduled && this.logSize >= MIN_COMPACTION_SIZE && this.logSize > 2 * this.liveSize) {
+                    this.compactionScheduled = true;
+                    this.compactor.execute(this::compactSafely);
+                }
+            }
+        }
+    }
+
+    // The frames are committed already, so a failed compaction is not an error of a commit or flush()
+    private void compactSafely(){
+        try {
+            compact();
+        } catch (IOException e) {
+            System.err.println("An error occurred while compacting the store: " + e);
+        } finally {
+            synchronized (this) {
+                this.compactionScheduled = false;
+            }
+        }
+    }
+
+    private void applyToIndex(String key, Location location){
+        Location previous = (location != null) ? this.index.put(key, location) : this.index.remove(key);
+        int keyLength = key.getBytes(StandardCharsets.UTF_8).length;
+
+        if (previous != null) this.liveSize -= 9 + keyLength + previous.length;
+        if (location != null) this.liveSize += 9 + keyLength + location.length;
+        else this.cacheSize -= sizeOf(this.cache.remove(key));
+    }
+
+    private void addToCache(String key, String value){
+        this.cacheSize -= sizeOf(this.cache.put(key, value));
+        this.cacheSize += value.length();
+
+        Iterator<String> eldestValues = this.cache.values().iterator();
+        while (this.cacheSize > this.maxCacheSize && eldestValues.hasNext()) {
+            this.cacheSize -= eldestValues.next().length();
+            eldestValues.remove();
+        }
+    }
+
+    private static long sizeOf(String value){
+        return (value != null) ? value.length() : 0;
+    }
+
+    private static void writeFrame(FileChannel channel, long position, byte[] body) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + body.length);
+        frame.putInt(body.length).putInt((int) crc.getValue()).put(body);
+        frame.flip();
+        while (frame.hasRemaining()) position += channel.write(frame, position);
+    }
+
+    // Reads the log and rebuilds the index, a damaged frame and everything after it is cut off
+    private synchronized void open() throws IOException {
+        this.randomAccessFile = new RandomAccessFile(this.file, "rw");
+        this.channel = this.randomAccessFile.getChannel();
+        this.index.clear();
+        this.cache.clear();
+        this.cacheSize = this.liveSize = 0;
+
+        long size = this.channel.size(), position = 0;
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+        while (position + FRAME_HEADER_SIZE <= size) {
+            header.clear();
+            readFully(this.channel, header, position);
+            header.flip();
+            int bodyLength = header.getInt(), checksum = header.getInt();
+            if (bodyLength < 0 || position + FRAME_HEADER_SIZE + bodyLength > size) break;
+
+            ByteBuffer body = ByteBuffer.allocate(bodyLength);
+            readFully(this.channel, body, position + FRAME_HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            crc.update(body.array(), 0, bodyLength);
+            if ((int) crc.getValue() != checksum || !readFrame(body.array(), position + FRAME_HEADER_SIZE)) break;
+
+            position += FRAME_HEADER_SIZE + bodyLength;
+        }
+
+        if (position < size) {
+            System.err.println("Dropped " + (size - position) + " damaged bytes at the end of the store");
+            this.channel.truncate(position);
+        }
+        this.logSize = position;
+    }
+
+    private boolean readFrame(byte[] body, long bodyPosition){
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        List<String> keys = new ArrayList<>();
+        List<Location> locations = new ArrayList<>();
+
+        // The operations are applied after the whole frame was checked
+        while (buffer.hasRemaining()) {
+            if (buffer.remaining() < 5) return false;
+            byte type = buffer.get();
+            int keyLength = buffer.getInt();
+            if (keyLength < 0 || keyLength > buffer.remaining()) return false;
+            keys.add(new String(body, buffer.position(), keyLength, StandardCharsets.UTF_8));
+            buffer.position(buffer.position() + keyLength);
+
+            if (type == DELETE) {
+                locations.add(null);
+            } else if (type == PUT && buffer.remaining() >= 4) {
+                int valueLength = buffer.getInt();
+                if (valueLength < 0 || valueLength > buffer.remaining()) return false;
+                locations.add(new Location(bodyPosition + buffer.position(), valueLength));
+                buffer.position(buffer.position() + valueLength);
+            } else {
+                return false;
+            }
+        }
+
+        for (int i = 0; i < keys.size(); i++) applyToIndex(keys.get(i), locations.get(i));
+        return true;
+    }
+
+    // Writes the live entries into a new log that replaces the old one. The entries are copied without
+    // holding a lock, frames committed in the meantime are appended to the new log when it replaces the old one.
+    private void compact() throws IOException {
+        File compactedFile = new File(this.file.getPath() + ".compact");
+        HashMap<String, Location> snapshotIndex, compactedIndex = new HashMap<>();
+        long snapshotSize, position = 0;
+        FileChannel channel;
+
+        synchronized (this) {
+            if (this.closed) return;
+            snapshotIndex = new HashMap<>(this.index);
+            snapshotSize = this.logSize;
+            channel = this.channel;
+        }
+
+        try (RandomAccessFile compactedRandomAccessFile = new RandomAccessFile(compactedFile, "rw")) {
+            FileChannel compactedChannel = compactedRandomAccessFile.getChannel();
+            compactedChannel.truncate(0);
+
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            DataOutputStream bodyOutput = new DataOutputStream(body);
+            Map<String, Integer> frameOffsets = new LinkedHashMap<>();
+
+            // Only compact() replaces the channel and committed frames are never changed, so they're read without the lock
+            Iterator<Map.Entry<String, Location>> entries = snapshotIndex.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<String, Location> entry = entries.next();
+                byte[] keyBytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                ByteBuffer value = ByteBuffer.allocate(entry.getValue().length);
+                readFully(channel, value, entry.getValue().position);
+
+                bodyOutput.writeByte(PUT);
+                bodyOutput.writeInt(keyBytes.length);
+                bodyOutput.write(keyBytes);
+                bodyOutput.writeInt(value.capacity());
+                frameOffsets.put(entry.getKey(), body.size());
+                bodyOutput.write(value.array());
+
+                if (body.size() >= MAX_FRAME_SIZE || !entries.hasNext()) {
+                    writeFrame(compactedChannel, position, body.toByteArray());
+                    for (Map.Entry<String, Integer> offset : frameOffsets.entrySet()) {
+                        Location location = snapshotIndex.get(offset.getKey());
+                        compactedIndex.put(offset.getKey(), new Location(position + FRAME_HEADER_SIZE + offset.getValue(), location.length));
+                    }
+                    position += FRAME_HEADER_SIZE + body.size();
+                    body.reset();
+                    frameOffsets.clear();
+                }
+            }
+            compactedChannel.force(false);
+
+            // No frame is written while the logs are swapped
+            synchronized (this.commitLock) {
+                synchronized (this) {
+                    if (this.closed) return;
+
+                    long appendedSize = this.logSize - snapshotSize;
+                    if (appendedSize > 0) {
+                        long copied = 0;
+                        while (copied < appendedSize)
+                            copied += this.channel.transferTo(snapshotSize + copied, appendedSize - copied, compactedChannel.position(position + copied));
+                        compactedChannel.force(false);
+                    }
+                    compactedRandomAccessFile.close();
+
+                    this.randomAccessFile.close();
+                    if (!compactedFile.renameTo(this.file)) {
+                        //noinspection ResultOfMethodCallIgnored
+                        compactedFile.delete();
+                        open();
+                        throw new IOException("Could not replace " + this.file);
+                    }
+                    this.randomAccessFile = new RandomAccessFile(this.file, "rw");
+                    this.channel = this.randomAccessFile.getChannel();
+
+                    // Entries written after the snapshot are in the appended frames, the others were compacted
+                    for (Map.Entry<String, Location> entry : this.index.entrySet()) {
+                        Location location = entry.getValue();
+                        entry.setValue((location.position >= snapshotSize)
+                                ? new Location(location.position - snapshotSize + position, location.length)
+                                : compactedIndex.get(entry.getKey()));
+                    }
+                    this.logSize = position + appendedSize;
+                }
+            }
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) throw new IOException("Unexpected end of the log");
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.webviewbridge;
+
+import com.example.webviewbridge.annotations.BridgeMethods;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Class for creating functions that can be called from HTTP fragments (#Fragment) -----------------
+
+class CallableFunction{
+
+    final Object classObject;
+    final String methodName, keyword;
+    // Type of the context object of the calling bridge that the method is called on, null for functions
+    // with a fixed object (see BridgeCore.getCallingContextObject())
+    final Class<?> contextType;
+    final Object[] arguments;
+
+    // Decoders for the declared arguments, resolved once instead of guessing the type of every value
+    private final ArgumentType[] argumentTypes;
+
+    // Generated dispatcher of a @BridgeMethod, called without reflection (null for reflective functions)
+    private final BridgeMethods bridgeMethods;
+    private final int bridgeMethodIndex;
+
+    // Methods that were already resolved for this function, one entry per argument type signature
+    private final CopyOnWriteArrayList<ResolvedMethod> resolvedMethods = new CopyOnWriteArrayList<>();
+
+    CallableFunction(Object classObject, String methodName, String keyword){
+        this(classObject, methodName, keyword, new Object[0]);
+    }
+
+    // The arguments describe the declared parameters, the actual values are passed to invokeMethod()
+    CallableFunction(Object classObject, String methodName, String keyword, Object[] arguments){
+        this(classObject, null, methodName, keyword, arguments);
+    }
+
+    // Calls the method on the context object of the type that belongs to the calling bridge, so one function
+    // serves all bridges, e.g. new CallableFunction(WebViewBridge.class, "loadUrl", "loadUrl", new Object[] {"String"})
+    CallableFunction(Class<?> contextType, String methodName, String keyword, Object[] arguments){
+        this(null, contextType, methodName, keyword, arguments);
+    }
+
+    private CallableFunction(Object classObject, Class<?> contextType, String methodName, String keyword, Object[] arguments){
+        this.classObject = classObject;
+        this.contextType = contextType;
+        this.methodName = methodName;
+        this.keyword = keyword;
+        this.arguments = arguments.clone();
+        this.argumentTypes = ArgumentType.of(this.arguments);
+        this.bridgeMethods = null;
+        this.bridgeMethodIndex = -1;
+    }
+
+    CallableFunction(BridgeMethods bridgeMethods, int index, String keyword){
+        this.classObject = bridgeMethods;
+        this.contextType = null;
+        this.methodName = keyword;
+        this.keyword = keyword;
+        this.arguments = bridgeMethods.getParameterTypes(index);
+        this.argumentTypes = ArgumentType.of(this.arguments);
+        this.bridgeMethods = bridgeMethods;
+        this.bridgeMethodIndex = index;
+    }
+
+    @SuppressWarnings("unused")
+    public String getKeyword() {
+        return this.keyword;
+    }
+
+    // Holds no state per call, so it can be called from several threads at once and re-entrantly
+    public void invokeMethod(Object... arguments) {
+        try {
+            call(arguments);
+        } catch (Exception e) {
+            System.err.println("Error: " + e);
+        }
+    }
+
+    // Same as invokeMethod(), but returns the result and passes errors to the caller
+    public Object call(Object... arguments) throws Exception {
+        Object[] decodedArguments = decodeArguments(arguments);
+        if (decodedArguments == null)
+            throw new IllegalArgumentException("Invalid arguments for " + this.keyword + ": " + Arrays.toString(arguments));
+
+        if (this.bridgeMethods != null) return this.bridgeMethods.call(this.bridgeMethodIndex, decodedArguments);
+        return resolveMethod(decodedArguments).invoke(getTarget(), decodedArguments);
+    }
+
+    // Converts the values (e.g. the strings of the URL hash) to the declared types, null if they don't match
+    Object[] decodeArguments(Object[] values){
+        return ArgumentType.decodeAll(this.argumentTypes, values);
+    }
+
+    private Object getTarget(){
+        if (this.contextType == null) return this.classObject;
+
+        Object target = BridgeCore.getCallingContextObject(this.contextType);
+        if (target == null) throw new IllegalStateException(this.keyword + " can only be called by a bridge with a " + this.contextType.getSimpleName());
+        return target;
+    }
+
+    // Looks up the method for the given arguments only once per type signature and reuses it afterwards
+    private Method resolveMethod(Object[] arguments) throws NoSuchMethodException {
+        for (ResolvedMethod resolvedMethod : this.resolvedMethods)
+            if (resolvedMethod.matches(arguments)) return resolvedMethod.method;
+
+        Class<?>[] argumentClasses = getArgumentClasses(arguments);
+        Method method = findMethod((this.contextType != null) ? this.contextType : this.classObject.getClass(), argumentClasses);
+        method.setAccessible(true);
+        this.resolvedMethods.add(new ResolvedMethod(argumentClasses, method));
+        return method;
+    }
+
+    // Prefers an exact match and falls back to overloads with primitive or widened parameter types (e.g. int for Integer)
+    private Method findMethod(Class<?> type, Class<?>[] argumentClasses) throws NoSuchMethodException {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            try {
+                return current.getDeclaredMethod(this.methodName, argumentClasses);
+            } catch (NoSuchMethodException ignored) {
+                // Continues with the superclass and the compatible overloads
+            }
+        }
+
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+            for (Method method : current.getDeclaredMethods()) {
+                if (method.getName().equals(this.methodName) && parametersMatch(method.getParameterTypes(), argumentClasses))
+                    return method;
+            }
+        }
+
+        throw new NoSuchMethodException(type.getName() + "." + this.methodName + Arrays.toString(argumentClasses));
+    }
+
+    private static boolean parametersMatch(Class<?>[] parameterTypes, Class<?>[] argumentClasses){
+        if (parameterTypes.length != argumentClasses.length) return false;
+
+        for (int i = 0; i < parameterTypes.length; i++){
+            Class<?> parameterType = parameterTypes[i], argumentClass = argumentClasses[i];
+
+            if (argumentClass == null) {
+                if (parameterType.isPrimitive()) return false;
+            } else if (parameterType.isPrimitive()) {
+                if (!isAssignablePrimitive(parameterType, argumentClass)) return false;
+            } else if (!parameterType.isAssignableFrom(argumentClass)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Checks the unboxing and widening conversions that Method.invoke() applies to primitive parameters
+    private static boolean isAssignablePrimitive(Class<?> primitiveType, Class<?> argumentClass){
+        if (argumentClass == Boolean.class) return primitiveType == boolean.class;
+        if (argumentClass == Character.class) return primitiveType == char.class || primitiveType == int.class || primitiveType == long.class || primitiveType == float.class || primitiveType == double.class;
+        if (argumentClass == Byte.class) return primitiveType == byte.class || primitiveType == short.class || primitiveType == int.class || primitiveType == long.class || primitiveType == float.class || primitiveType == double.class;
+        if (argumentClass == Short.class) return primitiveType == short.class || primitiveType == int.class || primitiveType == long.class || primitiveType == float.class || primitiveType == double.class;
+        if (argumentClass == Integer.class) return primitiveType == int.class || primitiveType == long.class || primitiveType == float.class || primitiveType == double.class;
+        if (argumentClass == Long.class) return primitiveType == long.class || primitiveType == float.class || primitiveType == double.class;
+        if (argumentClass == Float.class) return primitiveType == float.class || primitiveType == double.class;
+        if (argumentClass == Double.class) return primitiveType == double.class;
+        return false;
+    }
+
+    private static Class<?>[] getArgumentClasses(Object[] arguments){
+        Class<?>[] argumentClasses = new Class<?>[arguments.length];
+        for(int i = 0; i < argumentClasses.length; i++){
+            argumentClasses[i] = (arguments[i] != null) ? arguments[i].getClass() : null;
+        }
+
+        return argumentClasses;
+    }
+
+    // A method that was resolved once for a specific argument type signature
+    private static class ResolvedMethod {
+        final Class<?>[] argumentClasses;
+        final Method method;
+
+        ResolvedMethod(Class<?>[] argumentClasses, Method method){
+            this.argumentClasses = argumentClasses;
+            this.method = method;
+        }
+
+        // Compares the signature without allocating, because this runs on every call
+        boolean matches(Object[] arguments){
+            if (arguments.length != this.argumentClasses.length) return false;
+
+            for (int i = 0; i < arguments.length; i++){
+                Class<?> argumentClass = (arguments[i] != null) ? arguments[i].getClass() : null;
+                if (argumentClass != this.argumentClasses[i]) return false;
+            }
+            return true;
+        }
+    }
+}
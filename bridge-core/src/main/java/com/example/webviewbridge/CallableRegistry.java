@@ -0,0 +1,70 @@
+package com.example.webviewbridge;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Callable functions by keyword, shared by all bridges of an app ------------------------------------
+//
+// Functions are looked up with every call but registered rarely, so the registry is an immutable map
+// that is copied on every change: lookups read a volatile field without locking, and any number of
+// bridges (tabs, one WebView per fragment) can share one registry instead of a map each.
+
+class CallableRegistry {
+    private volatile Map<String, CallableFunction> functions = Collections.emptyMap();
+    // Stubs of the registered @BridgeMethod classes, read by hybrid-app.js when a page is loaded
+    private final CopyOnWriteArrayList<String> scripts = new CopyOnWriteArrayList<>();
+
+    CallableFunction get(String keyword){
+        return this.functions.get(keyword);
+    }
+
+    synchronized void put(String keyword, CallableFunction function){
+        Map<String, CallableFunction> newFunctions = new HashMap<>(this.functions);
+        newFunctions.put(keyword, function);
+        this.functions = Collections.unmodifiableMap(newFunctions);
+    }
+
+    // Adds the function only if the keyword is unused, e.g. for the built-in functions of every bridge
+    synchronized boolean putIfAbsent(String keyword, CallableFunction function){
+        if (this.functions.containsKey(keyword)) return false;
+
+        put(keyword, function);
+        return true;
+    }
+
+    // Adds all functions with one copy, e.g. the methods of a BridgeMethods class
+    synchronized void putAll(Map<String, CallableFunction> functions){
+        Map<String, CallableFunction> newFunctions = new HashMap<>(this.functions);
+        newFunctions.putAll(functions);
+        this.functions = Collections.unmodifiableMap(newFunctions);
+    }
+
+    synchronized void remove(String keyword){
+        if (!this.functions.containsKey(keyword)) return;
+
+        Map<String, CallableFunction> newFunctions = new HashMap<>(this.functions);
+        newFunctions.remove(keyword);
+        this.functions = Collections.unmodifiableMap(newFunctions);
+    }
+
+    // The current functions, later changes don't affect the returned map
+    Map<String, CallableFunction> snapshot(){
+        return this.functions;
+    }
+
+    int size(){
+        return this.functions.size();
+    }
+
+    // Every bridge of a shared registry may add the same class, its stub is needed only once
+    void addScript(String script){
+        this.scripts.addIfAbsent(script);
+    }
+
+    List<String> getScripts(){
+        return this.scripts;
+    }
+}
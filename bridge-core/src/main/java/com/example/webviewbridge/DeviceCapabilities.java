@@ -0,0 +1,54 @@
+package com.example.webviewbridge;
+
+import org.json.JSONObject;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Snapshot of the device features for Native.capabilities() ----------------------------------------
+//
+// The values (camera, torch, vibrator, connectivity, night mode and the granted permissions) are read
+// by the WebViewBridge at startup and again when something may have changed; update() tells whether
+// the page has to be informed. The JSON is only written again after a change.
+
+class DeviceCapabilities {
+    private final Map<String, Object> values = new LinkedHashMap<>();
+    private String json;
+
+    // Replaces the values, returns true if any of them changed
+    synchronized boolean update(Map<String, ?> newValues){
+        if (this.values.equals(newValues)) return false;
+
+        this.values.clear();
+        this.values.putAll(newValues);
+        this.json = null;
+        return true;
+    }
+
+    // Changes a single value, e.g. put("connectivity", "TYPE_WIFI"), returns true if it changed
+    synchronized boolean put(String name, Object value){
+        if (this.values.containsKey(name) && equals(this.values.get(name), value)) return false;
+
+        this.values.put(name, value);
+        this.json = null;
+        return true;
+    }
+
+    synchronized boolean isEmpty(){
+        return this.values.isEmpty();
+    }
+
+    synchronized Object get(String name){
+        return this.values.get(name);
+    }
+
+    // E.g. {"camera":true,"torchCameraId":"0",...,"permissions":{"android.permission.CAMERA":false}}
+    synchronized String toJson(){
+        if (this.json == null) this.json = new JSONObject(this.values).toString();
+        return this.json;
+    }
+
+    private static boolean equals(Object a, Object b){
+        return (a == null) ? b == null : a.equals(b);
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.webviewbridge;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+// Collects the JavaScript commands of the WebViewBridge and runs them as one script per frame -----
+//
+// Commands with the same merge key (e.g. the same CSS property of the same element) replace each
+// other, so only the last write is sent. The commands wait while a page is loading and are flushed
+// after onPageFinished, otherwise they are flushed with the next frame. The prelude (e.g. the
+// helper runtime of DomScripts) runs once per page before the first commands.
+//
+// Expressions with a ScriptResult run in the same script as the commands, after the commands queued
+// before them. Their values are collected in one object by the number of the expression, which is
+// the value of the script, so any number of results needs one round trip.
+
+class DomCommandQueue {
+    // Collects the values of the expressions during a script, removed again by its last statement
+    private static final String RESULTS_VARIABLE = "window._bridgeResults";
+    private static final String RESULTS_SCRIPT = "(function(r){delete window._bridgeResults;return r;})(" + RESULTS_VARIABLE + ");";
+
+    private final BridgeHost host;
+    private final BridgeHost.ResultCallback resultCallback;
+    private final String prelude;
+    private final LinkedHashMap<String, String> commands = new LinkedHashMap<>();
+    // Results of the queued and of the sent expressions, by the key of their command
+    private final Map<String, ScriptResult<?>> results = new HashMap<>();
+    private long nextCommandNumber = 0;
+    private boolean pageLoaded = false, flushScheduled = false, preludeSent = false;
+
+    DomCommandQueue(BridgeHost host, BridgeHost.ResultCallback resultCallback){
+        this(host, resultCallback, null);
+    }
+
+    DomCommandQueue(BridgeHost host, BridgeHost.ResultCallback resultCallback, String prelude){
+        this.host = host;
+        this.resultCallback = resultCallback;
+        this.prelude = prelude;
+    }
+
+    void add(String command){
+        add(null, command);
+    }
+
+    // Merge key of the parts, e.g. mergeKey("style", DomScripts.BY_ID, id, attribute). The parts are separated
+    // by NUL, which can't appear in ids, class names or attributes, so different parts never give the same key
+    // (with "#" the id "a#b" and attribute "c" collided with the id "a" and attribute "b#c").
+    static String mergeKey(String... parts){
+        StringBuilder key = new StringBuilder();
+        for (String part : parts) {
+            if (key.length() > 0) key.append('\u0000');
+            key.append(part);
+        }
+        return key.toString();
+    }
+
+    // A command with a merge key replaces a pending command with the same key and moves to the end
+    synchronized void add(String mergeKey, String command){
+        if (mergeKey == null) mergeKey = "#" + (this.nextCommandNumber++);
+        else this.commands.remove(mergeKey);
+
+        this.commands.put(mergeKey, command);
+        scheduleFlush();
+    }
+
+    // Queues the expression, the result receives its value after the commands queued before it
+    synchronized <T> ScriptResult<T> addExpression(String expression, ScriptResult.Decoder<T> decoder){
+        long id = this.nextCommandNumber++;
+        String key = "#" + id;
+        ScriptResult<T> result = new ScriptResult<>(id, decoder);
+
+        this.commands.put(key, buildExpressionCommand(key, expression));
+        this.results.put(key, result);
+        scheduleFlush();
+        return result;
+    }
+
+    // Queues the expressions together, so they are evaluated in the same script
+    synchronized <T> List<ScriptResult<T>> addExpressions(List<String> expressions, ScriptResult.Decoder<T> decoder){
+        List<ScriptResult<T>> expressionResults = new ArrayList<>(expressions.size());
+        for (String expression : expressions) expressionResults.add(addExpression(expression, decoder));
+        return expressionResults;
+    }
+
+    // Cancels the results that are still missing, e.g. when the bridge is destroyed
+    void cancelResults(){
+        List<ScriptResult<?>> cancelledResults;
+        synchronized (this) {
+            cancelledResults = new ArrayList<>(this.results.values());
+            for (String key : this.results.keySet()) this.commands.remove(key);
+            this.results.clear();
+        }
+        for (ScriptResult<?> result : cancelledResults) result.cancel(false);
+    }
+
+    synchronized void onPageStarted(){
+        this.pageLoaded = false;
+        this.preludeSent = false;
+    }
+
+    synchronized void onPageFinished(){
+        this.pageLoaded = true;
+        scheduleFlush();
+    }
+
+    synchronized int size(){
+        return this.commands.size();
+    }
+
+    private void scheduleFlush(){
+        if (this.pageLoaded && !this.flushScheduled && !this.commands.isEmpty()) {
+            this.flushScheduled = true;
+            this.host.postOnAnimation(this::flush);
+        }
+    }
+
+    private void flush(){
+        String script;
+        final List<String> resultKeys = new ArrayList<>();
+        synchronized (this) {
+            this.flushScheduled = false;
+            if (!this.pageLoaded || this.commands.isEmpty()) return;
+
+            for (String key : this.commands.keySet())
+                if (this.results.containsKey(key)) resultKeys.add(key);
+
+            script = buildScript(this.preludeSent ? null : this.prelude, this.commands);
+            if (!resultKeys.isEmpty()) script = RESULTS_VARIABLE + "={};" + script + "\n" + RESULTS_SCRIPT;
+            this.commands.clear();
+            this.preludeSent = true;
+        }
+
+        if (resultKeys.isEmpty()) this.host.evaluateJavascript(script, this.resultCallback);
+        else this.host.evaluateJavascript(script, value -> completeResults(resultKeys, value));
+    }
+
+    // The results of the script are {key: [1, JSON text of the value]} or {key: [0, error message]}
+    private void completeResults(List<String> resultKeys, String value){
+        List<ScriptResult<?>> scriptResults = new ArrayList<>(resultKeys.size());
+        synchronized (this) {
+            for (String key : resultKeys) scriptResults.add(this.results.remove(key));
+        }
+
+        JSONObject values = null;
+        Exception error = null;
+        try {
+            if (value == null || "null".equals(value)) error = new CancellationException("The page was changed before the script finished");
+            else values = new JSONObject(value);
+        } catch (JSONException e) {
+            error = e;
+        }
+
+        for (int i = 0; i < resultKeys.size(); i++) {
+            ScriptResult<?> result = scriptResults.get(i);
+            if (result == null) continue;
+            if (values == null) {
+                result.fail(error);
+                continue;
+            }
+
+            JSONArray entry = values.optJSONArray(resultKeys.get(i));
+            if (entry == null) result.fail(new IllegalStateException("The script " + result.getId() + " has no result"));
+            else if (entry.optInt(0) == 1) result.complete(entry.isNull(1) ? "null" : entry.optString(1));
+            else result.fail(new IllegalStateException("The script " + result.getId() + " failed: " + entry.optString(1)));
+        }
+    }
+
+    // Stores the value (as JSON text, undefined becomes null) or the error of the expression by its key in the results variable
+    static String buildExpressionCommand(String key, String expression){
+        return "try{" + RESULTS_VARIABLE + "['" + key + "']=[1,JSON.stringify((" + expression + "\n))];}catch(e){" + RESULTS_VARIABLE + "['" + key + "']=[0,String(e)];}";
+    }
+
+    // An error in one command doesn't stop the following ones, the result is the one of the last command
+    static String buildScript(String prelude, Map<String, String> commands){
+        int length = (prelude != null) ? prelude.length() : 0;
+        for (String command : commands.values()) length += command.length() + 40;
+
+        StringBuilder script = new StringBuilder(length);
+        if (prelude != null) script.append(prelude).append('\n');
+        for (String command : commands.values())
+            script.append("try{").append(command).append("\n}catch(e){console.error(e);}");
+
+        return script.toString();
+    }
+}
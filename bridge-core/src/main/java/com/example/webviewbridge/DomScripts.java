@@ -0,0 +1,100 @@
+package com.example.webviewbridge;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Helper runtime for the DOM functions of the WebViewBridge and the calls of its functions ---------
+//
+// The runtime is injected once per page (before the first DOM command), afterwards every DOM
+// command is a short call like __bridge.setStyle('c','card','borderTopLeftRadius','4px'); instead
+// of a whole script. All arguments are escaped string literals, so ids, class names and values
+// can't break out of the call.
+
+class DomScripts {
+    // Selects the elements of a call
+    static final String BY_ID = "i", BY_CLASS = "c", BY_TAG_NAME = "t";
+
+    // Collections are copied first, so elements added or removed by the call don't change the iteration
+    static final String RUNTIME = "window.__bridge||(window.__bridge=(function(){"
+            + "function each(t,s,f){"
+            + "if(t==='i'){var e=document.getElementById(s);if(e)f(e);return;}"
+            + "var l=Array.prototype.slice.call(t==='c'?document.getElementsByClassName(s):document.getElementsByTagName(s));"
+            + "for(var i=0;i<l.length;i++)f(l[i]);}"
+            + "return{"
+            + "setStyle:function(t,s,p,v){each(t,s,function(e){if(p.lastIndexOf('--',0)===0)e.style.setProperty(p,v);else e.style[p]=v;});},"
+            + "setProperty:function(t,s,n,v){each(t,s,function(e){e[n]=v;});},"
+            + "insertHtml:function(t,s,p,h){each(t,s,function(e){e.insertAdjacentHTML(p,h);});},"
+            + "remove:function(t,s){each(t,s,function(e){e.remove();});}"
+            + "};})());";
+
+    private static final int MAX_CACHED_PROPERTY_NAMES = 512;
+    private static final Map<String, String> stylePropertyNames = new ConcurrentHashMap<>();
+
+    private DomScripts(){}
+
+    // Converts a CSS property to the name of the style property, e.g. border-top-left-radius to
+    // borderTopLeftRadius and -webkit-transform to webkitTransform. Custom properties (--name) stay as they are.
+    static String toStylePropertyName(String cssProperty){
+        String propertyName = stylePropertyNames.get(cssProperty);
+        if (propertyName != null) return propertyName;
+
+        propertyName = convertStylePropertyName(cssProperty);
+        if (stylePropertyNames.size() < MAX_CACHED_PROPERTY_NAMES) stylePropertyNames.put(cssProperty, propertyName);
+        return propertyName;
+    }
+
+    private static String convertStylePropertyName(String cssProperty){
+        String property = cssProperty.trim();
+        if (property.startsWith("--") || property.indexOf('-') < 0) return property;
+
+        // The vendor prefix stays lower case (webkitTransform), the WebView accepts this spelling
+        if (property.startsWith("-")) property = property.substring(1);
+
+        StringBuilder propertyName = new StringBuilder(property.length());
+        boolean upperCase = false;
+        for (int i = 0; i < property.length(); i++) {
+            char c = property.charAt(i);
+            if (c == '-') {
+                upperCase = propertyName.length() > 0;
+            } else {
+                propertyName.append(upperCase ? Character.toUpperCase(c) : Character.toLowerCase(c));
+                upperCase = false;
+            }
+        }
+        return propertyName.toString();
+    }
+
+    // Writes __bridge.<function>('<argument>',...); with escaped arguments
+    static String call(String function, String... arguments){
+        int length = function.length() + 12;
+        for (String argument : arguments) length += ((argument != null) ? argument.length() : 4) + 3;
+
+        StringBuilder script = new StringBuilder(length);
+        JavaScriptString escapedScript = new JavaScriptString(script);
+        script.append("__bridge.").append(function).append('(');
+        for (int i = 0; i < arguments.length; i++) {
+            if (i > 0) script.append(',');
+            script.append('\'');
+            escapedScript.append(arguments[i]);
+            script.append('\'');
+        }
+        return script.append(");").toString();
+    }
+
+    // Writes the call of insertHtml with the node directly into the script, without a string of the HTML first
+    static String callInsertHtml(String selectorType, String selector, String position, HtmlNode htmlNode){
+        StringBuilder script = new StringBuilder(256);
+        JavaScriptString escapedScript = new JavaScriptString(script);
+        script.append("__bridge.insertHtml('").append(selectorType).append("','");
+        escapedScript.append(selector);
+        script.append("','").append(position).append("','");
+        try {
+            htmlNode.writeTo(escapedScript);
+        } catch (IOException e) {
+            // A StringBuilder doesn't throw IOExceptions
+            throw new IllegalStateException(e);
+        }
+        return script.append("');").toString();
+    }
+}
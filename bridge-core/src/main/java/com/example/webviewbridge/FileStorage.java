@@ -0,0 +1,204 @@
+package com.example.webviewbridge;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Reads and writes the files of readFile()/writeFile() with FileChannels ----------------------------
+//
+// Texts are always UTF-8 and keep their content byte for byte (line breaks included). Writes go to
+// a unique temporary file that replaces the target with a rename, so readers never see a half
+// written file and concurrent writers don't mix their contents.
+// Large files can be read memory-mapped or in chunks, so they don't have to be copied at once.
+
+class FileStorage {
+    static final int DEFAULT_CHUNK_SIZE = 256 * 1024;
+    private static final int ENCODE_BUFFER_SIZE = 16 * 1024;
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private FileStorage(){}
+
+    static void writeText(File file, String text) throws IOException {
+        File temporaryFile = createTemporaryFile(file);
+
+        try (FileOutputStream outputStream = new FileOutputStream(temporaryFile)) {
+            FileChannel channel = outputStream.getChannel();
+            CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+            // The text is encoded through small reused buffers instead of one byte array of the whole text
+            char[] chars = new char[ENCODE_BUFFER_SIZE];
+            CharBuffer charBuffer = CharBuffer.wrap(chars);
+            ByteBuffer byteBuffer = ByteBuffer.allocate(ENCODE_BUFFER_SIZE * 3);
+            charBuffer.limit(0);
+
+            for (int position = 0; ; ) {
+                // Keeps an unfinished surrogate pair at the start of the buffer for the next round
+                charBuffer.compact();
+                int count = Math.min(charBuffer.remaining(), text.length() - position);
+                text.getChars(position, position + count, chars, charBuffer.position());
+                charBuffer.position(charBuffer.position() + count);
+                position += count;
+                charBuffer.flip();
+
+                boolean endOfInput = position == text.length();
+                CoderResult result = encoder.encode(charBuffer, byteBuffer, endOfInput);
+                if (result.isError()) result.throwException();
+                writeFully(channel, byteBuffer);
+                if (endOfInput && !charBuffer.hasRemaining()) break;
+            }
+
+            encoder.flush(byteBuffer);
+            writeFully(channel, byteBuffer);
+            channel.force(false);
+        } catch (IOException e) {
+            //noinspection ResultOfMethodCallIgnored
+            temporaryFile.delete();
+            throw e;
+        }
+
+        replace(temporaryFile, file);
+    }
+
+    static void writeBytes(File file, byte[] data) throws IOException {
+        File temporaryFile = createTemporaryFile(file);
+
+        try (FileOutputStream outputStream = new FileOutputStream(temporaryFile)) {
+            FileChannel channel = outputStream.getChannel();
+            ByteBuffer byteBuffer = ByteBuffer.wrap(data);
+            while (byteBuffer.hasRemaining()) channel.write(byteBuffer);
+            channel.force(false);
+        } catch (IOException e) {
+            //noinspection ResultOfMethodCallIgnored
+            temporaryFile.delete();
+            throw e;
+        }
+
+        replace(temporaryFile, file);
+    }
+
+    // Files from mapThreshold bytes on are memory-mapped instead of copied into the heap first
+    static String readText(File file, long mapThreshold) throws IOException {
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            FileChannel channel = inputStream.getChannel();
+            long size = channel.size();
+
+            if (size >= mapThreshold && size > 0) {
+                MappedByteBuffer mappedBuffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                return decode(mappedBuffer);
+            }
+
+            byte[] data = readFully(channel, size);
+            return new String(data, StandardCharsets.UTF_8);
+        }
+    }
+
+    static byte[] readBytes(File file) throws IOException {
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            FileChannel channel = inputStream.getChannel();
+            return readFully(channel, channel.size());
+        }
+    }
+
+    private static byte[] readFully(FileChannel channel, long size) throws IOException {
+        if (size > Integer.MAX_VALUE - 8) throw new IOException("File too large: " + size + " bytes");
+
+        ByteBuffer byteBuffer = ByteBuffer.allocate((int) size);
+        while (byteBuffer.hasRemaining() && channel.read(byteBuffer) >= 0) {
+            // Reads until the buffer is full or the end of the file is reached
+        }
+        return (byteBuffer.position() == byteBuffer.capacity()) ? byteBuffer.array() : Arrays.copyOf(byteBuffer.array(), byteBuffer.position());
+    }
+
+    private static String decode(ByteBuffer byteBuffer) throws CharacterCodingException {
+        return StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .decode(byteBuffer)
+                .toString();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer byteBuffer) throws IOException {
+        byteBuffer.flip();
+        while (byteBuffer.hasRemaining()) channel.write(byteBuffer);
+        byteBuffer.clear();
+    }
+
+    // A new file in the directory of the target, unique, so concurrent writes of the same file don't write
+    // into each other's temporary file (the last rename wins)
+    private static File createTemporaryFile(File file) throws IOException {
+        String name = file.getName();
+        return File.createTempFile((name.length() >= 3) ? name : name + "-tmp", TEMPORARY_SUFFIX, file.getAbsoluteFile().getParentFile());
+    }
+
+    // A rename within the same directory is atomic, Files.move() is only available from API level 26 on
+    private static void replace(File temporaryFile, File file) throws IOException {
+        if (!temporaryFile.renameTo(file)) {
+            //noinspection ResultOfMethodCallIgnored
+            temporaryFile.delete();
+            throw new IOException("Could not replace " + file);
+        }
+    }
+
+    // Reads a text file in chunks of at most chunkSize bytes, characters are never split between chunks
+    static class ChunkReader implements Closeable {
+        private final FileInputStream inputStream;
+        private final FileChannel channel;
+        private final ByteBuffer byteBuffer;
+        private final CharBuffer charBuffer;
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private boolean endOfFile = false, finished = false;
+
+        ChunkReader(File file, int chunkSize) throws IOException {
+            this.inputStream = new FileInputStream(file);
+            this.channel = this.inputStream.getChannel();
+            this.byteBuffer = ByteBuffer.allocate(Math.max(chunkSize, 4));
+            this.charBuffer = CharBuffer.allocate(Math.max(chunkSize, 4));
+        }
+
+        // Returns the next chunk or null at the end of the file
+        synchronized String next() throws IOException {
+            if (this.finished) return null;
+
+            // Bytes of an incomplete character from the last chunk are still at the start of the buffer
+            while (!this.endOfFile && this.byteBuffer.hasRemaining()) {
+                if (this.channel.read(this.byteBuffer) < 0) this.endOfFile = true;
+            }
+
+            this.byteBuffer.flip();
+            this.charBuffer.clear();
+            CoderResult result = this.decoder.decode(this.byteBuffer, this.charBuffer, this.endOfFile);
+            if (result.isError()) result.throwException();
+            if (this.endOfFile && !this.byteBuffer.hasRemaining()) {
+                this.decoder.flush(this.charBuffer);
+                this.finished = true;
+            }
+            this.byteBuffer.compact();
+
+            this.charBuffer.flip();
+            if (this.finished && !this.charBuffer.hasRemaining()) return null;
+            return this.charBuffer.toString();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.inputStream.close();
+        }
+    }
+}
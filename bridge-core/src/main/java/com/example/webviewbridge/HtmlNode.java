@@ -0,0 +1,236 @@
+package com.example.webviewbridge;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Class for the creation of HTML nodes from the Java-Code.
+
+class HtmlNode {
+    // Attribute that identifies a rendered node in the DOM, so it can be patched later (see HtmlNodeDiff)
+    static final String NODE_ID_ATTRIBUTE = "data-bridge-node";
+    private static final AtomicInteger nextNodeId = new AtomicInteger();
+
+    private final int nodeId = nextNodeId.incrementAndGet();
+    private String tagName, innerHtml;
+    private HashMap<String, String> cssRules, attributes;
+    private ArrayList<HtmlNode> childNodes;
+
+    // Counts the changes of the tag, attributes, CSS rules and inner HTML. A snapshot with the same
+    // version is still up to date, so the version works as dirty flag for every rendered copy.
+    private int version = 0;
+
+    // Length of the last rendered HTML, used to pre-size the buffer of the next rendering
+    private int lastRenderedLength = 0;
+
+    @SuppressWarnings("unused")
+    public HtmlNode(String tagName) {
+        standardNode(tagName);
+    }
+
+    @SuppressWarnings("unused")
+    public HtmlNode(String tagName, String innerHtml) {
+        standardNode(tagName);
+        this.innerHtml = innerHtml;
+    }
+
+    public String get() {
+        StringBuilder html = new StringBuilder((this.lastRenderedLength > 0) ? this.lastRenderedLength : 256);
+        try {
+            writeTo(html);
+        } catch (IOException e) {
+            // A StringBuilder doesn't throw IOExceptions
+            throw new IllegalStateException(e);
+        }
+
+        this.lastRenderedLength = html.length();
+        return html.toString();
+    }
+
+    // Renders the whole tree in one pass, attribute values and CSS rules are escaped
+    public void writeTo(Appendable out) throws IOException {
+        writeTo(out, false);
+    }
+
+    // With node ids every element gets the NODE_ID_ATTRIBUTE, so it can be found by the patches of HtmlNodeDiff
+    void writeTo(Appendable out, boolean withNodeIds) throws IOException {
+        out.append('<').append(this.tagName);
+
+        if (withNodeIds) out.append(' ').append(NODE_ID_ATTRIBUTE).append("=\"").append(String.valueOf(this.nodeId)).append('"');
+
+        for (Map.Entry<String, String> entry : this.attributes.entrySet()) {
+            out.append(' ').append(entry.getKey()).append("=\"");
+            appendEscapedAttribute(out, entry.getValue());
+            out.append('"');
+        }
+
+        if (this.cssRules.size() > 0) {
+            out.append(" style=\"");
+
+            for (Map.Entry<String, String> entry : this.cssRules.entrySet()) {
+                appendEscapedAttribute(out, entry.getKey());
+                out.append(": ");
+                appendEscapedAttribute(out, entry.getValue());
+                out.append("; ");
+            }
+
+            out.append('"');
+        }
+
+        if (this.innerHtml.contentEquals("") && this.childNodes.size() < 1) {
+            out.append("/>");
+        } else {
+            out.append('>').append(this.innerHtml);
+            for (int i = 0; i < this.childNodes.size(); i++)
+                this.childNodes.get(i).writeTo(out, withNodeIds);
+            out.append("</").append(this.tagName).append('>');
+        }
+    }
+
+    static void appendEscapedAttribute(Appendable out, String value) throws IOException {
+        appendEscaped(out, String.valueOf(value), true);
+    }
+
+    static void appendEscapedText(Appendable out, String text) throws IOException {
+        appendEscaped(out, String.valueOf(text), false);
+    }
+
+    // Copies unchanged runs in one append, so values without special characters are not split up
+    private static void appendEscaped(Appendable out, String value, boolean attribute) throws IOException {
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            String replacement;
+            switch (value.charAt(i)) {
+                case '&': replacement = "&amp;"; break;
+                case '<': replacement = "&lt;"; break;
+                case '>': replacement = "&gt;"; break;
+                case '"': replacement = attribute ? "&quot;" : null; break;
+                default: replacement = null;
+            }
+
+            if (replacement != null) {
+                out.append(value, start, i).append(replacement);
+                start = i + 1;
+            }
+        }
+        out.append(value, start, value.length());
+    }
+
+    private void standardNode(String tagName) {
+        this.tagName = tagName;
+        this.innerHtml = "";
+        this.attributes = new HashMap<>();
+        this.cssRules = new HashMap<>();
+        this.childNodes = new ArrayList<>();
+    }
+
+    int getNodeId() {
+        return this.nodeId;
+    }
+
+    int getVersion() {
+        return this.version;
+    }
+
+    Map<String, String> getAttributes() {
+        return this.attributes;
+    }
+
+    Map<String, String> getCssRules() {
+        return this.cssRules;
+    }
+
+    @SuppressWarnings("unused")
+    public void setTagName(String newTagName) {
+        this.tagName = newTagName;
+        this.version++;
+    }
+
+    @SuppressWarnings("unused")
+    public String getTagName() {
+        return this.tagName;
+    }
+
+    @SuppressWarnings("unused")
+    public void setInnerHTML(String newInnerHtml) {
+        this.innerHtml = newInnerHtml;
+        this.version++;
+    }
+
+    // Sets plain text as content of the node, HTML characters in the text are escaped
+    @SuppressWarnings("unused")
+    public void setInnerText(String text) {
+        StringBuilder escapedText = new StringBuilder(text.length() + 16);
+        try {
+            appendEscapedText(escapedText, text);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        this.innerHtml = escapedText.toString();
+        this.version++;
+    }
+
+    @SuppressWarnings("unused")
+    public String getInnerHtml() {
+        return this.innerHtml;
+    }
+
+    public void setAttribute(String attributeName, String attributeContent) {
+        this.attributes.put(attributeName, attributeContent);
+        this.version++;
+    }
+
+    public String getAttribute(String attributeName) {
+        return this.attributes.get(attributeName);
+    }
+
+    @SuppressWarnings("unused")
+    public void setCssAttribute(String cssAttributeName, String cssAttributeContent) {
+        this.cssRules.put(cssAttributeName, cssAttributeContent);
+        this.version++;
+    }
+
+    @SuppressWarnings("unused")
+    public String getCssAttribute(String cssAttributeName) {
+        return this.cssRules.get(cssAttributeName);
+    }
+
+    @SuppressWarnings("unused")
+    public void appendChild(HtmlNode childNode) {
+        this.childNodes.add(childNode);
+    }
+
+    @SuppressWarnings("unused")
+    public void removeChild(int id) {
+        this.childNodes.remove(id);
+    }
+
+    @SuppressWarnings("unused")
+    public void removeChild(HtmlNode childNode) {
+        this.childNodes.remove(childNode);
+    }
+
+    public ArrayList<HtmlNode> getChildNodes() {
+        return this.childNodes;
+    }
+
+    public void setId(String id) {
+        this.setAttribute("id", id);
+    }
+
+    public String getId() {
+        return this.getAttribute("id");
+    }
+
+    @SuppressWarnings("unused")
+    public void setHtmlClass(String classname) {
+        this.setAttribute("class", classname);
+    }
+
+    @SuppressWarnings("unused")
+    public String getHtmlClass() {
+        return this.getAttribute("class");
+    }
+}
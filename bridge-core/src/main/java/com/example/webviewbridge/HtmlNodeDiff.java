@@ -0,0 +1,223 @@
+package com.example.webviewbridge;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+// Compares a rendered HtmlNode tree with its current state and creates the patches for the DOM ------
+//
+// Every rendered element carries its node id (HtmlNode.NODE_ID_ATTRIBUTE). The patches only change
+// the attributes, CSS rules, texts and children that are different from the last rendering. All patches
+// of one update are returned as one script.
+
+class HtmlNodeDiff {
+
+    // Immutable copy of a node at the time it was rendered
+    static final class Snapshot {
+        final int nodeId, version;
+        final String tagName, innerHtml;
+        final Map<String, String> attributes, cssRules;
+        final Snapshot[] children;
+
+        Snapshot(HtmlNode node, Map<String, String> attributes, Map<String, String> cssRules, Snapshot[] children){
+            this.nodeId = node.getNodeId();
+            this.version = node.getVersion();
+            this.tagName = node.getTagName();
+            this.innerHtml = node.getInnerHtml();
+            this.attributes = attributes;
+            this.cssRules = cssRules;
+            this.children = children;
+        }
+    }
+
+    // Result of an update: the new snapshot and the script that brings the DOM to its state
+    static final class Patch {
+        final Snapshot snapshot;
+        final String script;
+        final int patchCount;
+
+        Patch(Snapshot snapshot, String script, int patchCount){
+            this.snapshot = snapshot;
+            this.script = script;
+            this.patchCount = patchCount;
+        }
+    }
+
+    private static final String PATCH_RUNTIME = "var m={};"
+            + "[].forEach.call(r.querySelectorAll('[" + HtmlNode.NODE_ID_ATTRIBUTE + "]'),function(e){m[e.getAttribute('" + HtmlNode.NODE_ID_ATTRIBUTE + "')]=e;});"
+            + "function n(i){return m[i]||(m[i]=r.querySelector('[" + HtmlNode.NODE_ID_ATTRIBUTE + "=\"'+i+'\"]'));}"
+            + "function h(i,s){var t=document.createElement('template');t.innerHTML=s;return m[i]=t.content.firstChild;}"
+            + "function o(i,s){var e=n(i);e.parentNode.replaceChild(h(i,s),e);}"
+            + "function b(p,i,s,x){n(p).insertBefore(s===null?n(i):h(i,s),x?n(x):null);}";
+
+    // Removals run first, so a node that moved to another parent is not removed after its insertion
+    private final StringBuilder removals = new StringBuilder(), script = new StringBuilder();
+    private int patchCount = 0;
+
+    private HtmlNodeDiff(){}
+
+    // Renders the node completely into the container, e.g. for the first rendering
+    static Patch render(String containerExpression, HtmlNode node){
+        HtmlNodeDiff diff = new HtmlNodeDiff();
+        diff.script.append(containerExpression).append(".innerHTML='");
+        diff.appendHtml(node);
+        diff.script.append("';");
+        return new Patch(snapshot(node), diff.script.toString(), 1);
+    }
+
+    // Returns the patches from the previous rendering to the current state, the script is empty without changes
+    static Patch update(String containerExpression, Snapshot previous, HtmlNode node){
+        if (previous == null || previous.nodeId != node.getNodeId()) return render(containerExpression, node);
+
+        HtmlNodeDiff diff = new HtmlNodeDiff();
+        Snapshot snapshot = diff.diffNode(previous, node);
+        if (diff.patchCount == 0) return new Patch(snapshot, "", 0);
+
+        String script = "(function(r){" + PATCH_RUNTIME + diff.removals + diff.script + "})(" + containerExpression + ");";
+        return new Patch(snapshot, script, diff.patchCount);
+    }
+
+    static Snapshot snapshot(HtmlNode node){
+        List<HtmlNode> childNodes = node.getChildNodes();
+        Snapshot[] children = new Snapshot[childNodes.size()];
+        for (int i = 0; i < children.length; i++) children[i] = snapshot(childNodes.get(i));
+
+        return new Snapshot(node, new HashMap<>(node.getAttributes()), new HashMap<>(node.getCssRules()), children);
+    }
+
+    private Snapshot diffNode(Snapshot previous, HtmlNode node){
+        Map<String, String> attributes = previous.attributes, cssRules = previous.cssRules;
+
+        // The node itself only needs to be compared if it was changed since the last rendering
+        if (previous.version != node.getVersion()) {
+            boolean hadChildren = previous.children.length > 0, hasChildren = node.getChildNodes().size() > 0;
+            boolean innerHtmlChanged = !previous.innerHtml.equals(node.getInnerHtml());
+
+            if (!previous.tagName.equals(node.getTagName()) || (innerHtmlChanged && (hadChildren || hasChildren))) {
+                replaceNode(node);
+                return snapshot(node);
+            }
+
+            attributes = new HashMap<>(node.getAttributes());
+            cssRules = new HashMap<>(node.getCssRules());
+            diffMap(node.getNodeId(), previous.attributes, attributes, "setAttribute", "removeAttribute");
+            diffMap(node.getNodeId(), previous.cssRules, cssRules, "style.setProperty", "style.removeProperty");
+
+            if (innerHtmlChanged) {
+                startPatch().append("n(").append(node.getNodeId()).append(").innerHTML='");
+                this.script.append(JavaScriptString.escape(node.getInnerHtml())).append("';");
+            }
+        }
+
+        return new Snapshot(node, attributes, cssRules, diffChildren(previous, node));
+    }
+
+    private void diffMap(int nodeId, Map<String, String> previous, Map<String, String> current, String setFunction, String removeFunction){
+        for (Map.Entry<String, String> entry : current.entrySet()) {
+            if (previous.containsKey(entry.getKey()) && Objects.equals(entry.getValue(), previous.get(entry.getKey()))) continue;
+
+            startPatch().append("n(").append(nodeId).append(").").append(setFunction).append("('");
+            this.script.append(JavaScriptString.escape(entry.getKey())).append("','").append(JavaScriptString.escape(entry.getValue())).append("');");
+        }
+
+        for (String key : previous.keySet()) {
+            if (current.containsKey(key)) continue;
+
+            startPatch().append("n(").append(nodeId).append(").").append(removeFunction).append("('");
+            this.script.append(JavaScriptString.escape(key)).append("');");
+        }
+    }
+
+    private Snapshot[] diffChildren(Snapshot previous, HtmlNode node){
+        List<HtmlNode> childNodes = node.getChildNodes();
+        Snapshot[] children = new Snapshot[childNodes.size()];
+
+        Map<Integer, Integer> previousIndexes = new HashMap<>();
+        for (int i = 0; i < previous.children.length; i++) previousIndexes.put(previous.children[i].nodeId, i);
+
+        // Children that are not part of the node anymore are removed
+        Set<Integer> currentIds = new HashSet<>();
+        for (HtmlNode childNode : childNodes) currentIds.add(childNode.getNodeId());
+        for (Snapshot child : previous.children) {
+            if (!currentIds.contains(child.nodeId)) {
+                this.patchCount++;
+                this.removals.append("n(").append(child.nodeId).append(").remove();");
+            }
+        }
+
+        // Kept children in the longest run of unchanged order stay where they are, the others are moved
+        int[] previousPositions = new int[childNodes.size()];
+        for (int i = 0; i < previousPositions.length; i++) {
+            Integer previousIndex = previousIndexes.get(childNodes.get(i).getNodeId());
+            previousPositions[i] = (previousIndex != null) ? previousIndex : -1;
+        }
+        boolean[] stable = longestIncreasingSubsequence(previousPositions);
+
+        // From right to left, so the next sibling is already at its final position
+        for (int i = childNodes.size() - 1; i >= 0; i--) {
+            HtmlNode childNode = childNodes.get(i);
+            int nextId = (i + 1 < childNodes.size()) ? childNodes.get(i + 1).getNodeId() : 0;
+
+            if (previousPositions[i] < 0) {
+                startPatch().append("b(").append(node.getNodeId()).append(',').append(childNode.getNodeId()).append(",'");
+                appendHtml(childNode);
+                this.script.append("',").append(nextId).append(");");
+                children[i] = snapshot(childNode);
+            } else {
+                if (!stable[i])
+                    startPatch().append("b(").append(node.getNodeId()).append(',').append(childNode.getNodeId()).append(",null,").append(nextId).append(");");
+                children[i] = diffNode(previous.children[previousPositions[i]], childNode);
+            }
+        }
+        return children;
+    }
+
+    private void replaceNode(HtmlNode node){
+        startPatch().append("o(").append(node.getNodeId()).append(",'");
+        appendHtml(node);
+        this.script.append("');");
+    }
+
+    private void appendHtml(HtmlNode node){
+        try {
+            node.writeTo(new JavaScriptString(this.script), true);
+        } catch (IOException e) {
+            // A StringBuilder doesn't throw IOExceptions
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private StringBuilder startPatch(){
+        this.patchCount++;
+        return this.script;
+    }
+
+    // Marks the positions of the longest increasing run of previous positions (ignoring new nodes with -1)
+    static boolean[] longestIncreasingSubsequence(int[] positions){
+        int[] tails = new int[positions.length], predecessors = new int[positions.length];
+        int length = 0;
+
+        for (int i = 0; i < positions.length; i++) {
+            if (positions[i] < 0) continue;
+
+            int low = 0, high = length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (positions[tails[middle]] < positions[i]) low = middle + 1;
+                else high = middle;
+            }
+
+            predecessors[i] = (low > 0) ? tails[low - 1] : -1;
+            tails[low] = i;
+            if (low == length) length++;
+        }
+
+        boolean[] stable = new boolean[positions.length];
+        for (int i = (length > 0) ? tails[length - 1] : -1; i >= 0; i = predecessors[i]) stable[i] = true;
+        return stable;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.webviewbridge;
+
+import java.io.IOException;
+
+// Appendable that escapes everything appended to it for a quoted JavaScript string literal -------
+//
+// Used to write HTML and other values directly into the scripts of the WebViewBridge, e.g.
+// script.append("el.insertAdjacentHTML('beforeEnd', '"); htmlNode.writeTo(new JavaScriptString(script));
+
+class JavaScriptString implements Appendable {
+    private final StringBuilder out;
+
+    JavaScriptString(StringBuilder out){
+        this.out = out;
+    }
+
+    // Returns the value as escaped content of a JavaScript string (without the quotes)
+    static String escape(String value){
+        if (value == null) return "null";
+
+        StringBuilder escapedValue = new StringBuilder(value.length() + 16);
+        new JavaScriptString(escapedValue).append(value);
+        return escapedValue.toString();
+    }
+
+    @Override
+    public JavaScriptString append(CharSequence sequence){
+        if (sequence == null) sequence = "null";
+        return append(sequence, 0, sequence.length());
+    }
+
+    @Override
+    public JavaScriptString append(CharSequence sequence, int start, int end){
+        if (sequence == null) sequence = "null";
+
+        int unchangedStart = start;
+        for (int i = start; i < end; i++) {
+            String replacement = getReplacement(sequence.charAt(i));
+            if (replacement != null) {
+                this.out.append(sequence, unchangedStart, i).append(replacement);
+                unchangedStart = i + 1;
+            }
+        }
+        this.out.append(sequence, unchangedStart, end);
+        return this;
+    }
+
+    @Override
+    public JavaScriptString append(char c){
+        String replacement = getReplacement(c);
+        if (replacement != null) this.out.append(replacement);
+        else this.out.append(c);
+        return this;
+    }
+
+    private static String getReplacement(char c){
+        switch (c) {
+            case '\\': return "\\\\";
+            case '\'': return "\\'";
+            case '"': return "\\\"";
+            case '\n': return "\\n";
+            case '\r': return "\\r";
+            case '\t': return "\\t";
+            case '\u2028': return "\\u2028";
+            case '\u2029': return "\\u2029";
+            default: return null;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package com.example.webviewbridge;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Shares one location listener between all users of the location ------------------------------------
+//
+// Every subscription (a Native.watchLocation() or a pending getCurrentLocation()) is counted, the
+// source is started with the first one and stopped with the last one, so there is never more than
+// one listener and none while nobody needs the location. The last fix is cached, callers that accept
+// a fix of a certain age get it without starting the source. If the source couldn't register (no
+// permission yet, all providers off), the next subscription and every enabled provider start it again.
+// Callers waiting for the next fix share one subscription.
+
+class LocationTracker {
+
+    // Position of the device at a point in time
+    static final class Fix {
+        final double latitude, longitude;
+        final float accuracy;
+        final long time;
+        final String provider;
+
+        Fix(double latitude, double longitude, float accuracy, long time, String provider){
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.accuracy = accuracy;
+            this.time = time;
+            this.provider = provider;
+        }
+
+        JSONObject toJson() throws JSONException {
+            JSONObject fix = new JSONObject();
+            fix.put("latitude", this.latitude);
+            fix.put("longitude", this.longitude);
+            fix.put("accuracy", this.accuracy);
+            fix.put("time", this.time);
+            fix.put("provider", this.provider);
+            return fix;
+        }
+    }
+
+    interface Listener {
+        void onFix(Fix fix);
+    }
+
+    // Gets the fixes of a subscription together with its id, which is known before the first fix
+    interface Subscriber {
+        void onFix(int subscriptionId, Fix fix);
+    }
+
+    // Gets the fixes of the source and the news that a provider was turned on
+    interface SourceListener extends Listener {
+        void onProviderEnabled(String provider);
+    }
+
+    // The platform location service, e.g. the LocationManager. Only one listener is started at a time.
+    interface Source {
+        // Returns false if nothing delivers fixes, e.g. without permission or with all providers off
+        boolean start(long minIntervalMillis, float minDistanceMeters, SourceListener listener);
+
+        void stop();
+
+        // Last fix known to the platform (also from other apps), null if there is none
+        Fix getLastKnownFix();
+    }
+
+    interface Clock {
+        long currentTimeMillis();
+    }
+
+    private final Source source;
+    private final Clock clock;
+    private final Map<Integer, Subscriber> subscriptions = new LinkedHashMap<>();
+    private final SourceListener sourceListener = new SourceListener() {
+        @Override
+        public void onFix(Fix fix){
+            LocationTracker.this.onFix(fix);
+        }
+
+        @Override
+        public void onProviderEnabled(String provider){
+            synchronized (LocationTracker.this) {
+                if (started) startSource();
+            }
+        }
+    };
+    // Listeners of requestFix() that wait for the next fix, and their shared subscription (0 if there is none)
+    private final List<Listener> fixRequests = new ArrayList<>();
+    private int fixRequestSubscriptionId = 0;
+    private int nextSubscriptionId = 1;
+    private long minIntervalMillis = 5000;
+    private float minDistanceMeters = 10;
+    // Whether the source was started, and whether it registered anything then
+    private boolean started = false, registered = false;
+    private Fix lastFix;
+
+    LocationTracker(Source source){
+        this(source, System::currentTimeMillis);
+    }
+
+    LocationTracker(Source source, Clock clock){
+        this.source = source;
+        this.clock = clock;
+    }
+
+    // Updates are passed on at most every minIntervalMillis and after a move of at least minDistanceMeters
+    synchronized void setMinUpdate(long minIntervalMillis, float minDistanceMeters){
+        this.minIntervalMillis = minIntervalMillis;
+        this.minDistanceMeters = minDistanceMeters;
+        if (this.started) startSource();
+    }
+
+    // Returns the id for unsubscribe(), the subscriber gets every new fix (also while the source is started)
+    synchronized int subscribe(Subscriber subscriber){
+        int subscriptionId = this.nextSubscriptionId++;
+        this.subscriptions.put(subscriptionId, subscriber);
+        if (!this.started || !this.registered) startSource();
+        return subscriptionId;
+    }
+
+    synchronized void unsubscribe(int subscriptionId){
+        if (this.subscriptions.remove(subscriptionId) != null && this.subscriptions.isEmpty() && this.started) stopSource();
+    }
+
+    synchronized int getSubscriptionCount(){
+        return this.subscriptions.size();
+    }
+
+    // Returns the newest fix that is at most maxAgeMillis old (from the cache or the platform), otherwise null
+    synchronized Fix getFix(long maxAgeMillis){
+        Fix fix = this.lastFix;
+        Fix lastKnownFix = this.source.getLastKnownFix();
+        if (lastKnownFix != null && (fix == null || lastKnownFix.time > fix.time)) fix = this.lastFix = lastKnownFix;
+
+        return (fix != null && this.clock.currentTimeMillis() - fix.time <= maxAgeMillis) ? fix : null;
+    }
+
+    // Passes a fix of at most maxAgeMillis to the listener, waits for the next fix if there is none
+    void requestFix(long maxAgeMillis, final Listener listener){
+        Fix fix = getFix(maxAgeMillis);
+        if (fix != null) {
+            listener.onFix(fix);
+            return;
+        }
+
+        synchronized (this) {
+            this.fixRequests.add(listener);
+            refresh();
+        }
+    }
+
+    // Starts the source until the next fix (to update the cached one), unless a request already waits for it
+    synchronized void refresh(){
+        if (this.fixRequestSubscriptionId != 0) return;
+
+        this.fixRequestSubscriptionId = subscribe((subscriptionId, newFix) -> {
+            List<Listener> listeners;
+            synchronized (this) {
+                if (this.fixRequestSubscriptionId != subscriptionId) return;
+                unsubscribe(subscriptionId);
+                this.fixRequestSubscriptionId = 0;
+                listeners = new ArrayList<>(this.fixRequests);
+                this.fixRequests.clear();
+            }
+            for (Listener listener : listeners) listener.onFix(newFix);
+        });
+    }
+
+    // Stops the source and forgets all subscriptions, e.g. when the bridge is destroyed
+    synchronized void stop(){
+        this.subscriptions.clear();
+        this.fixRequests.clear();
+        this.fixRequestSubscriptionId = 0;
+        if (this.started) stopSource();
+    }
+
+    // (Re)starts the source with the current settings
+    private void startSource(){
+        if (this.started) this.source.stop();
+        this.started = true;
+        this.registered = this.source.start(this.minIntervalMillis, this.minDistanceMeters, this.sourceListener);
+    }
+
+    private void stopSource(){
+        this.started = false;
+        this.registered = false;
+        this.source.stop();
+    }
+
+    private void onFix(Fix fix){
+        List<Map.Entry<Integer, Subscriber>> subscriptions;
+        synchronized (this) {
+            if (this.lastFix != null && fix.time < this.lastFix.time) return;
+            this.lastFix = fix;
+            subscriptions = new ArrayList<>(this.subscriptions.entrySet());
+        }
+        for (Map.Entry<Integer, Subscriber> subscription : subscriptions) subscription.getValue().onFix(subscription.getKey(), fix);
+    }
+}
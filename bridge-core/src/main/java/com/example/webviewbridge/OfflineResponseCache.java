@@ -0,0 +1,427 @@
+package com.example.webviewbridge;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Disk cache for the GET responses of selected URLs, used by shouldInterceptRequest() -------------
+//
+// A cached response is served without a request while it is younger than maxAge. Until
+// maxAge + staleWhileRevalidate it is still served, but revalidated in the background (with
+// If-None-Match/If-Modified-Since). Older responses are fetched again; if the network fails,
+// the cached response is served anyway, so pages keep working on flaky connections.
+// The cache is limited to maxSize bytes of response bodies, the least recently used entries are
+// removed first. Only 200 responses without "Cache-Control: no-store" are stored. Cookies of the
+// responses are passed to the CookieJar (e.g. the CookieManager of the WebView) and never stored.
+// The credentials of a request (Cookie and Authorization) are part of its key, so a response is only
+// served to the session that fetched it (not after a logout or to another account). Responses that
+// vary by other request headers are not stored.
+
+class OfflineResponseCache {
+    private static final int CONNECT_TIMEOUT_MILLIS = 15000, READ_TIMEOUT_MILLIS = 30000;
+
+    // Headers that describe the transfer of the original response and are not passed on
+    private static final Set<String> SKIPPED_HEADERS = new HashSet<>();
+
+    static {
+        SKIPPED_HEADERS.add("content-encoding");
+        SKIPPED_HEADERS.add("content-length");
+        SKIPPED_HEADERS.add("transfer-encoding");
+        SKIPPED_HEADERS.add("connection");
+        SKIPPED_HEADERS.add("keep-alive");
+        SKIPPED_HEADERS.add("content-type");
+        SKIPPED_HEADERS.add("set-cookie");
+    }
+
+    // Request headers that are part of the key. The WebView sends the same Accept-Encoding with every request.
+    private static final String[] KEY_HEADERS = {"Cookie", "Authorization"};
+    private static final Set<String> VARY_HEADERS = new HashSet<>(Arrays.asList("cookie", "authorization", "accept-encoding"));
+
+    interface Clock {
+        long currentTimeMillis();
+    }
+
+    // Receives the value of each Set-Cookie header of a response from the network
+    interface CookieJar {
+        void setCookie(String url, String value);
+    }
+
+    static final class Response {
+        final int statusCode;
+        final String reasonPhrase, mimeType, encoding;
+        final Map<String, String> headers;
+        final byte[] body;
+
+        Response(int statusCode, String reasonPhrase, String mimeType, String encoding, Map<String, String> headers, byte[] body){
+            this.statusCode = statusCode;
+            this.reasonPhrase = reasonPhrase;
+            this.mimeType = mimeType;
+            this.encoding = encoding;
+            this.headers = headers;
+            this.body = body;
+        }
+    }
+
+    // Entry of the in-memory index, the response itself is on the disk
+    private static final class Entry {
+        final long storedAt, size;
+
+        Entry(long storedAt, long size){
+            this.storedAt = storedAt;
+            this.size = size;
+        }
+    }
+
+    private final File directory;
+    private final long maxSize, maxAge, staleWhileRevalidate;
+    private final String[] urlPrefixes;
+    private final Clock clock;
+    private final CookieJar cookieJar;
+    private final ExecutorService revalidator = Executors.newSingleThreadExecutor();
+
+    // Guarded by this
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<String> revalidatingKeys = new HashSet<>();
+    private long size = 0, hits = 0, staleHits = 0, misses = 0, revalidations = 0, offlineHits = 0, networkErrors = 0;
+
+    OfflineResponseCache(File directory, long maxSize, long maxAge, long staleWhileRevalidate, CookieJar cookieJar, String... urlPrefixes){
+        this(directory, maxSize, maxAge, staleWhileRevalidate, urlPrefixes, System::currentTimeMillis, cookieJar);
+    }
+
+    OfflineResponseCache(File directory, long maxSize, long maxAge, long staleWhileRevalidate, String[] urlPrefixes, Clock clock, CookieJar cookieJar){
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.maxAge = maxAge;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        this.urlPrefixes = urlPrefixes.clone();
+        this.clock = clock;
+        this.cookieJar = cookieJar;
+        loadIndex();
+    }
+
+    // Only URLs that start with one of the prefixes are cached
+    boolean accepts(String url){
+        for (String urlPrefix : this.urlPrefixes)
+            if (url.startsWith(urlPrefix)) return true;
+        return false;
+    }
+
+    // Returns the response from the cache or the network, null if neither has one
+    Response get(String url, Map<String, String> requestHeaders){
+        String key = getKey(url, requestHeaders);
+        Entry entry;
+        synchronized (this) {
+            entry = this.entries.get(key);
+        }
+
+        long age = (entry != null) ? this.clock.currentTimeMillis() - entry.storedAt : Long.MAX_VALUE;
+        Response cachedResponse = (entry != null) ? readResponse(key) : null;
+
+        if (cachedResponse != null && age < this.maxAge) {
+            count(1, 0, 0, 0);
+            return cachedResponse;
+        }
+        if (cachedResponse != null && age < this.maxAge + this.staleWhileRevalidate) {
+            count(0, 1, 0, 0);
+            revalidate(url, key, requestHeaders, cachedResponse);
+            return cachedResponse;
+        }
+
+        count(0, 0, 1, 0);
+        try {
+            return fetch(url, key, requestHeaders, cachedResponse);
+        } catch (IOException e) {
+            synchronized (this) {
+                this.networkErrors++;
+                if (cachedResponse != null) this.offlineHits++;
+            }
+            return cachedResponse;
+        }
+    }
+
+    synchronized Map<String, Long> getStatistics(){
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        statistics.put("hits", this.hits);
+        statistics.put("staleHits", this.staleHits);
+        statistics.put("misses", this.misses);
+        statistics.put("revalidations", this.revalidations);
+        statistics.put("offlineHits", this.offlineHits);
+        statistics.put("networkErrors", this.networkErrors);
+        statistics.put("entries", (long) this.entries.size());
+        statistics.put("size", this.size);
+        return statistics;
+    }
+
+    synchronized void clear(){
+        for (String key : this.entries.keySet()) deleteFiles(key);
+        this.entries.clear();
+        this.size = 0;
+    }
+
+    void shutdown(){
+        this.revalidator.shutdownNow();
+    }
+
+    private synchronized void count(int hits, int staleHits, int misses, int revalidations){
+        this.hits += hits;
+        this.staleHits += staleHits;
+        this.misses += misses;
+        this.revalidations += revalidations;
+    }
+
+    // Runs one revalidation per URL at a time in the background
+    private void revalidate(final String url, final String key, final Map<String, String> requestHeaders, final Response cachedResponse){
+        synchronized (this) {
+            if (!this.revalidatingKeys.add(key)) return;
+        }
+
+        this.revalidator.execute(() -> {
+            try {
+                count(0, 0, 0, 1);
+                fetch(url, key, requestHeaders, cachedResponse);
+            } catch (IOException e) {
+                synchronized (this) {
+                    this.networkErrors++;
+                }
+            } finally {
+                synchronized (this) {
+                    this.revalidatingKeys.remove(key);
+                }
+            }
+        });
+    }
+
+    private Response fetch(String url, String key, Map<String, String> requestHeaders, Response cachedResponse) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MILLIS);
+            connection.setReadTimeout(READ_TIMEOUT_MILLIS);
+            connection.setUseCaches(false);
+            if (requestHeaders != null) {
+                // The conditions of the WebView are replaced by the ones of the cached response
+                for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+                    if (header.getKey().equalsIgnoreCase("If-None-Match") || header.getKey().equalsIgnoreCase("If-Modified-Since")) continue;
+                    connection.setRequestProperty(header.getKey(), header.getValue());
+                }
+            }
+            if (cachedResponse != null) {
+                String eTag = getHeader(cachedResponse.headers, "ETag"), lastModified = getHeader(cachedResponse.headers, "Last-Modified");
+                if (eTag != null) connection.setRequestProperty("If-None-Match", eTag);
+                if (lastModified != null) connection.setRequestProperty("If-Modified-Since", lastModified);
+            }
+
+            int statusCode = connection.getResponseCode();
+            if (this.cookieJar != null) {
+                for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+                    if (header.getKey() == null || !header.getKey().equalsIgnoreCase("Set-Cookie")) continue;
+                    for (String cookie : header.getValue()) this.cookieJar.setCookie(url, cookie);
+                }
+            }
+            if (statusCode == HttpURLConnection.HTTP_NOT_MODIFIED && cachedResponse != null) {
+                store(url, key, cachedResponse);
+                return cachedResponse;
+            }
+
+            Map<String, String> headers = new HashMap<>();
+            for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+                if (header.getKey() == null || SKIPPED_HEADERS.contains(header.getKey().toLowerCase(Locale.ROOT))) continue;
+                headers.put(header.getKey(), join(header.getValue()));
+            }
+
+            String contentType = connection.getContentType();
+            String mimeType = (contentType != null) ? contentType.split(";")[0].trim() : "application/octet-stream";
+            String encoding = getCharset(contentType);
+            InputStream inputStream = (statusCode >= 400) ? connection.getErrorStream() : connection.getInputStream();
+            byte[] body = (inputStream != null) ? readFully(inputStream) : new byte[0];
+
+            String reasonPhrase = connection.getResponseMessage();
+            Response response = new Response(statusCode, (reasonPhrase != null && !reasonPhrase.isEmpty()) ? reasonPhrase : "OK", mimeType, encoding, headers, body);
+
+            String cacheControl = getHeader(headers, "Cache-Control");
+            if (statusCode == HttpURLConnection.HTTP_OK && (cacheControl == null || !cacheControl.contains("no-store")) && isKeyedByVary(getHeader(headers, "Vary")))
+                store(url, key, response);
+            return response;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private void store(String url, String key, Response response){
+        try {
+            JSONObject headers = new JSONObject();
+            for (Map.Entry<String, String> header : response.headers.entrySet()) headers.put(header.getKey(), header.getValue());
+
+            long storedAt = this.clock.currentTimeMillis();
+            JSONObject meta = new JSONObject();
+            meta.put("url", url);
+            meta.put("storedAt", storedAt);
+            meta.put("statusCode", response.statusCode);
+            meta.put("reasonPhrase", response.reasonPhrase);
+            meta.put("mimeType", response.mimeType);
+            meta.put("encoding", (response.encoding != null) ? response.encoding : JSONObject.NULL);
+            meta.put("headers", headers);
+
+            // The body is written first, an entry without meta file is ignored when the index is loaded
+            synchronized (this) {
+                FileStorage.writeBytes(new File(this.directory, key + ".body"), response.body);
+                FileStorage.writeText(new File(this.directory, key + ".meta"), meta.toString());
+
+                Entry previous = this.entries.put(key, new Entry(storedAt, response.body.length));
+                if (previous != null) this.size -= previous.size;
+                this.size += response.body.length;
+                evict();
+            }
+        } catch (IOException | JSONException e) {
+            System.err.println("An error occurred while storing the response of " + url + ": " + e);
+        }
+    }
+
+    private Response readResponse(String key){
+        try {
+            JSONObject meta = new JSONObject(FileStorage.readText(new File(this.directory, key + ".meta"), Long.MAX_VALUE));
+            byte[] body = FileStorage.readBytes(new File(this.directory, key + ".body"));
+
+            Map<String, String> headers = new HashMap<>();
+            JSONObject jsonHeaders = meta.getJSONObject("headers");
+            for (Iterator<String> names = jsonHeaders.keys(); names.hasNext(); ) {
+                String name = names.next();
+                headers.put(name, jsonHeaders.getString(name));
+            }
+
+            return new Response(meta.getInt("statusCode"), meta.getString("reasonPhrase"), meta.getString("mimeType"),
+                    meta.isNull("encoding") ? null : meta.getString("encoding"), headers, body);
+        } catch (IOException | JSONException e) {
+            synchronized (this) {
+                Entry entry = this.entries.remove(key);
+                if (entry != null) this.size -= entry.size;
+            }
+            return null;
+        }
+    }
+
+    // Removes the least recently used entries until the cache fits into maxSize
+    private void evict(){
+        Iterator<Map.Entry<String, Entry>> eldestEntries = this.entries.entrySet().iterator();
+        while (this.size > this.maxSize && eldestEntries.hasNext()) {
+            Map.Entry<String, Entry> entry = eldestEntries.next();
+            this.size -= entry.getValue().size;
+            deleteFiles(entry.getKey());
+            eldestEntries.remove();
+        }
+    }
+
+    // Rebuilds the index from the files of a previous session, sorted by their last modification
+    private synchronized void loadIndex(){
+        //noinspection ResultOfMethodCallIgnored
+        this.directory.mkdirs();
+        File[] files = this.directory.listFiles((dir, name) -> name.endsWith(".meta"));
+        if (files == null) return;
+
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File metaFile : files) {
+            String key = metaFile.getName().substring(0, metaFile.getName().length() - ".meta".length());
+            File bodyFile = new File(this.directory, key + ".body");
+            try {
+                JSONObject meta = new JSONObject(FileStorage.readText(metaFile, Long.MAX_VALUE));
+                if (!bodyFile.isFile()) throw new IOException("Missing body");
+
+                this.entries.put(key, new Entry(meta.getLong("storedAt"), bodyFile.length()));
+                this.size += bodyFile.length();
+            } catch (IOException | JSONException e) {
+                deleteFiles(key);
+            }
+        }
+        evict();
+    }
+
+    private void deleteFiles(String key){
+        //noinspection ResultOfMethodCallIgnored
+        new File(this.directory, key + ".meta").delete();
+        //noinspection ResultOfMethodCallIgnored
+        new File(this.directory, key + ".body").delete();
+    }
+
+    // Hash of the URL and the credentials of the request, which are not stored in plain text this way
+    static String getKey(String url, Map<String, String> requestHeaders){
+        StringBuilder request = new StringBuilder(url);
+        for (String name : KEY_HEADERS) {
+            String value = (requestHeaders != null) ? getHeader(requestHeaders, name) : null;
+            if (value != null) request.append('\n').append(name).append(": ").append(value);
+        }
+
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(request.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder key = new StringBuilder(digest.length * 2);
+            for (byte b : digest) key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform has SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Whether all request headers of the Vary header of a response are covered by the key
+    private static boolean isKeyedByVary(String vary){
+        if (vary == null) return true;
+        for (String name : vary.split(",")) {
+            name = name.trim().toLowerCase(Locale.ROOT);
+            if (!name.isEmpty() && !VARY_HEADERS.contains(name)) return false;
+        }
+        return true;
+    }
+
+    private static String getHeader(Map<String, String> headers, String name){
+        for (Map.Entry<String, String> header : headers.entrySet())
+            if (header.getKey().equalsIgnoreCase(name)) return header.getValue();
+        return null;
+    }
+
+    private static String getCharset(String contentType){
+        if (contentType == null) return null;
+        for (String parameter : contentType.split(";")) {
+            String[] nameAndValue = parameter.trim().split("=", 2);
+            if (nameAndValue.length == 2 && nameAndValue[0].equalsIgnoreCase("charset")) return nameAndValue[1].replace("\"", "").trim();
+        }
+        return null;
+    }
+
+    private static String join(List<String> values){
+        StringBuilder joined = new StringBuilder();
+        for (String value : values) {
+            if (joined.length() > 0) joined.append(", ");
+            joined.append(value);
+        }
+        return joined.toString();
+    }
+
+    private static byte[] readFully(InputStream inputStream) throws IOException {
+        try {
+            ByteArrayOutputStream output = new ByteArrayOutputStream(8192);
+            byte[] buffer = new byte[8192];
+            for (int read; (read = inputStream.read(buffer)) >= 0; ) output.write(buffer, 0, read);
+            return output.toByteArray();
+        } finally {
+            inputStream.close();
+        }
+    }
+}
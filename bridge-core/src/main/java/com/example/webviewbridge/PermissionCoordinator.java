@@ -0,0 +1,166 @@
+package com.example.webviewbridge;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Requests the runtime permissions of the bridge and passes the results to everybody waiting ------
+//
+// Android shows one permission dialog at a time, so the permissions are requested in rounds: the
+// permissions asked for while a dialog is open are collected and requested together in the next
+// round, a permission that is already part of a round is not requested again. The results of
+// onRequestPermissionsResult() go to the callbacks of all requests that contain the permission.
+// Granted permissions are cached (Android ends the process when a permission is revoked), denied
+// ones are checked again with every request, because they can be granted in the settings.
+
+class PermissionCoordinator {
+    // Request code of the rounds in onRequestPermissionsResult(), other codes belong to the app
+    static final int REQUEST_CODE = 0x5042;
+    // Value of PackageManager.PERMISSION_GRANTED
+    private static final int PERMISSION_GRANTED = 0;
+
+    // Checks and requests the permissions, e.g. with ContextCompat and ActivityCompat
+    interface Platform {
+        boolean checkPermission(String permission);
+
+        void requestPermissions(String[] permissions, int requestCode);
+    }
+
+    // Receives the result of every requested permission
+    interface Callback {
+        void onResult(Map<String, Boolean> results);
+    }
+
+    private static final class Request {
+        final Callback callback;
+        final Map<String, Boolean> results = new LinkedHashMap<>();
+        final Set<String> remainingPermissions = new HashSet<>();
+
+        Request(Callback callback){
+            this.callback = callback;
+        }
+    }
+
+    private final Platform platform;
+    private final Set<String> grantedPermissions = Collections.synchronizedSet(new HashSet<String>());
+    // Requests waiting for a permission, by permission
+    private final Map<String, List<Request>> waitingRequests = new HashMap<>();
+    // Permissions of the open dialog and of the next round
+    private final Set<String> requestedPermissions = new LinkedHashSet<>();
+    private final Set<String> nextPermissions = new LinkedHashSet<>();
+
+    PermissionCoordinator(Platform platform){
+        this.platform = platform;
+    }
+
+    boolean isGranted(String permission){
+        if (this.grantedPermissions.contains(permission)) return true;
+        if (!this.platform.checkPermission(permission)) return false;
+
+        this.grantedPermissions.add(permission);
+        return true;
+    }
+
+    // Calls the callback at once if all permissions are granted, otherwise after the dialogs
+    void request(String[] permissions, Callback callback){
+        Request request = new Request(callback);
+        String[] round = null;
+
+        synchronized (this) {
+            for (String permission : permissions) {
+                if (isGranted(permission)) {
+                    request.results.put(permission, true);
+                    continue;
+                }
+
+                request.results.put(permission, false);
+                request.remainingPermissions.add(permission);
+                List<Request> requests = this.waitingRequests.get(permission);
+                if (requests == null) this.waitingRequests.put(permission, requests = new ArrayList<>());
+                requests.add(request);
+                if (!this.requestedPermissions.contains(permission)) this.nextPermissions.add(permission);
+            }
+            if (this.requestedPermissions.isEmpty()) round = startNextRound();
+        }
+
+        if (request.remainingPermissions.isEmpty()) callback.onResult(request.results);
+        if (round != null) this.platform.requestPermissions(round, REQUEST_CODE);
+    }
+
+    // Waits for the permissions on a background thread, returns true if all of them were granted
+    boolean await(String[] permissions, long timeoutMillis) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final boolean[] granted = new boolean[1];
+        request(permissions, results -> {
+            granted[0] = !results.containsValue(false);
+            latch.countDown();
+        });
+        return latch.await(timeoutMillis, TimeUnit.MILLISECONDS) && granted[0];
+    }
+
+    // Returns false if the request code doesn't belong to the coordinator. Permissions without a
+    // result (the dialog was cancelled) count as denied.
+    boolean onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults){
+        if (requestCode != REQUEST_CODE) return false;
+
+        Map<String, Boolean> roundResults = new HashMap<>();
+        for (int i = 0; i < permissions.length && i < grantResults.length; i++)
+            roundResults.put(permissions[i], grantResults[i] == PERMISSION_GRANTED);
+
+        List<Request> finishedRequests = new ArrayList<>();
+        String[] round;
+        synchronized (this) {
+            for (String permission : this.requestedPermissions) {
+                boolean granted = Boolean.TRUE.equals(roundResults.get(permission));
+                if (granted) this.grantedPermissions.add(permission);
+
+                List<Request> requests = this.waitingRequests.remove(permission);
+                if (requests == null) continue;
+                for (Request request : requests) {
+                    request.results.put(permission, granted);
+                    request.remainingPermissions.remove(permission);
+                    if (request.remainingPermissions.isEmpty()) finishedRequests.add(request);
+                }
+            }
+            this.requestedPermissions.clear();
+            round = startNextRound();
+        }
+
+        for (Request request : finishedRequests) request.callback.onResult(request.results);
+        if (round != null) this.platform.requestPermissions(round, REQUEST_CODE);
+        return true;
+    }
+
+    // Passes the permissions that are still missing as denied to all waiting requests, e.g. when the bridge is destroyed
+    void cancel(){
+        Set<Request> cancelledRequests = new LinkedHashSet<>();
+        synchronized (this) {
+            for (List<Request> requests : this.waitingRequests.values()) cancelledRequests.addAll(requests);
+            this.waitingRequests.clear();
+            this.requestedPermissions.clear();
+            this.nextPermissions.clear();
+        }
+        for (Request request : cancelledRequests) request.callback.onResult(request.results);
+    }
+
+    synchronized boolean isRequesting(){
+        return !this.requestedPermissions.isEmpty();
+    }
+
+    // Moves the collected permissions into the dialog, returns null if there are none
+    private String[] startNextRound(){
+        if (this.nextPermissions.isEmpty()) return null;
+
+        this.requestedPermissions.addAll(this.nextPermissions);
+        this.nextPermissions.clear();
+        return this.requestedPermissions.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.webviewbridge;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+// Photos of Native.takePhoto() and their thumbnails, served to the page over the asset origin -----
+//
+// The camera app writes the photo into the files of the app (shared with a FileProvider), the page
+// gets its URL, e.g. https://appassets.androidplatform.net/photos/IMG_20240101_120000_1.jpg, and
+// loads it like any image (no base64 strings, and fetch() can upload it). "?size=320" returns a
+// JPEG whose longer side is at most 320 pixels. The thumbnails are decoded with a sample size
+// (never the full bitmap) and cached on the disk, so they are only decoded once per size.
+// The photo the camera app is taking is recorded on the disk as well: a rotation (or the system
+// killing the app while the camera is open) recreates the Activity and its bridge, and the new
+// bridge gets the result of the camera app.
+
+class PhotoStore {
+    static final String PATH_PREFIX = "/photos/";
+    static final String URL_PREFIX = "https://" + AssetServer.HOST + PATH_PREFIX;
+    static final String DIRECTORY = "photos";
+    static final int DEFAULT_THUMBNAIL_SIZE = 320;
+    private static final int MIN_THUMBNAIL_SIZE = 16, MAX_THUMBNAIL_SIZE = 2048;
+    private static final String EXTENSION = ".jpg", PENDING_FILE = "pending.txt";
+    private static final Pattern ID_PATTERN = Pattern.compile("[A-Za-z0-9_-]+");
+
+    // Decodes and encodes the images, e.g. with BitmapFactory (see AndroidPhotoCodec)
+    interface Codec {
+        // Width and height of the photo (as it is displayed) without decoding the pixels
+        int[] readSize(File photo) throws IOException;
+
+        // Writes a JPEG of the photo whose longer side is at most maxSize pixels
+        void writeThumbnail(File photo, File thumbnail, int maxSize) throws IOException;
+    }
+
+    // Photo that the camera app is taking, see setPending()
+    static final class Pending {
+        final String id;
+        final int thumbnailSize;
+
+        Pending(String id, int thumbnailSize){
+            this.id = id;
+            this.thumbnailSize = thumbnailSize;
+        }
+    }
+
+    private final File photoDirectory, thumbnailDirectory;
+    private final Codec codec;
+    private int nextPhotoNumber = 0;
+
+    PhotoStore(File filesDir, File cacheDir, Codec codec){
+        this.photoDirectory = new File(filesDir, DIRECTORY);
+        this.thumbnailDirectory = new File(cacheDir, "photo-thumbnails");
+        this.codec = codec;
+    }
+
+    // A new empty file for the camera app, its name without extension is the id of the photo
+    synchronized File createPhotoFile() throws IOException {
+        if (!this.photoDirectory.isDirectory() && !this.photoDirectory.mkdirs())
+            throw new IOException("Could not create " + this.photoDirectory);
+
+        String name = "IMG_" + new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US).format(new Date());
+        File photo;
+        do {
+            photo = new File(this.photoDirectory, name + "_" + (++this.nextPhotoNumber) + EXTENSION);
+        } while (!photo.createNewFile());
+        return photo;
+    }
+
+    // File of the photo, whether the camera app has written it or not
+    File getFile(String id){
+        return new File(this.photoDirectory, id + EXTENSION);
+    }
+
+    static String getId(File photo){
+        String name = photo.getName();
+        return name.endsWith(EXTENSION) ? name.substring(0, name.length() - EXTENSION.length()) : name;
+    }
+
+    static String getUrl(String id){
+        return URL_PREFIX + id + EXTENSION;
+    }
+
+    static String getThumbnailUrl(String id, int maxSize){
+        return getUrl(id) + "?size=" + maxSize;
+    }
+
+    // Returns the id of a photo URL, null for other URLs and invalid ids (e.g. paths that leave the folder)
+    static String getRequestedId(String scheme, String host, String path){
+        if (!"https".equals(scheme) || !AssetServer.HOST.equals(host) || path == null || !path.startsWith(PATH_PREFIX) || !path.endsWith(EXTENSION))
+            return null;
+
+        String id = path.substring(PATH_PREFIX.length(), path.length() - EXTENSION.length());
+        return ID_PATTERN.matcher(id).matches() ? id : null;
+    }
+
+    // Returns the file of the photo, null if there is none
+    File getPhoto(String id){
+        if (id == null || !ID_PATTERN.matcher(id).matches()) return null;
+
+        File photo = new File(this.photoDirectory, id + EXTENSION);
+        return (photo.isFile() && photo.length() > 0) ? photo : null;
+    }
+
+    // Records the photo of the camera app until takePending(), it replaces an earlier one
+    synchronized void setPending(String id, int thumbnailSize) throws IOException {
+        FileStorage.writeText(new File(this.photoDirectory, PENDING_FILE), id + "\n" + thumbnailSize);
+    }
+
+    // Returns the recorded photo and forgets it, null if there is none
+    synchronized Pending takePending(){
+        File file = new File(this.photoDirectory, PENDING_FILE);
+        if (!file.isFile()) return null;
+
+        try {
+            String[] lines = FileStorage.readText(file, Long.MAX_VALUE).split("\n");
+            if (lines.length == 2 && ID_PATTERN.matcher(lines[0]).matches()) return new Pending(lines[0], Integer.parseInt(lines[1]));
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("An error occurred while reading the pending photo: " + e);
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+        return null;
+    }
+
+    int[] readSize(String id) throws IOException {
+        File photo = getPhoto(id);
+        if (photo == null) throw new IOException("There is no photo " + id);
+        return this.codec.readSize(photo);
+    }
+
+    // Returns the cached thumbnail or creates it, null if there is no photo. The sizes are rounded up to
+    // a multiple of 16 pixels, so pages asking for many sizes don't fill the cache. One thumbnail is
+    // decoded at a time, which keeps the memory of the WebView threads that request them low.
+    synchronized File getThumbnail(String id, int maxSize) throws IOException {
+        File photo = getPhoto(id);
+        if (photo == null) return null;
+
+        int size = roundThumbnailSize(maxSize);
+        File thumbnail = new File(this.thumbnailDirectory, id + "_" + size + EXTENSION);
+        if (thumbnail.isFile() && thumbnail.lastModified() >= photo.lastModified()) return thumbnail;
+
+        if (!this.thumbnailDirectory.isDirectory() && !this.thumbnailDirectory.mkdirs())
+            throw new IOException("Could not create " + this.thumbnailDirectory);
+
+        File temporaryThumbnail = new File(thumbnail.getPath() + ".tmp");
+        try {
+            this.codec.writeThumbnail(photo, temporaryThumbnail, size);
+            if (!temporaryThumbnail.renameTo(thumbnail)) throw new IOException("Could not create " + thumbnail);
+        } finally {
+            //noinspection ResultOfMethodCallIgnored
+            temporaryThumbnail.delete();
+        }
+        return thumbnail;
+    }
+
+    // Deletes the photo and its thumbnails, returns false if there was no photo
+    synchronized boolean delete(String id){
+        File photo = getPhoto(id);
+        if (photo == null) return false;
+
+        File[] thumbnails = this.thumbnailDirectory.listFiles();
+        if (thumbnails != null) {
+            for (File thumbnail : thumbnails) {
+                //noinspection ResultOfMethodCallIgnored
+                if (thumbnail.getName().matches(Pattern.quote(id) + "_\\d+\\" + EXTENSION)) thumbnail.delete();
+            }
+        }
+        return photo.delete();
+    }
+
+    static int roundThumbnailSize(int maxSize){
+        int size = Math.max(MIN_THUMBNAIL_SIZE, Math.min(MAX_THUMBNAIL_SIZE, maxSize));
+        return (size + 15) / 16 * 16;
+    }
+
+    // Largest power of two that keeps the longer side of the decoded image at least maxSize pixels, see
+    // BitmapFactory.Options.inSampleSize. The decoded image is then scaled down to maxSize exactly.
+    static int getSampleSize(int width, int height, int maxSize){
+        int longerSide = Math.max(width, height);
+        int sampleSize = 1;
+        while (longerSide / (sampleSize * 2) >= maxSize) sampleSize *= 2;
+        return sampleSize;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.webviewbridge;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Result of an expression evaluated in the page, see WebViewBridge.evaluateJavaScript() ----------
+//
+// Every expression gets its own result with an id, so concurrent callers don't overwrite each other
+// like with getLastCallbackValue(). The result is a Future (CompletableFuture needs API 24) and also
+// calls callbacks, which run on the UI thread when the page has answered. get() must not be called
+// on the UI thread, the answer is delivered there.
+
+@SuppressWarnings("unused")
+public class ScriptResult<T> implements Future<T> {
+
+    // Receives the value, or the error if the expression failed (then the value is null)
+    public interface Callback<T> {
+        void onResult(T value, Exception error);
+    }
+
+    // Converts the JSON text of evaluateJavascript() to the value of the result
+    public interface Decoder<T> {
+        T decode(String json) throws JSONException;
+    }
+
+    // The JSON text as returned by the WebView, e.g. "\"text\"" for a string
+    public static final Decoder<String> RAW = json -> json;
+    // JSONObject, JSONArray, String, Number or Boolean, null for null and undefined
+    public static final Decoder<Object> JSON = json -> {
+        Object value = new JSONTokener(json).nextValue();
+        return (value == JSONObject.NULL) ? null : value;
+    };
+
+    private final long id;
+    private final Decoder<T> decoder;
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private List<Callback<T>> callbacks = new ArrayList<>();
+    private T value;
+    private Exception error;
+    private boolean cancelled;
+
+    ScriptResult(long id, Decoder<T> decoder){
+        this.id = id;
+        this.decoder = decoder;
+    }
+
+    // Number of the expression in the page of its bridge
+    public long getId(){
+        return this.id;
+    }
+
+    // Calls the callback when the result is there, at once if it already is
+    public void addCallback(Callback<T> callback){
+        synchronized (this) {
+            if (this.callbacks != null) {
+                this.callbacks.add(callback);
+                return;
+            }
+        }
+        callback.onResult(this.value, this.error);
+    }
+
+    // Decodes the JSON text of the page and completes the result, returns false if it was already completed
+    boolean complete(String json){
+        T decodedValue;
+        try {
+            decodedValue = this.decoder.decode(json);
+        } catch (Exception e) {
+            return fail(e);
+        }
+        return finish(decodedValue, null, false);
+    }
+
+    boolean fail(Exception error){
+        return finish(null, error, false);
+    }
+
+    // The expression may still run if it was already sent to the page, only its result is dropped
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning){
+        return finish(null, new CancellationException("The script " + this.id + " was cancelled"), true);
+    }
+
+    @Override
+    public synchronized boolean isCancelled(){
+        return this.cancelled;
+    }
+
+    @Override
+    public boolean isDone(){
+        return this.latch.getCount() == 0;
+    }
+
+    @Override
+    public T get() throws InterruptedException, ExecutionException {
+        this.latch.await();
+        return getValue();
+    }
+
+    @Override
+    public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!this.latch.await(timeout, unit)) throw new TimeoutException("No result of the script " + this.id + " after " + unit.toMillis(timeout) + " ms");
+        return getValue();
+    }
+
+    // Completes when all results are completed, with their values in order, or fails with the first error.
+    // The id is the one of the first result.
+    static <T> ScriptResult<List<T>> all(final List<ScriptResult<T>> results){
+        final ScriptResult<List<T>> allResults = new ScriptResult<>(results.isEmpty() ? -1 : results.get(0).id, null);
+        if (results.isEmpty()) {
+            allResults.finish(new ArrayList<T>(), null, false);
+            return allResults;
+        }
+
+        final Object[] values = new Object[results.size()];
+        final int[] remaining = {results.size()};
+        for (int i = 0; i < results.size(); i++) {
+            final int index = i;
+            results.get(i).addCallback((value, error) -> {
+                if (error != null) {
+                    allResults.fail(error);
+                    return;
+                }
+                synchronized (values) {
+                    values[index] = value;
+                    if (--remaining[0] > 0) return;
+                }
+                @SuppressWarnings("unchecked")
+                List<T> list = (List<T>) Arrays.asList(values);
+                allResults.finish(list, null, false);
+            });
+        }
+        return allResults;
+    }
+
+    private T getValue() throws ExecutionException {
+        synchronized (this) {
+            if (this.cancelled) throw (CancellationException) this.error;
+            if (this.error != null) throw new ExecutionException(this.error);
+            return this.value;
+        }
+    }
+
+    private boolean finish(T value, Exception error, boolean cancelled){
+        List<Callback<T>> finishedCallbacks;
+        synchronized (this) {
+            if (this.callbacks == null) return false;
+
+            this.value = value;
+            this.error = error;
+            this.cancelled = cancelled;
+            finishedCallbacks = this.callbacks;
+            this.callbacks = null;
+        }
+        this.latch.countDown();
+
+        for (Callback<T> callback : finishedCallbacks) {
+            try {
+                callback.onResult(value, error);
+            } catch (RuntimeException e) {
+                System.err.println("An error occurred while passing the result of the script " + this.id + ": " + e);
+            }
+        }
+        return true;
+    }
+}
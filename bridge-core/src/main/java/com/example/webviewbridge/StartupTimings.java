@@ -0,0 +1,44 @@
+package com.example.webviewbridge;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Points in time of the startup of a bridge, in milliseconds since the origin ----------------------
+//
+// The origin is the start of the process where the platform reports it, so the timings of a pooled
+// bridge show how much of the work happened before the Activity needed it. Every point is recorded
+// once (e.g. the first pageFinished), later marks of the same name are ignored.
+
+class StartupTimings {
+
+    // Milliseconds of a monotonic clock, e.g. SystemClock.elapsedRealtime()
+    interface Clock {
+        long elapsedRealtime();
+    }
+
+    private final Clock clock;
+    private final long originMillis;
+    private final Map<String, Long> marks = new LinkedHashMap<>();
+
+    StartupTimings(Clock clock, long originMillis){
+        this.clock = clock;
+        this.originMillis = originMillis;
+    }
+
+    // Returns false if the point was already recorded
+    synchronized boolean mark(String name){
+        if (this.marks.containsKey(name)) return false;
+
+        this.marks.put(name, this.clock.elapsedRealtime() - this.originMillis);
+        return true;
+    }
+
+    synchronized Long get(String name){
+        return this.marks.get(name);
+    }
+
+    // In the order of the marks, e.g. {"webViewCreated": 412, "bridgeCreated": 430, "pageVisible": 655, ...}
+    synchronized Map<String, Long> getSnapshot(){
+        return new LinkedHashMap<>(this.marks);
+    }
+}
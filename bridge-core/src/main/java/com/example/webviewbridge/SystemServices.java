@@ -0,0 +1,33 @@
+package com.example.webviewbridge;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+// Handles of the system services, looked up once ----------------------------------------------------
+//
+// The handles don't change while the Context lives, so every service is requested from the host only
+// once instead of with every call of the JavaScript-Interface. Services the device doesn't have are
+// remembered as missing and return null.
+
+class SystemServices {
+    private static final Object MISSING = new Object();
+
+    private final BridgeHost host;
+    private final ConcurrentHashMap<String, Object> services = new ConcurrentHashMap<>();
+
+    SystemServices(BridgeHost host){
+        this.host = host;
+    }
+
+    // E.g. get(Context.VIBRATOR_SERVICE), the type is not checked
+    @SuppressWarnings("unchecked")
+    <T> T get(String name){
+        Object service = this.services.get(name);
+        if (service == null) {
+            Object newService = this.host.getSystemService(name);
+            if (newService == null) newService = MISSING;
+            service = this.services.putIfAbsent(name, newService);
+            if (service == null) service = newService;
+        }
+        return (service != MISSING) ? (T) service : null;
+    }
+}
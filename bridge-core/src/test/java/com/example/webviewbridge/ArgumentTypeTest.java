@@ -0,0 +1,76 @@
+package com.example.webviewbridge;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the decoding of declared argument types, executed on the development machine (host).
+ */
+public class ArgumentTypeTest {
+
+    public static class Zoom {
+        float factor;
+
+        public void setFactor(float factor) {
+            this.factor = factor;
+        }
+    }
+
+    @Test
+    public void declaredTypes_decodeHashStrings() {
+        ArgumentType[] types = ArgumentType.of(new Object[] {"String", "int", "boolean", "double", long.class});
+
+        Object[] values = ArgumentType.decodeAll(types, new Object[] {"007", "007", "true", "-1.5e2", "9007199254740993"});
+
+        assertArrayEquals(new Object[] {"007", 7, true, -150.0, 9007199254740993L}, values);
+    }
+
+    @Test
+    public void invalidValues_areRejectedWithoutGuessing() {
+        assertSame(ArgumentType.INVALID, ArgumentType.INT.decode("2147483648"));
+        assertSame(ArgumentType.INVALID, ArgumentType.INT.decode("12abc"));
+        assertSame(ArgumentType.INVALID, ArgumentType.LONG.decode("-"));
+        assertSame(ArgumentType.INVALID, ArgumentType.DOUBLE.decode("1e"));
+        assertSame(ArgumentType.INVALID, ArgumentType.BOOLEAN.decode("yes"));
+        assertEquals(Long.MIN_VALUE, ArgumentType.LONG.decode("-9223372036854775808"));
+        assertSame(ArgumentType.INVALID, ArgumentType.LONG.decode("9223372036854775808"));
+
+        assertNull(ArgumentType.decodeAll(ArgumentType.of(new Object[] {"int"}), new Object[] {"one"}));
+        assertNull(ArgumentType.decodeAll(ArgumentType.of(new Object[] {"String"}), new Object[] {"a", "b"}));
+    }
+
+    @Test
+    public void typedValues_areConvertedToTheDeclaredType() {
+        assertEquals(3, ArgumentType.INT.decode(3.0));
+        assertEquals("42", ArgumentType.STRING.decode(42));
+        assertEquals(2.0, ArgumentType.DOUBLE.decode(2));
+        assertTrue(ArgumentType.JSON.decode("{\"a\": [1, 2]}") instanceof JSONObject);
+        assertTrue(ArgumentType.JSON.decode(" [1]") instanceof JSONArray);
+        assertSame(ArgumentType.INVALID, ArgumentType.JSON.decode("{\"a\": "));
+    }
+
+    @Test
+    public void callableFunction_callsMethodWithDecodedArguments() throws Exception {
+        CallableFunction function = new CallableFunction(new StringBuilder(), "append", "append", new Object[] {"int"});
+
+        Object result = function.call("0042");
+
+        assertEquals("42", result.toString());
+    }
+
+    @Test
+    public void floatParameters_getFloatValues() throws Exception {
+        assertEquals(0.1f, ArgumentType.of("float").decode("0.1"));
+        assertEquals(2.0f, ArgumentType.of(Float.class).decode(2));
+        assertSame(ArgumentType.INVALID, ArgumentType.FLOAT.decode("1e39"));
+
+        Zoom zoom = new Zoom();
+        new CallableFunction(zoom, "setFactor", "setFactor", new Object[] {float.class}).call("1.25");
+        assertEquals(1.25f, zoom.factor, 0f);
+        new CallableFunction(zoom, "setFactor", "setFactor", new Object[] {"Float"}).call(0.5);
+        assertEquals(0.5f, zoom.factor, 0f);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.webviewbridge;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the assets of the virtual https origin, executed on the development machine (host).
+ */
+public class AssetServerTest {
+
+    private final Map<String, byte[]> assets = new HashMap<>();
+    private int opened = 0;
+
+    private AssetServer createServer(long maxCacheSize) {
+        return new AssetServer(path -> {
+            this.opened++;
+            byte[] data = this.assets.get(path);
+            if (data == null) throw new FileNotFoundException(path);
+            return new ByteArrayInputStream(data);
+        }, maxCacheSize);
+    }
+
+    @Test
+    public void getAssetPath_onlyAcceptsTheOrigin() {
+        assertEquals("index.html", AssetServer.getAssetPath("https", AssetServer.HOST, "/assets/"));
+        assertEquals("src/js/hybrid-app.js", AssetServer.getAssetPath("https", AssetServer.HOST, "/assets/src/js/hybrid-app.js"));
+        assertNull(AssetServer.getAssetPath("http", AssetServer.HOST, "/assets/index.html"));
+        assertNull(AssetServer.getAssetPath("https", "example.com", "/assets/index.html"));
+        assertNull(AssetServer.getAssetPath("https", AssetServer.HOST, "/assets/../secret.txt"));
+    }
+
+    @Test
+    public void repeatedRequests_areServedFromTheCache() throws Exception {
+        this.assets.put("index.html", "<html></html>".getBytes(StandardCharsets.UTF_8));
+        AssetServer server = createServer(1024);
+
+        AssetServer.Asset first = server.get("index.html");
+        AssetServer.Asset second = server.get("index.html");
+
+        assertSame(first, second);
+        assertEquals("text/html", first.mimeType);
+        assertEquals("UTF-8", first.encoding);
+        assertEquals(2, this.opened);
+        assertEquals(1, server.getHitCount());
+        assertNull(server.get("missing.js"));
+    }
+
+    @Test
+    public void compressedVariant_isDecompressedOnce() throws Exception {
+        byte[] script = "console.log('hello');".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream outputStream = new GZIPOutputStream(compressed)) {
+            outputStream.write(script);
+        }
+        this.assets.put("app.js.gz", compressed.toByteArray());
+        AssetServer server = createServer(1024);
+
+        AssetServer.Asset asset = server.get("app.js");
+
+        assertArrayEquals(script, asset.data);
+        assertEquals("text/javascript", asset.mimeType);
+        assertEquals(1, this.opened);
+    }
+
+    @Test
+    public void cache_evictsLeastRecentlyUsedAssets() throws Exception {
+        this.assets.put("a.png", new byte[400]);
+        this.assets.put("b.png", new byte[400]);
+        this.assets.put("c.png", new byte[400]);
+        AssetServer server = createServer(1000);
+
+        server.preload("a.png", "b.png");
+        server.get("a.png");
+        server.get("c.png");
+        server.get("a.png");
+        server.get("b.png");
+
+        assertEquals(2, server.getHitCount());
+        assertEquals(2, server.getMissCount());
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.webviewbridge;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the bridge core on an in-memory host, executed on the development machine (host).
+ */
+public class BridgeCoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    public static class Target {
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        volatile boolean echoedAsync;
+
+        public void greet(String name, int count) {
+            this.calls.add(name + count);
+        }
+
+        public String echo(String value) {
+            this.echoedAsync = AsyncCallDispatcher.isAsyncCall();
+            return value + "!";
+        }
+    }
+
+    private final Target target = new Target();
+    private InMemoryBridgeHost host;
+    private BridgeCore core;
+
+    @Before
+    public void setUp() {
+        this.host = new InMemoryBridgeHost(this.folder.getRoot());
+        Map<String, CallableFunction> interfaceFunctions = Collections.singletonMap("echo",
+                new CallableFunction(this.target, "echo", "echo", new Object[] {"String"}));
+        this.core = new BridgeCore(this.host, interfaceFunctions);
+        this.core.callableFunctions.put("greet", new CallableFunction(this.target, "greet", "greet", new Object[] {"String", "int"}));
+    }
+
+    @After
+    public void tearDown() {
+        this.core.shutdown();
+    }
+
+    @Test
+    public void messageFramesAndHashCalls_areDispatched() {
+        this.core.dispatchMessageFrame("[[1,\"greet\",[\"a\",1]],[2,\"greet\",[\"b\",\"2\"]],[3,\"unknown\",[]]]");
+        assertTrue(this.target.calls.isEmpty());
+
+        this.host.runPendingTasks();
+        this.core.dispatchHashCall("greet=c&3");
+
+        assertEquals(Arrays.asList("a1", "b2", "c3"), this.target.calls);
+        assertEquals(Long.valueOf(3), this.core.metrics.getSnapshot().get("callable:greet").get("count"));
+    }
+
+    @Test
+    public void domCommands_waitForThePageAndSendTheRuntimeOnce() {
+        this.core.executeJavaScript(null, "first()");
+        this.host.runPendingTasks();
+        assertTrue(this.host.getScripts().isEmpty());
+
+        this.core.onPageFinished();
+        this.core.executeJavaScript(null, "second()");
+        this.host.runPendingTasks();
+        this.core.executeJavaScript(null, "third()");
+        this.host.runPendingTasks();
+
+        List<String> scripts = this.host.getScripts();
+        assertEquals(2, scripts.size());
+        assertTrue(scripts.get(0).startsWith(DomScripts.RUNTIME));
+        assertTrue(scripts.get(0).contains("first()") && scripts.get(0).contains("second()"));
+        assertEquals("try{third()\n}catch(e){console.error(e);}", scripts.get(1));
+    }
+
+    @Test
+    public void asyncCalls_settleTheirPromises() throws InterruptedException {
+        this.core.asyncCallDispatcher.call("page:1", "echo", "[\"hello\"]");
+        this.core.asyncCallDispatcher.call("page:2", "missing", "[]");
+
+        for (int i = 0; i < 200 && !(joinedScripts().contains("page:1") && joinedScripts().contains("page:2")); i++) {
+            Thread.sleep(10);
+            this.host.runPendingTasks();
+        }
+
+        String scripts = joinedScripts();
+        assertTrue(scripts, scripts.contains("[\"page:1\",true,\"hello!\"]"));
+        assertTrue(scripts, scripts.contains("[\"page:2\",false,\"Unknown function: missing\"]"));
+        assertEquals(0, this.core.asyncCallDispatcher.getPendingCallCount());
+        // Only the calls of Promises may wait, e.g. for a permission dialog
+        assertTrue(this.target.echoedAsync);
+        assertFalse(AsyncCallDispatcher.isAsyncCall());
+    }
+
+    private String joinedScripts() {
+        StringBuilder scripts = new StringBuilder();
+        for (String script : this.host.getScripts()) scripts.append(script).append('\n');
+        return scripts.toString();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.webviewbridge;
+
+import org.json.JSONArray;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the debounced events of Native.on(), executed on the development machine (host).
+ */
+public class BridgeEventsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static JSONArray getEvents(String script) throws Exception {
+        String prefix = "window.Native&&Native._dispatchEvents(";
+        assertTrue(script, script.startsWith(prefix) && script.endsWith(");"));
+        return new JSONArray(script.substring(prefix.length(), script.length() - 2));
+    }
+
+    @Test
+    public void burst_isPassedWithOneScript() throws Exception {
+        InMemoryBridgeHost host = new InMemoryBridgeHost(this.folder.getRoot());
+        BridgeEvents events = new BridgeEvents(host);
+
+        events.dispatch("connectivity", "\"TYPE_NOT_CONNECTED\"");
+        events.dispatch("nightMode", "\"UI_MODE_NIGHT_YES\"");
+        events.dispatch("connectivity", "\"TYPE_WIFI\"");
+        assertEquals(1, host.runPendingTasks());
+
+        List<String> scripts = host.getScripts();
+        assertEquals(1, scripts.size());
+        JSONArray dispatched = getEvents(scripts.get(0));
+        assertEquals(2, dispatched.length());
+        assertEquals("connectivity", dispatched.getJSONArray(0).getString(0));
+        assertEquals("TYPE_WIFI", dispatched.getJSONArray(0).getString(1));
+        assertEquals("UI_MODE_NIGHT_YES", dispatched.getJSONArray(1).getString(1));
+    }
+
+    @Test
+    public void eventsAfterFlush_areScheduledAgain() throws Exception {
+        InMemoryBridgeHost host = new InMemoryBridgeHost(this.folder.getRoot());
+        BridgeEvents events = new BridgeEvents(host);
+
+        events.dispatch("capabilities", "{\"camera\":true}");
+        host.runPendingTasks();
+        events.flush();
+        events.dispatch("capabilities", "{\"camera\":false}");
+        host.runPendingTasks();
+
+        List<String> scripts = host.getScripts();
+        assertEquals(2, scripts.size());
+        assertFalse(getEvents(scripts.get(1)).getJSONArray(0).getJSONObject(1).getBoolean("camera"));
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.webviewbridge;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the messages of the callable functions, executed on the development machine (host).
+ */
+public class BridgeMessageTest {
+
+    @Test
+    public void parseHashCall_splitsKeywordAndArguments() {
+        BridgeMessage message = BridgeMessage.parseHashCall("setTitle=Hello&42&");
+        assertEquals("setTitle", message.keyword);
+        assertArrayEquals(new Object[] {"Hello", "42", ""}, message.arguments);
+
+        assertArrayEquals(new Object[] {"a=b"}, BridgeMessage.parseHashCall("set=a=b").arguments);
+        assertNull(BridgeMessage.parseHashCall("section-2"));
+        assertNull(BridgeMessage.parseHashCall("=value"));
+    }
+
+    @Test
+    public void parseFrame_keepsTheJsonTypes() throws JSONException {
+        List<BridgeMessage> messages = BridgeMessage.parseFrame("[[1,\"a\",[true,2,2.5,\"x\",null]],[2,\"b\"]]");
+
+        assertEquals(2, messages.size());
+        assertArrayEquals(new Object[] {true, 2, 2.5, "x", null}, messages.get(0).arguments);
+        assertEquals(0, messages.get(1).arguments.length);
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.webviewbridge;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the latency histograms of the bridge calls, executed on the development machine (host).
+ */
+public class BridgeMetricsTest {
+
+    @Test
+    public void buckets_keepTheirPrecision() {
+        for (long micros = 0; micros < 5_000_000; micros = micros * 3 / 2 + 1) {
+            long upperBound = BridgeMetrics.getBucketUpperBound(BridgeMetrics.getBucketIndex(micros));
+            assertTrue(micros + " <= " + upperBound, micros <= upperBound);
+            assertTrue(micros + " ~ " + upperBound, upperBound <= micros + micros / 8);
+        }
+        assertEquals(15, BridgeMetrics.getBucketIndex(15));
+        assertEquals(16, BridgeMetrics.getBucketIndex(16));
+        assertEquals(311, BridgeMetrics.getBucketIndex(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void histogram_returnsPercentilesAndErrors() {
+        BridgeMetrics.Histogram histogram = new BridgeMetrics().getHistogram("callable:test");
+        for (int i = 1; i <= 100; i++) histogram.record(i * 10, i % 10 == 0);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(10, histogram.getErrorCount());
+        assertEquals(500, histogram.getPercentile(50), 500 / 8);
+        assertEquals(990, histogram.getPercentile(99), 990 / 8);
+        assertEquals(1000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void snapshot_isSortedByMethod() {
+        BridgeMetrics metrics = new BridgeMetrics();
+        metrics.record("callable:b", metrics.start(), false);
+        metrics.record("async:a", metrics.start(), true);
+
+        Map<String, Map<String, Long>> snapshot = metrics.getSnapshot();
+        assertArrayEquals(new String[]{"async:a", "callable:b"}, snapshot.keySet().toArray());
+        assertEquals(Long.valueOf(1), snapshot.get("async:a").get("errors"));
+
+        metrics.setEnabled(false);
+        metrics.record("callable:c", metrics.start(), false);
+        assertFalse(metrics.getSnapshot().containsKey("callable:c"));
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.webviewbridge;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the key-value store of Native.store, executed on the development machine (host).
+ */
+public class BridgeStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File getLog() {
+        return new File(this.folder.getRoot(), "bridge-store.log");
+    }
+
+    @Test
+    public void manyWrites_areCommittedInFewFrames() throws Exception {
+        try (BridgeStore store = new BridgeStore(getLog())) {
+            for (int i = 0; i < 5000; i++) store.put("key" + (i % 100), "value " + i);
+            store.delete("key0");
+
+            assertEquals("value 4999", store.get("key99"));
+            assertNull(store.get("key0"));
+            store.flush();
+            assertTrue(store.getCommitCount() < 10);
+            assertEquals(99, store.size());
+        }
+
+        try (BridgeStore store = new BridgeStore(getLog())) {
+            assertEquals("value 4999", store.get("key99"));
+            assertEquals("value 4901", store.get("key1"));
+            assertNull(store.get("key0"));
+            assertEquals(99, store.size());
+        }
+    }
+
+    @Test
+    public void tornFrame_isDroppedWhenOpened() throws Exception {
+        try (BridgeStore store = new BridgeStore(getLog())) {
+            store.put("darkMode", "1");
+            store.flush();
+            Map<String, String> batch = new LinkedHashMap<>();
+            batch.put("darkMode", "0");
+            batch.put("language", "de");
+            store.batch(batch);
+        }
+
+        // Cuts the last frame (the batch) in half, like a crash during the write
+        try (RandomAccessFile file = new RandomAccessFile(getLog(), "rw")) {
+            file.setLength(file.length() - 10);
+        }
+
+        try (BridgeStore store = new BridgeStore(getLog())) {
+            assertEquals("1", store.get("darkMode"));
+            assertNull(store.get("language"));
+            store.put("language", "en");
+        }
+        try (BridgeStore store = new BridgeStore(getLog())) {
+            assertEquals("en", store.get("language"));
+        }
+    }
+
+    @Test
+    public void overwrittenValues_areCompacted() throws Exception {
+        StringBuilder value = new StringBuilder();
+        while (value.length() < 10000) value.append("0123456789");
+
+        try (BridgeStore store = new BridgeStore(getLog(), 1000)) {
+            for (int i = 0; i < 500; i++) {
+                store.put("key" + (i % 10), value.toString() + i);
+                if (i % 50 == 0) store.flush();
+            }
+            store.flush();
+
+            // 5 MB were written, the log is compacted from 1 MB on (by the thread of the compaction)
+            long deadline = System.currentTimeMillis() + 5000;
+            while (store.getLogSize() >= 1024 * 1024 + 50 * 10010 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+            assertTrue(store.getLogSize() < 1024 * 1024 + 50 * 10010);
+            assertEquals(value.toString() + 495, store.get("key5"));
+        }
+
+        try (BridgeStore store = new BridgeStore(getLog())) {
+            assertEquals(value.toString() + 499, store.get("key9"));
+            assertEquals(10, store.size());
+        }
+    }
+
+    @Test
+    public void acquiredStores_areSharedUntilTheLastRelease() throws Exception {
+        BridgeStore first = BridgeStore.acquire(getLog());
+        BridgeStore second = BridgeStore.acquire(new File(this.folder.getRoot(), "./bridge-store.log"));
+        assertSame(first, second);
+
+        first.put("language", "de");
+        first.release();
+        second.put("darkMode", "1");
+        second.release();
+
+        BridgeStore third = BridgeStore.acquire(getLog());
+        assertNotSame(first, third);
+        assertEquals("de", third.get("language"));
+        assertEquals("1", third.get("darkMode"));
+        third.release();
+    }
+}
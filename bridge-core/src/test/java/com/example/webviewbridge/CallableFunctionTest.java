@@ -0,0 +1,116 @@
+package com.example.webviewbridge;
+
+import com.example.webviewbridge.annotations.BridgeMethods;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the dispatch of callable functions, executed on the development machine (host).
+ */
+public class CallableFunctionTest {
+
+    private static final int THREADS = 16;
+    private static final int CALLS_PER_THREAD = 2000;
+
+    @SuppressWarnings("unused")
+    static class Target {
+        final AtomicLong sum = new AtomicLong();
+        final AtomicInteger mismatches = new AtomicInteger();
+        final AtomicInteger calls = new AtomicInteger();
+        CallableFunction self;
+
+        void add(Integer value, String check) {
+            if (!String.valueOf(value).equals(check)) mismatches.incrementAndGet();
+            sum.addAndGet(value);
+        }
+
+        void countDown(int depth) {
+            calls.incrementAndGet();
+            if (depth > 0) self.invokeMethod(depth - 1);
+        }
+
+        private void primitive(int value) {
+            sum.addAndGet(value);
+        }
+    }
+
+    @Test
+    public void concurrentCalls_keepTheirOwnArguments() throws Exception {
+        final Target target = new Target();
+        final CallableFunction callableFunction = new CallableFunction(target, "add", "add", new Object[] {"Integer", "String"});
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            final int offset = t * CALLS_PER_THREAD;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < CALLS_PER_THREAD; i++) {
+                    int value = offset + i;
+                    callableFunction.invokeMethod(value, String.valueOf(value));
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) future.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+
+        long n = (long) THREADS * CALLS_PER_THREAD;
+        assertEquals(0, target.mismatches.get());
+        assertEquals(n * (n - 1) / 2, target.sum.get());
+    }
+
+    @Test
+    public void reentrantCall_usesInnerArguments() {
+        Target target = new Target();
+        target.self = new CallableFunction(target, "countDown", "countDown");
+
+        target.self.invokeMethod(5);
+
+        assertEquals(6, target.calls.get());
+    }
+
+    @Test
+    public void boxedArgument_matchesPrimitiveOverload() {
+        Target target = new Target();
+        CallableFunction callableFunction = new CallableFunction(target, "primitive", "primitive");
+
+        callableFunction.invokeMethod(20);
+        callableFunction.invokeMethod(22);
+
+        assertEquals(42, target.sum.get());
+    }
+
+    @Test
+    public void bridgeMethod_isCalledWithDecodedArguments() throws Exception {
+        final Target target = new Target();
+        BridgeMethods bridgeMethods = new BridgeMethods() {
+            public String[] getKeywords() { return new String[] {"add"}; }
+            public String[] getParameterTypes(int index) { return new String[] {"int", "String"}; }
+            public String getJavaScript() { return ""; }
+            public Object call(int index, Object[] arguments) {
+                target.add((Integer) arguments[0], (String) arguments[1]);
+                return target.sum.get();
+            }
+        };
+        CallableFunction callableFunction = new CallableFunction(bridgeMethods, 0, "add");
+
+        assertEquals(42L, callableFunction.call("42", "42"));
+        assertEquals(0, target.mismatches.get());
+    }
+}
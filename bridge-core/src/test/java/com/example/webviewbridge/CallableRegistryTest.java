@@ -0,0 +1,86 @@
+package com.example.webviewbridge;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the callable functions shared by several bridges, executed on the development machine (host).
+ */
+public class CallableRegistryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    public static class Page {
+        final String name;
+        final List<String> calls = new ArrayList<>();
+
+        Page(String name) {
+            this.name = name;
+        }
+
+        public void open(String url) {
+            this.calls.add(url);
+        }
+    }
+
+    @Test
+    public void snapshots_keepTheirFunctions() {
+        CallableRegistry registry = new CallableRegistry();
+        CallableFunction first = new CallableFunction(new Page("a"), "open", "open", new Object[] {"String"});
+        registry.put("open", first);
+
+        Map<String, CallableFunction> snapshot = registry.snapshot();
+        assertFalse(registry.putIfAbsent("open", new CallableFunction(new Page("b"), "open", "open", new Object[] {"String"})));
+        registry.remove("open");
+        registry.remove("unknown");
+
+        assertSame(first, snapshot.get("open"));
+        assertNull(registry.get("open"));
+        assertEquals(0, registry.size());
+
+        registry.addScript("stub();");
+        registry.addScript("stub();");
+        assertEquals(Collections.singletonList("stub();"), registry.getScripts());
+    }
+
+    @Test
+    public void contextualFunctions_runOnTheCallingBridge() {
+        CallableRegistry registry = new CallableRegistry();
+        Page first = new Page("first"), second = new Page("second");
+        BridgeCore firstCore = createCore(registry, first), secondCore = createCore(registry, second);
+        registry.putIfAbsent("open", new CallableFunction(Page.class, "open", "open", new Object[] {"String"}));
+
+        firstCore.dispatchHashCall("open=a");
+        secondCore.dispatchHashCall("open=b");
+        firstCore.dispatchHashCall("open=c");
+
+        assertEquals(Arrays.asList("a", "c"), first.calls);
+        assertEquals(Collections.singletonList("b"), second.calls);
+        assertNull(BridgeCore.getCallingCore());
+        assertEquals(1, registry.size());
+
+        firstCore.shutdown();
+        secondCore.shutdown();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void contextualFunctions_needACallingBridge() throws Exception {
+        new CallableFunction(Page.class, "open", "open", new Object[] {"String"}).call(new Object[] {"a"});
+    }
+
+    private BridgeCore createCore(CallableRegistry registry, Page page) {
+        BridgeCore core = new BridgeCore(new InMemoryBridgeHost(this.folder.getRoot()), Collections.<String, CallableFunction>emptyMap(), registry);
+        core.putContextObject(Page.class, page);
+        return core;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.webviewbridge;
+
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the capability snapshot of Native.capabilities(), executed on the development machine (host).
+ */
+public class DeviceCapabilitiesTest {
+
+    private static Map<String, Object> values(boolean cameraGranted){
+        Map<String, Boolean> permissions = new LinkedHashMap<>();
+        permissions.put("android.permission.CAMERA", cameraGranted);
+
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("camera", true);
+        values.put("torchCameraId", JSONObject.NULL);
+        values.put("connectivity", "TYPE_WIFI");
+        values.put("permissions", permissions);
+        return values;
+    }
+
+    @Test
+    public void update_reportsChanges() {
+        DeviceCapabilities capabilities = new DeviceCapabilities();
+        assertTrue(capabilities.isEmpty());
+        assertTrue(capabilities.update(values(false)));
+        assertFalse(capabilities.update(values(false)));
+        assertTrue(capabilities.update(values(true)));
+
+        assertFalse(capabilities.put("connectivity", "TYPE_WIFI"));
+        assertTrue(capabilities.put("connectivity", "TYPE_MOBILE"));
+        assertEquals("TYPE_MOBILE", capabilities.get("connectivity"));
+    }
+
+    @Test
+    public void toJson_containsAllValues() throws Exception {
+        DeviceCapabilities capabilities = new DeviceCapabilities();
+        capabilities.update(values(true));
+
+        String json = capabilities.toJson();
+        assertSame(json, capabilities.toJson());
+
+        JSONObject snapshot = new JSONObject(json);
+        assertTrue(snapshot.getBoolean("camera"));
+        assertTrue(snapshot.isNull("torchCameraId"));
+        assertTrue(snapshot.getJSONObject("permissions").getBoolean("android.permission.CAMERA"));
+
+        capabilities.put("camera", false);
+        assertFalse(new JSONObject(capabilities.toJson()).getBoolean("camera"));
+    }
+}
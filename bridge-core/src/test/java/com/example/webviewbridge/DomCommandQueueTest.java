@@ -0,0 +1,115 @@
+package com.example.webviewbridge;
+
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the queue of DOM commands, executed on the development machine (host).
+ */
+public class DomCommandQueueTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void commandsWithSameMergeKey_areMerged() {
+        // No page is loaded, so the queue never touches the WebView
+        DomCommandQueue queue = new DomCommandQueue(null, null);
+
+        queue.add(DomCommandQueue.mergeKey("style", DomScripts.BY_ID, "title", "color"), "a");
+        queue.add(DomCommandQueue.mergeKey("style", DomScripts.BY_ID, "title", "color"), "b");
+        queue.add(DomCommandQueue.mergeKey("style", DomScripts.BY_ID, "title", "margin"), "c");
+        // The parts can contain any character without colliding with other parts
+        queue.add(DomCommandQueue.mergeKey("attribute", DomScripts.BY_ID, "a#b", "c"), "d");
+        queue.add(DomCommandQueue.mergeKey("attribute", DomScripts.BY_ID, "a", "b#c"), "e");
+        queue.add("f");
+        queue.add("f");
+
+        assertEquals(6, queue.size());
+    }
+
+    @Test
+    public void buildScript_keepsOrderAndIsolatesErrors() {
+        Map<String, String> commands = new LinkedHashMap<>();
+        commands.put("#0", "first()");
+        commands.put("#1", "second() // comment");
+
+        assertEquals("try{first()\n}catch(e){console.error(e);}try{second() // comment\n}catch(e){console.error(e);}",
+                DomCommandQueue.buildScript(null, commands));
+    }
+
+    @Test
+    public void buildScript_runsThePreludeFirst() {
+        Map<String, String> commands = new LinkedHashMap<>();
+        commands.put("#0", "first()");
+
+        assertEquals("init()\ntry{first()\n}catch(e){console.error(e);}", DomCommandQueue.buildScript("init()", commands));
+    }
+
+    @Test
+    public void expressions_getTheirOwnResults() throws Exception {
+        InMemoryBridgeHost host = new InMemoryBridgeHost(this.folder.getRoot());
+        host.setScriptEvaluator(script -> "{\"#1\":[1,\"\\\"Title\\\"\"],\"#2\":[0,\"ReferenceError: x is not defined\"],\"#3\":[1,null]}");
+        DomCommandQueue queue = new DomCommandQueue(host, null);
+        queue.onPageFinished();
+
+        queue.add("first()");
+        ScriptResult<String> title = queue.addExpression("document.title", ScriptResult.RAW);
+        ScriptResult<Object> missing = queue.addExpression("x", ScriptResult.JSON);
+        ScriptResult<Object> undefined = queue.addExpression("void 0", ScriptResult.JSON);
+        host.runPendingTasks();
+
+        assertEquals(1, host.getScripts().size());
+        assertTrue(host.getScripts().get(0).startsWith("window._bridgeResults={};try{first()"));
+        assertEquals("\"Title\"", title.get(0, TimeUnit.MILLISECONDS));
+        assertEquals(1, title.getId());
+        assertNull(undefined.get());
+        try {
+            missing.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause().getMessage().contains("ReferenceError"));
+        }
+    }
+
+    @Test
+    public void batches_areEvaluatedInOneScript() throws Exception {
+        InMemoryBridgeHost host = new InMemoryBridgeHost(this.folder.getRoot());
+        host.setScriptEvaluator(script -> "{\"#0\":[1,\"1\"],\"#1\":[1,\"{\\\"a\\\":2}\"]}");
+        DomCommandQueue queue = new DomCommandQueue(host, null);
+        queue.onPageFinished();
+
+        List<ScriptResult<Object>> results = queue.addExpressions(Arrays.asList("1", "({a:2})"), ScriptResult.JSON);
+        ScriptResult<List<Object>> all = ScriptResult.all(results);
+        ScriptResult<String> cancelled = queue.addExpression("later()", ScriptResult.RAW);
+        cancelled.cancel(true);
+        host.runPendingTasks();
+
+        assertEquals(1, host.getScripts().size());
+        assertEquals(1, all.get().get(0));
+        assertEquals(2, ((JSONObject) all.get().get(1)).getInt("a"));
+        assertTrue(cancelled.isCancelled());
+    }
+
+    @Test(expected = CancellationException.class)
+    public void pendingResults_areCancelled() throws Exception {
+        DomCommandQueue queue = new DomCommandQueue(null, null);
+        ScriptResult<String> result = queue.addExpression("document.title", ScriptResult.RAW);
+        queue.cancelResults();
+
+        assertEquals(0, queue.size());
+        result.get();
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.webviewbridge;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the calls of the DOM helper runtime, executed on the development machine (host).
+ */
+public class DomScriptsTest {
+
+    @Test
+    public void toStylePropertyName_convertsEveryHyphen() {
+        assertEquals("color", DomScripts.toStylePropertyName("color"));
+        assertEquals("backgroundColor", DomScripts.toStylePropertyName("background-color"));
+        assertEquals("borderTopLeftRadius", DomScripts.toStylePropertyName("border-top-left-radius"));
+        assertEquals("webkitTransform", DomScripts.toStylePropertyName("-webkit-transform"));
+        assertEquals("--main-color", DomScripts.toStylePropertyName("--main-color"));
+        assertEquals("marginTop", DomScripts.toStylePropertyName("marginTop"));
+    }
+
+    @Test
+    public void call_escapesAllArguments() {
+        assertEquals("__bridge.setStyle('i','title','color','red');",
+                DomScripts.call("setStyle", DomScripts.BY_ID, "title", "color", "red"));
+        assertEquals("__bridge.setProperty('c','x\\');alert(1);//','innerHTML','a\\nb');",
+                DomScripts.call("setProperty", DomScripts.BY_CLASS, "x');alert(1);//", "innerHTML", "a\nb"));
+    }
+
+    @Test
+    public void callInsertHtml_writesTheEscapedNode() {
+        HtmlNode node = new HtmlNode("p", "it's");
+        assertEquals("__bridge.insertHtml('t','main','beforeEnd','<p>it\\'s</p>');",
+                DomScripts.callInsertHtml(DomScripts.BY_TAG_NAME, "main", "beforeEnd", node));
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.webviewbridge;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the file access of readFile() and writeFile(), executed on the development machine (host).
+ */
+public class FileStorageTest {
+
+    private static final String TEXT = "{\"name\": \"J\u00fcrgen\",\r\n \"emoji\": \"\ud83d\ude00\"}\n\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writeAndReadText_keepsContentUnchanged() throws Exception {
+        File file = new File(this.folder.getRoot(), "data.json");
+
+        FileStorage.writeText(file, TEXT);
+
+        assertEquals(TEXT, FileStorage.readText(file, Long.MAX_VALUE));
+        assertEquals(TEXT, FileStorage.readText(file, 0));
+        assertArrayEquals(TEXT.getBytes(StandardCharsets.UTF_8), FileStorage.readBytes(file));
+        assertArrayEquals(new String[] {"data.json"}, this.folder.getRoot().list());
+    }
+
+    @Test
+    public void writeText_largerThanBuffer_splitsNoSurrogatePairs() throws Exception {
+        File file = new File(this.folder.getRoot(), "large.txt");
+        StringBuilder text = new StringBuilder("x");
+        while (text.length() < 100000) text.append("\ud83d\ude00\u00e4");
+
+        FileStorage.writeText(file, text.toString());
+
+        assertEquals(text.toString(), FileStorage.readText(file, Long.MAX_VALUE));
+    }
+
+    @Test
+    public void concurrentWrites_leaveOneCompleteFile() throws Exception {
+        File file = new File(this.folder.getRoot(), "a");
+        Thread[] writers = new Thread[4];
+        final Exception[] errors = new Exception[writers.length];
+        for (int i = 0; i < writers.length; i++) {
+            final int index = i;
+            final StringBuilder text = new StringBuilder();
+            while (text.length() < 200000) text.append((char) ('a' + i));
+            writers[i] = new Thread(() -> {
+                try {
+                    for (int round = 0; round < 5; round++) FileStorage.writeText(file, text.toString());
+                } catch (Exception e) {
+                    errors[index] = e;
+                }
+            });
+            writers[i].start();
+        }
+        for (Thread writer : writers) writer.join();
+
+        for (Exception error : errors) assertNull(error);
+        String text = FileStorage.readText(file, Long.MAX_VALUE);
+        assertEquals(200000, text.length());
+        // The content of one writer, not a mix
+        assertEquals("", text.replace(text.substring(0, 1), ""));
+        assertArrayEquals(new String[] {"a"}, this.folder.getRoot().list());
+    }
+
+    @Test
+    public void chunkReader_keepsCharactersTogether() throws Exception {
+        File file = new File(this.folder.getRoot(), "chunks.txt");
+        FileStorage.writeText(file, TEXT);
+
+        StringBuilder text = new StringBuilder();
+        int chunks = 0;
+        try (FileStorage.ChunkReader reader = new FileStorage.ChunkReader(file, 5)) {
+            for (String chunk; (chunk = reader.next()) != null; chunks++) {
+                assertTrue(chunk.getBytes(StandardCharsets.UTF_8).length <= 5);
+                text.append(chunk);
+            }
+            assertNull(reader.next());
+        }
+
+        assertEquals(TEXT, text.toString());
+        assertTrue(chunks > 5);
+    }
+}
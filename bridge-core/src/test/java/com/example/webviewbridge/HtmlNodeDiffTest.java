@@ -0,0 +1,82 @@
+package com.example.webviewbridge;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the patches of rendered HTML nodes, executed on the development machine (host).
+ */
+public class HtmlNodeDiffTest {
+
+    private static final String CONTAINER = "document.getElementById('list')";
+
+    private static HtmlNode createList(int items) {
+        HtmlNode list = new HtmlNode("ul");
+        for (int i = 0; i < items; i++) list.appendChild(new HtmlNode("li", "Item " + i));
+        return list;
+    }
+
+    @Test
+    public void firstUpdate_rendersWholeNode() {
+        HtmlNode list = createList(2);
+
+        HtmlNodeDiff.Patch patch = HtmlNodeDiff.update(CONTAINER, null, list);
+
+        assertTrue(patch.script.startsWith(CONTAINER + ".innerHTML='<ul " + HtmlNode.NODE_ID_ATTRIBUTE));
+        assertEquals(2, patch.snapshot.children.length);
+    }
+
+    @Test
+    public void unchangedNode_createsNoPatches() {
+        HtmlNode list = createList(100);
+        HtmlNodeDiff.Snapshot snapshot = HtmlNodeDiff.update(CONTAINER, null, list).snapshot;
+
+        HtmlNodeDiff.Patch patch = HtmlNodeDiff.update(CONTAINER, snapshot, list);
+
+        assertEquals(0, patch.patchCount);
+        assertEquals("", patch.script);
+    }
+
+    @Test
+    public void changedAttributeStyleAndText_onlySendTheChanges() {
+        HtmlNode list = createList(100);
+        HtmlNodeDiff.Snapshot snapshot = HtmlNodeDiff.update(CONTAINER, null, list).snapshot;
+        HtmlNode item = list.getChildNodes().get(42);
+
+        item.setAttribute("class", "selected");
+        item.setCssAttribute("background-color", "yellow");
+        item.setInnerText("Item 42 <new>");
+        HtmlNodeDiff.Patch patch = HtmlNodeDiff.update(CONTAINER, snapshot, list);
+
+        assertEquals(3, patch.patchCount);
+        assertTrue(patch.script.contains("setAttribute('class','selected')"));
+        assertTrue(patch.script.contains("style.setProperty('background-color','yellow')"));
+        assertTrue(patch.script.contains(".innerHTML='Item 42 &lt;new&gt;'"));
+        assertFalse(patch.script.contains("Item 41"));
+    }
+
+    @Test
+    public void insertedRemovedAndMovedChildren_createOnePatchEach() {
+        HtmlNode list = createList(5);
+        HtmlNodeDiff.Snapshot snapshot = HtmlNodeDiff.update(CONTAINER, null, list).snapshot;
+
+        list.removeChild(0);
+        list.appendChild(new HtmlNode("li", "Item 5"));
+        Collections.swap(list.getChildNodes(), 0, 1);
+        HtmlNodeDiff.Patch patch = HtmlNodeDiff.update(CONTAINER, snapshot, list);
+
+        assertEquals(3, patch.patchCount);
+        assertTrue(patch.script.contains("Item 5"));
+        assertFalse(patch.script.contains("Item 1<"));
+    }
+
+    @Test
+    public void longestIncreasingSubsequence_marksStablePositions() {
+        boolean[] stable = HtmlNodeDiff.longestIncreasingSubsequence(new int[] {2, 0, -1, 1, 3});
+
+        assertArrayEquals(new boolean[] {false, true, false, true, true}, stable);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.webviewbridge;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the rendering of HTML nodes, executed on the development machine (host).
+ */
+public class HtmlNodeTest {
+
+    @Test
+    public void get_rendersTree() {
+        HtmlNode list = new HtmlNode("ul");
+        list.setId("products");
+        HtmlNode item = new HtmlNode("li", "Apple");
+        item.setCssAttribute("color", "red");
+        list.appendChild(item);
+        list.appendChild(new HtmlNode("li"));
+
+        assertEquals("<ul id=\"products\"><li style=\"color: red; \">Apple</li><li/></ul>", list.get());
+    }
+
+    @Test
+    public void get_escapesAttributesAndText() {
+        HtmlNode link = new HtmlNode("a");
+        link.setAttribute("title", "\"Tom\" & <Jerry>");
+        link.setCssAttribute("font-family", "\"Open Sans\"");
+        link.setInnerText("1 < 2 & \"3\"");
+
+        assertEquals("<a title=\"&quot;Tom&quot; &amp; &lt;Jerry&gt;\" style=\"font-family: &quot;Open Sans&quot;; \">1 &lt; 2 &amp; \"3\"</a>", link.get());
+    }
+
+    @Test
+    public void writeTo_javaScriptString_escapesQuotesAndLineBreaks() throws Exception {
+        HtmlNode paragraph = new HtmlNode("p", "It's\nfine \\ ok");
+        StringBuilder script = new StringBuilder("'");
+        paragraph.writeTo(new JavaScriptString(script));
+        script.append("'");
+
+        assertEquals("'<p>It\\'s\\nfine \\\\ ok</p>'", script.toString());
+        assertEquals("a\\u2028b", JavaScriptString.escape("a\u2028b"));
+    }
+}
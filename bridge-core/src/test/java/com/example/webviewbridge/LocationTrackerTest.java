@@ -0,0 +1,159 @@
+package com.example.webviewbridge;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the shared location listener, executed on the development machine (host).
+ */
+public class LocationTrackerTest {
+
+    private static class FakeSource implements LocationTracker.Source {
+        int starts, stops;
+        long minIntervalMillis;
+        boolean enabled = true;
+        LocationTracker.SourceListener listener;
+        LocationTracker.Fix lastKnownFix;
+
+        @Override
+        public boolean start(long minIntervalMillis, float minDistanceMeters, LocationTracker.SourceListener listener){
+            this.starts++;
+            this.minIntervalMillis = minIntervalMillis;
+            this.listener = listener;
+            return this.enabled;
+        }
+
+        @Override
+        public void stop(){
+            this.stops++;
+            this.listener = null;
+        }
+
+        @Override
+        public LocationTracker.Fix getLastKnownFix(){
+            return this.lastKnownFix;
+        }
+    }
+
+    private static LocationTracker.Fix fix(long time){
+        return new LocationTracker.Fix(52.5, 13.4, 10, time, "gps");
+    }
+
+    @Test
+    public void subscriptions_shareOneListener() {
+        FakeSource source = new FakeSource();
+        LocationTracker tracker = new LocationTracker(source, () -> 0);
+
+        List<LocationTracker.Fix> fixes = new ArrayList<>();
+        int first = tracker.subscribe((subscriptionId, fix) -> fixes.add(fix));
+        int second = tracker.subscribe((subscriptionId, fix) -> fixes.add(fix));
+        assertEquals(1, source.starts);
+
+        source.listener.onFix(fix(1));
+        source.listener.onFix(fix(0));
+        assertEquals(2, fixes.size());
+
+        tracker.unsubscribe(first);
+        assertEquals(0, source.stops);
+        tracker.unsubscribe(second);
+        tracker.unsubscribe(second);
+        assertEquals(1, source.stops);
+
+        tracker.subscribe((subscriptionId, fix) -> fixes.add(fix));
+        tracker.setMinUpdate(1000, 0);
+        assertEquals(3, source.starts);
+        assertEquals(1000, source.minIntervalMillis);
+    }
+
+    @Test
+    public void subscribers_getTheirIdWithTheFirstFix() {
+        // The platform may pass the last fix while the listener is registered
+        FakeSource source = new FakeSource() {
+            @Override
+            public boolean start(long minIntervalMillis, float minDistanceMeters, LocationTracker.SourceListener listener){
+                super.start(minIntervalMillis, minDistanceMeters, listener);
+                listener.onFix(fix(0));
+                return true;
+            }
+        };
+        LocationTracker tracker = new LocationTracker(source, () -> 0);
+
+        List<Integer> ids = new ArrayList<>();
+        int subscriptionId = tracker.subscribe((id, fix) -> ids.add(id));
+        assertEquals(1, ids.size());
+        assertEquals(subscriptionId, (int) ids.get(0));
+    }
+
+    @Test
+    public void getFix_returnsOnlyFreshFixes() {
+        FakeSource source = new FakeSource();
+        long[] now = {10_000};
+        LocationTracker tracker = new LocationTracker(source, () -> now[0]);
+        assertNull(tracker.getFix(Long.MAX_VALUE));
+
+        source.lastKnownFix = fix(9_000);
+        assertSame(source.lastKnownFix, tracker.getFix(1_000));
+        now[0] = 20_000;
+        assertNull(tracker.getFix(1_000));
+        assertNotNull(tracker.getFix(Long.MAX_VALUE));
+        assertEquals(0, source.starts);
+    }
+
+    @Test
+    public void requestFix_unsubscribesAfterTheFirstFix() {
+        FakeSource source = new FakeSource();
+        LocationTracker tracker = new LocationTracker(source, () -> 0);
+
+        List<LocationTracker.Fix> fixes = new ArrayList<>();
+        tracker.requestFix(1_000, fixes::add);
+        assertEquals(1, tracker.getSubscriptionCount());
+
+        source.listener.onFix(fix(0));
+        assertEquals(1, fixes.size());
+        assertEquals(0, tracker.getSubscriptionCount());
+        assertEquals(1, source.stops);
+
+        // The cached fix answers the next request without starting the source
+        tracker.requestFix(1_000, fixes::add);
+        assertEquals(2, fixes.size());
+        assertEquals(1, source.starts);
+    }
+
+    @Test
+    public void requestFix_sharesOneSubscription() {
+        FakeSource source = new FakeSource();
+        LocationTracker tracker = new LocationTracker(source, () -> 0);
+
+        List<LocationTracker.Fix> fixes = new ArrayList<>();
+        tracker.requestFix(1_000, fixes::add);
+        tracker.requestFix(1_000, fixes::add);
+        tracker.refresh();
+        assertEquals(1, tracker.getSubscriptionCount());
+
+        source.listener.onFix(fix(0));
+        assertEquals(2, fixes.size());
+        assertEquals(0, tracker.getSubscriptionCount());
+    }
+
+    @Test
+    public void sourcesWithoutProvider_areStartedAgain() {
+        FakeSource source = new FakeSource();
+        source.enabled = false;
+        LocationTracker tracker = new LocationTracker(source, () -> 0);
+
+        tracker.refresh();
+        tracker.subscribe((subscriptionId, fix) -> {});
+        assertEquals(2, source.starts);
+
+        // The user turns on the location, the source registers the enabled provider
+        source.enabled = true;
+        source.listener.onProviderEnabled("gps");
+        assertEquals(3, source.starts);
+        tracker.subscribe((subscriptionId, fix) -> {});
+        assertEquals(3, source.starts);
+    }
+}
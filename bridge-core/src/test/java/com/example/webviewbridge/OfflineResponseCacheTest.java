@@ -0,0 +1,211 @@
+package com.example.webviewbridge;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the disk cache of web responses against a local HTTP server, executed on the development machine (host).
+ */
+public class OfflineResponseCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicLong now = new AtomicLong(1000000);
+    private final List<String> cookies = new ArrayList<>();
+    private final AtomicInteger requests = new AtomicInteger(), notModified = new AtomicInteger();
+    private HttpServer server;
+    private String baseUrl;
+
+    @Before
+    public void startServer() throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/", exchange -> {
+            this.requests.incrementAndGet();
+            String path = exchange.getRequestURI().getPath();
+            String eTag = "\"" + path.hashCode() + "\"";
+
+            if (eTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                this.notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+
+            if (path.startsWith("/moved")) {
+                exchange.getResponseHeaders().set("Location", "https://example.com/");
+                exchange.sendResponseHeaders(301, -1);
+                exchange.close();
+                return;
+            }
+            if (path.startsWith("/session")) exchange.getResponseHeaders().add("Set-Cookie", "session=" + path.substring(1));
+
+            StringBuilder text = new StringBuilder("response of " + path);
+            if (path.startsWith("/account")) {
+                text.append(" for ").append(exchange.getRequestHeaders().getFirst("Cookie"));
+                exchange.getResponseHeaders().set("Vary", "Cookie");
+            }
+            if (path.startsWith("/translated")) exchange.getResponseHeaders().set("Vary", "Accept-Language");
+            while (path.startsWith("/large") && text.length() < 1000) text.append(' ');
+            byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            exchange.getResponseHeaders().set("ETag", eTag);
+            if (path.startsWith("/private")) exchange.getResponseHeaders().set("Cache-Control", "no-store");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream outputStream = exchange.getResponseBody()) {
+                outputStream.write(body);
+            }
+        });
+        this.server.start();
+        this.baseUrl = "http://127.0.0.1:" + this.server.getAddress().getPort() + "/";
+    }
+
+    @After
+    public void stopServer() {
+        this.server.stop(0);
+    }
+
+    private OfflineResponseCache createCache(long maxSize) throws IOException {
+        return new OfflineResponseCache(this.folder.getRoot(), maxSize, 60000, 60000, new String[]{this.baseUrl}, this.now::get, (url, value) -> {
+            synchronized (this.cookies) {
+                this.cookies.add(value);
+            }
+        });
+    }
+
+    @Test
+    public void get_servesFreshResponsesWithoutRequest() throws IOException {
+        OfflineResponseCache cache = createCache(1024 * 1024);
+        assertTrue(cache.accepts(this.baseUrl + "a"));
+        assertFalse(cache.accepts("https://example.com/a"));
+
+        OfflineResponseCache.Response first = cache.get(this.baseUrl + "a", new HashMap<>());
+        OfflineResponseCache.Response second = cache.get(this.baseUrl + "a", new HashMap<>());
+
+        assertEquals(200, first.statusCode);
+        assertEquals("application/json", second.mimeType);
+        assertEquals("utf-8", second.encoding);
+        assertEquals("response of /a", new String(second.body, StandardCharsets.UTF_8));
+        assertEquals(1, this.requests.get());
+        assertEquals(Long.valueOf(1), cache.getStatistics().get("hits"));
+        assertEquals(Long.valueOf(1), cache.getStatistics().get("misses"));
+        cache.shutdown();
+    }
+
+    @Test
+    public void get_revalidatesStaleResponsesInTheBackground() throws Exception {
+        OfflineResponseCache cache = createCache(1024 * 1024);
+        cache.get(this.baseUrl + "a", new HashMap<>());
+
+        this.now.addAndGet(90000);
+        OfflineResponseCache.Response stale = cache.get(this.baseUrl + "a", new HashMap<>());
+        assertEquals("response of /a", new String(stale.body, StandardCharsets.UTF_8));
+
+        for (int i = 0; i < 200 && this.notModified.get() == 0; i++) Thread.sleep(10);
+        assertEquals(1, this.notModified.get());
+        assertEquals(Long.valueOf(1), cache.getStatistics().get("staleHits"));
+
+        // The 304 response made the cached response fresh again
+        int requestsBefore = this.requests.get();
+        Thread.sleep(100);
+        cache.get(this.baseUrl + "a", new HashMap<>());
+        assertEquals(requestsBefore, this.requests.get());
+        cache.shutdown();
+    }
+
+    @Test
+    public void get_servesCachedResponsesWhileOffline() throws IOException {
+        OfflineResponseCache cache = createCache(1024 * 1024);
+        cache.get(this.baseUrl + "a", new HashMap<>());
+        cache.get(this.baseUrl + "private", new HashMap<>());
+        cache.shutdown();
+
+        // A new cache finds the responses of the previous session on the disk
+        OfflineResponseCache reopened = createCache(1024 * 1024);
+        this.server.stop(0);
+        this.now.addAndGet(1000000);
+
+        OfflineResponseCache.Response offline = reopened.get(this.baseUrl + "a", new HashMap<>());
+        assertNotNull(offline);
+        assertEquals("response of /a", new String(offline.body, StandardCharsets.UTF_8));
+        assertNull(reopened.get(this.baseUrl + "private", new HashMap<>()));
+        assertEquals(Long.valueOf(1), reopened.getStatistics().get("offlineHits"));
+        assertEquals(Long.valueOf(2), reopened.getStatistics().get("networkErrors"));
+        reopened.shutdown();
+    }
+
+    @Test
+    public void get_evictsTheLeastRecentlyUsedResponses() throws IOException {
+        OfflineResponseCache cache = createCache(2500);
+        cache.get(this.baseUrl + "large1", new HashMap<>());
+        cache.get(this.baseUrl + "large2", new HashMap<>());
+        cache.get(this.baseUrl + "large1", new HashMap<>());
+        cache.get(this.baseUrl + "large3", new HashMap<>());
+
+        assertEquals(Long.valueOf(2), cache.getStatistics().get("entries"));
+        assertTrue(cache.getStatistics().get("size") <= 2500);
+
+        // large2 was used least recently, so it has to be requested again
+        int requestsBefore = this.requests.get();
+        cache.get(this.baseUrl + "large1", new HashMap<>());
+        assertEquals(requestsBefore, this.requests.get());
+        cache.get(this.baseUrl + "large2", new HashMap<>());
+        assertEquals(requestsBefore + 1, this.requests.get());
+        cache.shutdown();
+    }
+
+    @Test
+    public void get_passesCookiesOnWithoutStoringThem() throws IOException {
+        OfflineResponseCache cache = createCache(1024 * 1024);
+        OfflineResponseCache.Response response = cache.get(this.baseUrl + "session1", new HashMap<>());
+        cache.shutdown();
+
+        assertEquals(1, this.cookies.size());
+        assertEquals("session=session1", this.cookies.get(0));
+        for (String name : response.headers.keySet()) assertFalse(name.equalsIgnoreCase("Set-Cookie"));
+
+        // Redirects are returned as they are (the bridge lets the WebView follow them) and not stored
+        OfflineResponseCache reopened = createCache(1024 * 1024);
+        assertEquals(301, reopened.get(this.baseUrl + "moved", new HashMap<>()).statusCode);
+        assertEquals(Long.valueOf(1), reopened.getStatistics().get("entries"));
+        reopened.shutdown();
+    }
+
+    @Test
+    public void get_servesResponsesOnlyToTheSessionThatFetchedThem() throws IOException {
+        OfflineResponseCache cache = createCache(1024 * 1024);
+        HashMap<String, String> firstSession = new HashMap<>(), secondSession = new HashMap<>();
+        firstSession.put("Cookie", "session=1");
+        secondSession.put("cookie", "session=2");
+
+        assertEquals("response of /account for session=1", new String(cache.get(this.baseUrl + "account", firstSession).body, StandardCharsets.UTF_8));
+        assertEquals("response of /account for session=2", new String(cache.get(this.baseUrl + "account", secondSession).body, StandardCharsets.UTF_8));
+        assertEquals("response of /account for null", new String(cache.get(this.baseUrl + "account", new HashMap<>()).body, StandardCharsets.UTF_8));
+        assertEquals("response of /account for session=1", new String(cache.get(this.baseUrl + "account", firstSession).body, StandardCharsets.UTF_8));
+        assertEquals(3, this.requests.get());
+
+        // The response depends on a header that isn't part of the key
+        cache.get(this.baseUrl + "translated", new HashMap<>());
+        cache.get(this.baseUrl + "translated", new HashMap<>());
+        assertEquals(5, this.requests.get());
+        assertEquals(Long.valueOf(3), cache.getStatistics().get("entries"));
+        cache.shutdown();
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.webviewbridge;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the permission dialogs of the bridge, executed on the development machine (host).
+ */
+public class PermissionCoordinatorTest {
+    private static final String CAMERA = "android.permission.CAMERA", LOCATION = "android.permission.ACCESS_FINE_LOCATION";
+    private static final int GRANTED = 0, DENIED = -1;
+
+    private static class FakePlatform implements PermissionCoordinator.Platform {
+        final Set<String> granted = new HashSet<>();
+        final List<String[]> requests = new ArrayList<>();
+        int checks;
+
+        @Override
+        public boolean checkPermission(String permission){
+            this.checks++;
+            return this.granted.contains(permission);
+        }
+
+        @Override
+        public void requestPermissions(String[] permissions, int requestCode){
+            assertEquals(PermissionCoordinator.REQUEST_CODE, requestCode);
+            this.requests.add(permissions);
+        }
+    }
+
+    @Test
+    public void requests_shareTheDialog() {
+        FakePlatform platform = new FakePlatform();
+        PermissionCoordinator coordinator = new PermissionCoordinator(platform);
+
+        List<Map<String, Boolean>> results = new ArrayList<>();
+        coordinator.request(new String[]{CAMERA}, results::add);
+        coordinator.request(new String[]{CAMERA}, results::add);
+        coordinator.request(new String[]{CAMERA, LOCATION}, results::add);
+
+        // LOCATION comes with the next dialog, Android shows one at a time
+        assertEquals(1, platform.requests.size());
+        assertArrayEquals(new String[]{CAMERA}, platform.requests.get(0));
+
+        assertFalse(coordinator.onRequestPermissionsResult(100, new String[]{CAMERA}, new int[]{GRANTED}));
+        assertTrue(coordinator.onRequestPermissionsResult(PermissionCoordinator.REQUEST_CODE, new String[]{CAMERA}, new int[]{GRANTED}));
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).get(CAMERA));
+        assertEquals(2, platform.requests.size());
+        assertArrayEquals(new String[]{LOCATION}, platform.requests.get(1));
+
+        coordinator.onRequestPermissionsResult(PermissionCoordinator.REQUEST_CODE, new String[]{LOCATION}, new int[]{DENIED});
+        assertEquals(3, results.size());
+        assertTrue(results.get(2).get(CAMERA));
+        assertFalse(results.get(2).get(LOCATION));
+        assertFalse(coordinator.isRequesting());
+    }
+
+    @Test
+    public void grantedPermissions_areCached() {
+        FakePlatform platform = new FakePlatform();
+        platform.granted.add(CAMERA);
+        PermissionCoordinator coordinator = new PermissionCoordinator(platform);
+
+        List<Map<String, Boolean>> results = new ArrayList<>();
+        coordinator.request(new String[]{CAMERA}, results::add);
+        coordinator.request(new String[]{CAMERA}, results::add);
+        assertTrue(coordinator.isGranted(CAMERA));
+        assertEquals(2, results.size());
+        assertEquals(1, platform.checks);
+        assertTrue(platform.requests.isEmpty());
+
+        // Denied permissions are checked again, they may have been granted in the settings
+        assertFalse(coordinator.isGranted(LOCATION));
+        platform.granted.add(LOCATION);
+        assertTrue(coordinator.isGranted(LOCATION));
+    }
+
+    @Test
+    public void cancelledDialog_deniesThePermissions() throws Exception {
+        final FakePlatform platform = new FakePlatform();
+        final PermissionCoordinator coordinator = new PermissionCoordinator(platform);
+
+        Thread answer = new Thread(() -> {
+            while (!coordinator.isRequesting()) Thread.yield();
+            coordinator.onRequestPermissionsResult(PermissionCoordinator.REQUEST_CODE, new String[0], new int[0]);
+        });
+        answer.start();
+        assertFalse(coordinator.await(new String[]{CAMERA}, 10_000));
+        answer.join();
+
+        coordinator.request(new String[]{LOCATION}, results -> assertEquals(Arrays.asList(false), new ArrayList<>(results.values())));
+        coordinator.cancel();
+        assertFalse(coordinator.isRequesting());
+    }
+}
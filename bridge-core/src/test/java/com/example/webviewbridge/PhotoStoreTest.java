@@ -0,0 +1,107 @@
+package com.example.webviewbridge;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the photos of takePhoto() and their thumbnails, executed on the development machine (host).
+ */
+public class PhotoStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static class FakeCodec implements PhotoStore.Codec {
+        final List<Integer> thumbnailSizes = new ArrayList<>();
+
+        @Override
+        public int[] readSize(File photo){
+            return new int[] {4000, 3000};
+        }
+
+        @Override
+        public void writeThumbnail(File photo, File thumbnail, int maxSize) throws IOException {
+            this.thumbnailSizes.add(maxSize);
+            write(thumbnail, "thumbnail " + maxSize);
+        }
+    }
+
+    private static void write(File file, String content) throws IOException {
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(content.getBytes("UTF-8"));
+        }
+    }
+
+    @Test
+    public void thumbnails_areCachedPerSize() throws Exception {
+        FakeCodec codec = new FakeCodec();
+        PhotoStore store = new PhotoStore(this.folder.newFolder("files"), this.folder.newFolder("cache"), codec);
+
+        File photo = store.createPhotoFile();
+        String id = PhotoStore.getId(photo);
+        assertNotEquals(photo, store.createPhotoFile());
+        // The camera app hasn't written the photo yet
+        assertNull(store.getPhoto(id));
+        assertNull(store.getThumbnail(id, 320));
+
+        write(photo, "jpeg");
+        assertEquals(photo, store.getPhoto(id));
+        assertArrayEquals(new int[] {4000, 3000}, store.readSize(id));
+        File thumbnail = store.getThumbnail(id, 320);
+        assertEquals(thumbnail, store.getThumbnail(id, 310));
+        store.getThumbnail(id, 100_000);
+        assertEquals(2, codec.thumbnailSizes.size());
+        assertEquals(Integer.valueOf(2048), codec.thumbnailSizes.get(1));
+
+        assertTrue(store.delete(id));
+        assertFalse(thumbnail.exists());
+        assertFalse(store.delete(id));
+    }
+
+    @Test
+    public void pendingPhotos_areTakenOnce() throws Exception {
+        PhotoStore store = new PhotoStore(this.folder.newFolder("files"), this.folder.newFolder("cache"), new FakeCodec());
+        assertNull(store.takePending());
+
+        File photo = store.createPhotoFile();
+        store.setPending(PhotoStore.getId(photo), 640);
+        // A new store, like the one of a recreated bridge, finds the photo
+        PhotoStore.Pending pending = new PhotoStore(new File(this.folder.getRoot(), "files"), this.folder.getRoot(), new FakeCodec()).takePending();
+
+        assertEquals(PhotoStore.getId(photo), pending.id);
+        assertEquals(640, pending.thumbnailSize);
+        assertEquals(photo, store.getFile(pending.id));
+        assertNull(store.takePending());
+    }
+
+    @Test
+    public void requestedIds_stayInThePhotoFolder() {
+        String id = PhotoStore.getRequestedId("https", AssetServer.HOST, "/photos/IMG_20240101_120000_1.jpg");
+        assertEquals("IMG_20240101_120000_1", id);
+        assertEquals("https://" + AssetServer.HOST + "/photos/" + id + ".jpg?size=320", PhotoStore.getThumbnailUrl(id, 320));
+
+        assertNull(PhotoStore.getRequestedId("https", AssetServer.HOST, "/photos/../bridge-store.log.jpg"));
+        assertNull(PhotoStore.getRequestedId("https", AssetServer.HOST, "/photos/a/b.jpg"));
+        assertNull(PhotoStore.getRequestedId("http", AssetServer.HOST, "/photos/a.jpg"));
+        assertNull(PhotoStore.getRequestedId("https", "example.com", "/photos/a.jpg"));
+        assertNull(PhotoStore.getRequestedId("https", AssetServer.HOST, "/assets/a.jpg"));
+    }
+
+    @Test
+    public void sampleSize_keepsTheThumbnailSharp() {
+        assertEquals(1, PhotoStore.getSampleSize(300, 200, 320));
+        assertEquals(8, PhotoStore.getSampleSize(4000, 3000, 320));
+        assertEquals(4, PhotoStore.getSampleSize(3000, 4000, 640));
+        assertEquals(16, PhotoStore.roundThumbnailSize(0));
+        assertEquals(320, PhotoStore.roundThumbnailSize(310));
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.webviewbridge;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the startup timings of the bridge, executed on the development machine (host).
+ */
+public class StartupTimingsTest {
+
+    @Test
+    public void marks_areRecordedOnce() {
+        long[] now = {1_000};
+        StartupTimings timings = new StartupTimings(() -> now[0], 400);
+
+        assertTrue(timings.mark("webViewCreated"));
+        now[0] = 1_250;
+        assertTrue(timings.mark("pageVisible"));
+        now[0] = 2_000;
+        assertFalse(timings.mark("webViewCreated"));
+
+        Map<String, Long> snapshot = timings.getSnapshot();
+        assertEquals(Arrays.asList("webViewCreated", "pageVisible"), new ArrayList<>(snapshot.keySet()));
+        assertEquals(600, (long) snapshot.get("webViewCreated"));
+        assertEquals(850, (long) timings.get("pageVisible"));
+        assertNull(timings.get("attached"));
+    }
+}
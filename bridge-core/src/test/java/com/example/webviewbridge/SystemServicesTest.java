@@ -0,0 +1,39 @@
+package com.example.webviewbridge;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the cached system services, executed on the development machine (host).
+ */
+public class SystemServicesTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void services_areLookedUpOnce() {
+        final AtomicInteger lookups = new AtomicInteger();
+        InMemoryBridgeHost host = new InMemoryBridgeHost(this.folder.getRoot()) {
+            @Override
+            public synchronized Object getSystemService(String name) {
+                lookups.incrementAndGet();
+                return super.getSystemService(name);
+            }
+        };
+        Object vibrator = new Object();
+        host.putSystemService("vibrator", vibrator);
+
+        SystemServices services = new SystemServices(host);
+        assertSame(vibrator, services.get("vibrator"));
+        assertSame(vibrator, services.get("vibrator"));
+        assertNull(services.get("camera"));
+        assertNull(services.get("camera"));
+        assertEquals(2, lookups.get());
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.webviewbridge;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// BridgeHost without a WebView for tests and benchmarks on a plain JVM ---------------------------
+//
+// Scripts and loaded URLs are recorded, posted tasks wait until runPendingTasks() is called (the
+// thread that calls it plays the UI thread). The results of the scripts come from the script
+// evaluator, e.g. a JavaScript engine or a lambda that answers the expected calls.
+
+class InMemoryBridgeHost implements BridgeHost {
+
+    interface ScriptEvaluator {
+        String evaluate(String script);
+    }
+
+    private final File filesDir, cacheDir;
+    private final ArrayDeque<Runnable> pendingTasks = new ArrayDeque<>();
+    private final List<String> scripts = new ArrayList<>();
+    private final List<String> loadedUrls = new ArrayList<>();
+    private final Map<String, byte[]> assets = new HashMap<>();
+    private final Map<String, Object> systemServices = new HashMap<>();
+    private volatile ScriptEvaluator scriptEvaluator = script -> "null";
+
+    InMemoryBridgeHost(File directory){
+        this.filesDir = new File(directory, "files");
+        this.cacheDir = new File(directory, "cache");
+        //noinspection ResultOfMethodCallIgnored
+        this.filesDir.mkdirs();
+        //noinspection ResultOfMethodCallIgnored
+        this.cacheDir.mkdirs();
+    }
+
+    void setScriptEvaluator(ScriptEvaluator scriptEvaluator){
+        this.scriptEvaluator = scriptEvaluator;
+    }
+
+    synchronized void putAsset(String path, String content){
+        this.assets.put(path, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    synchronized void putSystemService(String name, Object service){
+        this.systemServices.put(name, service);
+    }
+
+    // Runs the posted tasks (and the tasks they post) on the calling thread, returns their number
+    int runPendingTasks(){
+        int count = 0;
+        for (Runnable task; (task = pollTask()) != null; count++) task.run();
+        return count;
+    }
+
+    synchronized List<String> getScripts(){
+        return new ArrayList<>(this.scripts);
+    }
+
+    synchronized List<String> getLoadedUrls(){
+        return new ArrayList<>(this.loadedUrls);
+    }
+
+    synchronized void clearScripts(){
+        this.scripts.clear();
+    }
+
+    private synchronized Runnable pollTask(){
+        return this.pendingTasks.poll();
+    }
+
+    @Override
+    public void evaluateJavascript(String script, ResultCallback callback){
+        synchronized (this) {
+            this.scripts.add(script);
+        }
+        String result = this.scriptEvaluator.evaluate(script);
+        if (callback != null) post(() -> callback.onResult(result));
+    }
+
+    @Override
+    public synchronized void post(Runnable task){
+        this.pendingTasks.add(task);
+    }
+
+    @Override
+    public void postOnAnimation(Runnable task){
+        post(task);
+    }
+
+    // The delay is ignored, runPendingTasks() runs the task with the others
+    @Override
+    public void postDelayed(Runnable task, long delayMillis){
+        post(task);
+    }
+
+    @Override
+    public synchronized void loadUrl(String url){
+        this.loadedUrls.add(url);
+    }
+
+    @Override
+    public synchronized void loadData(String data, String mimeType, String encoding){
+        this.loadedUrls.add("data:" + mimeType + ";charset=" + encoding + "," + data);
+    }
+
+    @Override
+    public synchronized InputStream openAsset(String path) throws FileNotFoundException {
+        byte[] data = this.assets.get(path);
+        if (data == null) throw new FileNotFoundException(path);
+        return new ByteArrayInputStream(data);
+    }
+
+    @Override
+    public File getFilesDir(){
+        return this.filesDir;
+    }
+
+    @Override
+    public File getCacheDir(){
+        return this.cacheDir;
+    }
+
+    @Override
+    public synchronized Object getSystemService(String name){
+        return this.systemServices.get(name);
+    }
+}
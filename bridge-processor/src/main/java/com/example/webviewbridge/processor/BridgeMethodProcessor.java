@@ -0,0 +1,300 @@
+package com.example.webviewbridge.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+
+// Generates the <ClassName>_BridgeMethods classes for the methods annotated with @BridgeMethod ------
+//
+// The generated class calls the methods in a switch over their index, so neither the registration
+// nor the calls use reflection. Because the methods are called directly, R8/ProGuard can rename and
+// shrink them like any other code and proguard-rules.pro needs no keep rules for them.
+
+public class BridgeMethodProcessor extends AbstractProcessor {
+
+    static final String ANNOTATION = "com.example.webviewbridge.annotations.BridgeMethod";
+    static final String GENERATED_SUFFIX = "_BridgeMethods";
+
+    // Keywords are used in the URL hash and as JavaScript property names
+    private static final Pattern KEYWORD = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(ANNOTATION);
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnvironment) {
+        TypeElement annotation = this.processingEnv.getElementUtils().getTypeElement(ANNOTATION);
+        if (annotation == null) return false;
+
+        // Keeps the order of the source, so the indexes of the methods are stable between builds
+        Map<TypeElement, List<ExecutableElement>> methodsByClass = new LinkedHashMap<>();
+        for (Element element : roundEnvironment.getElementsAnnotatedWith(annotation)) {
+            if (element.getKind() != ElementKind.METHOD) continue;
+
+            TypeElement enclosingClass = (TypeElement) element.getEnclosingElement();
+            if (!methodsByClass.containsKey(enclosingClass)) methodsByClass.put(enclosingClass, new ArrayList<ExecutableElement>());
+            methodsByClass.get(enclosingClass).add((ExecutableElement) element);
+        }
+
+        for (Map.Entry<TypeElement, List<ExecutableElement>> entry : methodsByClass.entrySet()) {
+            if (!isValid(entry.getKey(), entry.getValue())) continue;
+
+            try {
+                writeClass(entry.getKey(), entry.getValue());
+            } catch (IOException e) {
+                error(entry.getKey(), "Could not write the bridge methods: " + e);
+            }
+        }
+        return true;
+    }
+
+    private boolean isValid(TypeElement type, List<ExecutableElement> methods){
+        boolean valid = true;
+
+        if (type.getModifiers().contains(Modifier.PRIVATE)
+                || (type.getNestingKind() == NestingKind.MEMBER && !type.getModifiers().contains(Modifier.STATIC))
+                || type.getNestingKind() == NestingKind.LOCAL || type.getNestingKind() == NestingKind.ANONYMOUS) {
+            error(type, "Classes with @BridgeMethod must be top-level or static nested classes and not private");
+            valid = false;
+        }
+
+        Set<String> keywords = new HashSet<>();
+        for (ExecutableElement method : methods) {
+            String keyword = getKeyword(method);
+
+            if (method.getModifiers().contains(Modifier.PRIVATE)) {
+                error(method, "@BridgeMethod methods must not be private");
+                valid = false;
+            }
+            if (!KEYWORD.matcher(keyword).matches()) {
+                error(method, "Invalid keyword \"" + keyword + "\", it must be a JavaScript identifier");
+                valid = false;
+            }
+            if (!keywords.add(keyword)) {
+                error(method, "The keyword \"" + keyword + "\" is used by another @BridgeMethod of the class");
+                valid = false;
+            }
+            for (VariableElement parameter : method.getParameters()) {
+                if (getParameterType(parameter.asType()) == null) {
+                    error(parameter, "Unsupported parameter type " + parameter.asType() + " of a @BridgeMethod");
+                    valid = false;
+                }
+            }
+        }
+        return valid;
+    }
+
+    private void writeClass(TypeElement type, List<ExecutableElement> methods) throws IOException {
+        PackageElement packageElement = this.processingEnv.getElementUtils().getPackageOf(type);
+        String packageName = packageElement.isUnnamed() ? "" : packageElement.getQualifiedName().toString();
+        String typeName = type.getQualifiedName().toString();
+        String className = getGeneratedClassName(type);
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) source.append("package ").append(packageName).append(";\n\n");
+
+        source.append("// Generated by BridgeMethodProcessor from ").append(typeName).append(", do not edit.\n\n");
+        source.append("public final class ").append(className).append(" implements com.example.webviewbridge.annotations.BridgeMethods {\n\n");
+
+        source.append("    private static final String[] KEYWORDS = {");
+        for (int i = 0; i < methods.size(); i++) {
+            if (i > 0) source.append(", ");
+            source.append('"').append(getKeyword(methods.get(i))).append('"');
+        }
+        source.append("};\n\n");
+
+        source.append("    private static final String[][] PARAMETER_TYPES = {\n");
+        for (ExecutableElement method : methods) {
+            source.append("        {");
+            List<? extends VariableElement> parameters = method.getParameters();
+            for (int i = 0; i < parameters.size(); i++) {
+                if (i > 0) source.append(", ");
+                source.append('"').append(getParameterType(parameters.get(i).asType())).append('"');
+            }
+            source.append("},\n");
+        }
+        source.append("    };\n\n");
+
+        source.append("    private static final String JAVA_SCRIPT = \"").append(getJavaScript(methods)).append("\";\n\n");
+
+        source.append("    private final ").append(typeName).append(" target;\n\n");
+        source.append("    public ").append(className).append("(").append(typeName).append(" target) {\n");
+        source.append("        this.target = target;\n");
+        source.append("    }\n\n");
+
+        source.append("    @Override\n");
+        source.append("    public String[] getKeywords() {\n");
+        source.append("        return KEYWORDS.clone();\n");
+        source.append("    }\n\n");
+
+        source.append("    @Override\n");
+        source.append("    public String[] getParameterTypes(int index) {\n");
+        source.append("        return PARAMETER_TYPES[index].clone();\n");
+        source.append("    }\n\n");
+
+        source.append("    @Override\n");
+        source.append("    public String getJavaScript() {\n");
+        source.append("        return JAVA_SCRIPT;\n");
+        source.append("    }\n\n");
+
+        source.append("    @Override\n");
+        source.append("    @SuppressWarnings(\"unchecked\")\n");
+        source.append("    public Object call(int index, Object[] arguments) throws Exception {\n");
+        source.append("        switch (index) {\n");
+        for (int i = 0; i < methods.size(); i++) {
+            ExecutableElement method = methods.get(i);
+            boolean returnsVoid = method.getReturnType().getKind() == TypeKind.VOID;
+
+            source.append("            case ").append(i).append(": ");
+            if (!returnsVoid) source.append("return ");
+            source.append(method.getModifiers().contains(Modifier.STATIC) ? typeName : "this.target");
+            source.append('.').append(method.getSimpleName()).append('(');
+
+            List<? extends VariableElement> parameters = method.getParameters();
+            for (int j = 0; j < parameters.size(); j++) {
+                if (j > 0) source.append(", ");
+                appendArgument(source, parameters.get(j).asType(), j);
+            }
+            source.append(");");
+            if (returnsVoid) source.append(" return null;");
+            source.append('\n');
+        }
+        source.append("            default: throw new IllegalArgumentException(\"Unknown bridge method: \" + index);\n");
+        source.append("        }\n");
+        source.append("    }\n");
+        source.append("}\n");
+
+        String qualifiedName = packageName.isEmpty() ? className : packageName + "." + className;
+        try (Writer writer = this.processingEnv.getFiler().createSourceFile(qualifiedName, type).openWriter()) {
+            writer.write(source.toString());
+        }
+    }
+
+    // The WebViewBridge converts the arguments to the declared types first (see ArgumentType), so a cast is enough
+    private void appendArgument(StringBuilder source, TypeMirror type, int index){
+        String argument = "arguments[" + index + "]";
+        switch (type.getKind()) {
+            case BOOLEAN: source.append("(Boolean) ").append(argument); break;
+            case INT: source.append("(Integer) ").append(argument); break;
+            case LONG: source.append("(Long) ").append(argument); break;
+            case DOUBLE: source.append("(Double) ").append(argument); break;
+            case FLOAT: source.append("(Float) ").append(argument); break;
+            default: source.append('(').append(getTypeName(type)).append(") ").append(argument);
+        }
+    }
+
+    // Stubs like Native.methods.keyword(p0, p1) and Native.methods.keyword.async(p0, p1)
+    private static String getJavaScript(List<ExecutableElement> methods){
+        StringBuilder script = new StringBuilder("var m=n.methods;");
+        for (ExecutableElement method : methods) {
+            String keyword = getKeyword(method);
+
+            StringBuilder parameters = new StringBuilder();
+            for (int i = 0; i < method.getParameters().size(); i++) {
+                if (i > 0) parameters.append(',');
+                parameters.append('p').append(i);
+            }
+
+            script.append("m.").append(keyword).append("=function(").append(parameters)
+                    .append("){return n.callNativeFunction('").append(keyword).append("',[").append(parameters).append("]);};");
+            script.append("m.").append(keyword).append(".async=function(").append(parameters)
+                    .append("){return n.callNativeFunctionAsync('").append(keyword).append("',[").append(parameters).append("]);};");
+        }
+        return script.toString();
+    }
+
+    // Names of the declared types as understood by ArgumentType, null for unsupported primitives
+    private String getParameterType(TypeMirror type){
+        switch (type.getKind()) {
+            case BOOLEAN: return "boolean";
+            case INT: return "int";
+            case LONG: return "long";
+            case FLOAT: return "float";
+            case DOUBLE: return "double";
+            case BYTE: case SHORT: case CHAR: return null;
+            default:
+                String name = getTypeName(type);
+                switch (name) {
+                    case "java.lang.Boolean": return "Boolean";
+                    case "java.lang.Integer": return "Integer";
+                    case "java.lang.Long": return "Long";
+                    case "java.lang.Float": return "Float";
+                    case "java.lang.Double": return "Double";
+                    case "java.lang.String": return "String";
+                    case "org.json.JSONObject": return "JSONObject";
+                    case "org.json.JSONArray": return "JSONArray";
+                    case "java.lang.Byte": case "java.lang.Short": case "java.lang.Character": return null;
+                    default: return name;
+                }
+        }
+    }
+
+    // Erased name without type annotations, e.g. java.util.List for List<@NonNull String>
+    private String getTypeName(TypeMirror type){
+        TypeMirror erasure = this.processingEnv.getTypeUtils().erasure(type);
+        if (erasure.getKind() == TypeKind.DECLARED)
+            return ((TypeElement) ((DeclaredType) erasure).asElement()).getQualifiedName().toString();
+        return erasure.toString();
+    }
+
+    private static String getKeyword(ExecutableElement method){
+        String keyword = getAnnotationValue(method);
+        return (keyword == null || keyword.isEmpty()) ? method.getSimpleName().toString() : keyword;
+    }
+
+    // Reads the value without loading the annotation class, so the processor doesn't depend on its classpath
+    private static String getAnnotationValue(ExecutableElement method){
+        for (AnnotationMirror annotation : method.getAnnotationMirrors()) {
+            if (!annotation.getAnnotationType().toString().equals(ANNOTATION)) continue;
+
+            for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals("value")) return String.valueOf(entry.getValue().getValue());
+            }
+        }
+        return null;
+    }
+
+    // Nested classes are joined with "_", e.g. Outer_Inner_BridgeMethods
+    static String getGeneratedClassName(TypeElement type){
+        StringBuilder name = new StringBuilder(type.getSimpleName());
+        for (Element enclosing = type.getEnclosingElement(); enclosing instanceof TypeElement; enclosing = enclosing.getEnclosingElement())
+            name.insert(0, enclosing.getSimpleName() + "_");
+        return name.append(GENERATED_SUFFIX).toString();
+    }
+
+    private void error(Element element, String message){
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.webviewbridge;
+
+import com.example.webviewbridge.annotations.BridgeMethods;
+
+// Calls a generated dispatcher like the bridge does, with the values decoded by ArgumentType first ----
+
+public class BridgeCalls {
+
+    private BridgeCalls() {}
+
+    public static Object call(BridgeMethods methods, int index, Object... values) throws Exception {
+        return new CallableFunction(methods, index, methods.getKeywords()[index]).call(values);
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.webviewbridge.processor;
+
+import com.example.webviewbridge.BridgeCalls;
+import com.example.webviewbridge.annotations.BridgeMethods;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the generated bridge method dispatchers, executed on the development machine (host).
+ */
+public class BridgeMethodProcessorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+
+    private boolean compile(String className, String source) throws Exception {
+        File sourceFile = new File(this.folder.getRoot(), "src/example/" + className + ".java");
+        assertTrue(sourceFile.getParentFile().mkdirs());
+        Files.write(sourceFile.toPath(), source.getBytes(StandardCharsets.UTF_8));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(this.diagnostics, null, StandardCharsets.UTF_8)) {
+            JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, this.diagnostics,
+                    Arrays.asList("-d", getOutput().getPath(), "-s", getOutput().getPath(), "-classpath", System.getProperty("java.class.path")),
+                    null, fileManager.getJavaFileObjects(sourceFile));
+            task.setProcessors(Arrays.asList(new BridgeMethodProcessor()));
+            return task.call();
+        }
+    }
+
+    private File getOutput() {
+        File output = new File(this.folder.getRoot(), "out");
+        output.mkdirs();
+        return output;
+    }
+
+    @Test
+    public void annotatedMethods_areCalledByIndex() throws Exception {
+        assertTrue(compile("Greeter", "package example;\n"
+                + "import com.example.webviewbridge.annotations.BridgeMethod;\n"
+                + "public class Greeter {\n"
+                + "    int calls;\n"
+                + "    @BridgeMethod String greet(String name, int times) { calls++; return \"Hello \" + name + \" x\" + times; }\n"
+                + "    @BridgeMethod(\"count\") public long getCalls(float factor) { return (long) (calls * factor); }\n"
+                + "    @BridgeMethod String scale(Float factor, double offset) { return factor + \"/\" + offset; }\n"
+                + "}\n"));
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {getOutput().toURI().toURL()}, getClass().getClassLoader())) {
+            Class<?> greeterClass = classLoader.loadClass("example.Greeter");
+            Object greeter = greeterClass.getDeclaredConstructor().newInstance();
+            BridgeMethods methods = (BridgeMethods) classLoader.loadClass("example.Greeter_BridgeMethods")
+                    .getConstructor(greeterClass).newInstance(greeter);
+
+            assertArrayEquals(new String[] {"greet", "count", "scale"}, methods.getKeywords());
+            assertArrayEquals(new String[] {"String", "int"}, methods.getParameterTypes(0));
+            assertArrayEquals(new String[] {"float"}, methods.getParameterTypes(1));
+            // The values are decoded like the ones of a page (strings of the URL hash, numbers of JSON) first
+            assertEquals("Hello Bridge x2", BridgeCalls.call(methods, 0, "Bridge", "2"));
+            assertEquals(4L, BridgeCalls.call(methods, 1, "4.5"));
+            assertEquals("0.5/2.0", BridgeCalls.call(methods, 2, 0.5, 2));
+            assertTrue(methods.getJavaScript().contains("m.greet=function(p0,p1){return n.callNativeFunction('greet',[p0,p1]);};"));
+        }
+    }
+
+    @Test
+    public void invalidMethods_failTheCompilation() throws Exception {
+        assertFalse(compile("Invalid", "package example;\n"
+                + "import com.example.webviewbridge.annotations.BridgeMethod;\n"
+                + "public class Invalid {\n"
+                + "    @BridgeMethod private void hidden() {}\n"
+                + "    @BridgeMethod(\"hidden\") void other(char c) {}\n"
+                + "}\n"));
+
+        assertEquals(3, this.diagnostics.getDiagnostics().size());
+    }
+}